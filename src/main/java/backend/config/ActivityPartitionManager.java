@@ -0,0 +1,175 @@
+package backend.config;
+
+import backend.model.PartitionInterval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Декларативное секционирование user_activity по timestamp (PARTITION BY RANGE).
+// Секции создаются на activity.partitioning.premake периодов вперед при запуске и по расписанию.
+// События вне созданных секций попадают в секцию по умолчанию; при создании секции
+// относящиеся к ней строки переносятся из секции по умолчанию в той же транзакции.
+@Component
+public class ActivityPartitionManager {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityPartitionManager.class);
+
+    public static final String TABLE = "user_activity";
+    public static final String DEFAULT_PARTITION = TABLE + "_default";
+    public static final String PARTITION_PREFIX = TABLE + "_p";
+    private static final String LEGACY_TABLE = TABLE + "_legacy";
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Pattern RANGE_BOUND = Pattern.compile("FROM \\('([^']+)'\\) TO \\('([^']+)'\\)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ActivityProperties.Partitioning settings;
+
+    public ActivityPartitionManager(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                    ActivityProperties activityProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.settings = activityProperties.getPartitioning();
+    }
+
+    // Секция и ее границы [from, to); у секции по умолчанию границ нет
+    public record Partition(String name, LocalDateTime from, LocalDateTime to) {
+        public boolean isDefault() {
+            return from == null;
+        }
+
+        public boolean overlaps(LocalDateTime periodFrom, LocalDateTime periodTo) {
+            return isDefault() || (from.isBefore(periodTo) && to.isAfter(periodFrom));
+        }
+    }
+
+    public boolean isPartitioned() {
+        String kind = jdbcTemplate.queryForObject(
+                "SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)", String.class, TABLE);
+        return "p".equals(kind);
+    }
+
+    // Переводит обычную таблицу, созданную ddl-auto, в секционированную. Выполняется одной транзакцией:
+    // строки копируются в секции по периодам, старая таблица удаляется. Первичный ключ секционированной
+    // таблицы обязан включать ключ секционирования, поэтому он становится (id, timestamp).
+    public void migrate() {
+        if (!settings.isEnabled() || isPartitioned()) {
+            return;
+        }
+        PartitionInterval interval = settings.getInterval();
+        long started = System.currentTimeMillis();
+        Integer rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("LOCK TABLE " + TABLE + " IN ACCESS EXCLUSIVE MODE");
+            // Имена индексов и ограничений общие для схемы: освобождаем их для новой таблицы
+            jdbcTemplate.execute("DROP INDEX IF EXISTS user_activity_user_ip_text_idx");
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + LEGACY_TABLE);
+            jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " DROP CONSTRAINT IF EXISTS " + TABLE + "_pkey");
+
+            jdbcTemplate.execute("CREATE TABLE " + TABLE + " (LIKE " + LEGACY_TABLE +
+                    " INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (timestamp)");
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT " + TABLE + "_pkey PRIMARY KEY (id, timestamp)");
+            jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+
+            // Секции под все периоды, за которые уже есть данные (date_trunc понимает 'day' и 'month')
+            List<LocalDate> periods = jdbcTemplate.queryForList("SELECT DISTINCT CAST(date_trunc('" +
+                    interval.name().toLowerCase(Locale.ROOT) + "', timestamp) AS date) FROM " + LEGACY_TABLE, LocalDate.class);
+            for (LocalDate start : periods) {
+                attachPartition(interval, start);
+            }
+            int copied = jdbcTemplate.update("INSERT INTO " + TABLE + " SELECT * FROM " + LEGACY_TABLE);
+            jdbcTemplate.execute("DROP TABLE " + LEGACY_TABLE);
+            return copied;
+        });
+        logger.info("Таблица {} секционирована по периоду {}: перенесено {} строк за {} мс",
+                TABLE, interval, rows, System.currentTimeMillis() - started);
+    }
+
+    // Создает недостающие секции с текущего периода на premake периодов вперед
+    @Scheduled(cron = "${activity.partitioning.maintenance-cron:0 15 0 * * *}")
+    public void ensurePartitions() {
+        if (!settings.isEnabled() || !isPartitioned()) {
+            return;
+        }
+        PartitionInterval interval = settings.getInterval();
+        LocalDate start = interval.floor(LocalDate.now());
+        for (int i = 0; i <= Math.max(0, settings.getPremake()); i++) {
+            createPartition(interval, start);
+            start = interval.next(start);
+        }
+    }
+
+    // Создает секцию периода, в который попадает момент: для загрузки прошлых данных, чтобы они не копились
+    // в секции по умолчанию
+    public void ensurePartition(LocalDateTime timestamp) {
+        if (!settings.isEnabled() || !isPartitioned()) {
+            return;
+        }
+        PartitionInterval interval = settings.getInterval();
+        createPartition(interval, interval.floor(timestamp.toLocalDate()));
+    }
+
+    // Секции в порядке начала периода, секция по умолчанию - последней
+    public List<Partition> partitions() {
+        return jdbcTemplate.query("SELECT name, bound FROM (SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bound " +
+                "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?)) p " +
+                "ORDER BY bound = 'DEFAULT', bound", (resultSet, rowNum) -> {
+            Matcher bound = RANGE_BOUND.matcher(resultSet.getString(2));
+            return bound.find()
+                    ? new Partition(resultSet.getString(1), LocalDateTime.parse(bound.group(1), BOUND_FORMAT),
+                    LocalDateTime.parse(bound.group(2), BOUND_FORMAT))
+                    : new Partition(resultSet.getString(1), null, null);
+        }, TABLE);
+    }
+
+    // Удаление секции целиком: мгновенно и без мертвых строк, блокировка таблицы только на время DROP
+    public void dropPartition(Partition partition) {
+        if (partition.isDefault()) {
+            throw new IllegalArgumentException("Секция по умолчанию не удаляется: " + partition.name());
+        }
+        jdbcTemplate.execute("DROP TABLE " + partition.name());
+        logger.info("Удалена секция {}", partition.name());
+    }
+
+    private void createPartition(PartitionInterval interval, LocalDate start) {
+        String name = partitionName(interval, start);
+        if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name)) {
+            return;
+        }
+        try {
+            Integer moved = transactionTemplate.execute(status -> attachPartition(interval, start));
+            logger.info("Создана секция {}, из секции по умолчанию перенесено {} строк", name, moved);
+        } catch (DataAccessException e) {
+            // Например, период пересекается с секциями, созданными при другом значении interval
+            logger.warn("Секция {} не создана: {}", name, e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    // Секция создается отдельной таблицей и подключается после переноса строк из секции по умолчанию:
+    // иначе PostgreSQL отказал бы в создании, найдя там строки этого периода
+    private int attachPartition(PartitionInterval interval, LocalDate start) {
+        String name = partitionName(interval, start);
+        LocalDate end = interval.next(start);
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION +
+                        " WHERE timestamp >= ? AND timestamp < ? RETURNING *) INSERT INTO " + name + " SELECT * FROM moved",
+                start.atStartOfDay(), end.atStartOfDay());
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + name + " FOR VALUES FROM ('" +
+                BOUND_FORMAT.format(start.atStartOfDay()) + "') TO ('" + BOUND_FORMAT.format(end.atStartOfDay()) + "')");
+        return moved;
+    }
+
+    private String partitionName(PartitionInterval interval, LocalDate start) {
+        return PARTITION_PREFIX + interval.suffix(start);
+    }
+}
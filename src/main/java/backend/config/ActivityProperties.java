@@ -0,0 +1,1026 @@
+package backend.config;
+
+import backend.model.BotFilterAction;
+import backend.model.EventType;
+import backend.model.IngestionMode;
+import backend.model.PartitionInterval;
+import backend.model.TrafficChannel;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Настройки приема и хранения активности пользователей (префикс activity.* в application.properties)
+@Component
+@ConfigurationProperties(prefix = "activity")
+public class ActivityProperties {
+
+    private final Ingestion ingestion = new Ingestion();
+    private final Coalescing coalescing = new Coalescing();
+    private final Deduplication deduplication = new Deduplication();
+    private final RateLimit rateLimit = new RateLimit();
+    private final Spool spool = new Spool();
+    private final Dictionary dictionary = new Dictionary();
+    private final Partitioning partitioning = new Partitioning();
+    private final Purge purge = new Purge();
+    private final Sampling sampling = new Sampling();
+    private final Stream stream = new Stream();
+    private final Concurrency concurrency = new Concurrency();
+    private final Enrichment enrichment = new Enrichment();
+    private final GeoIp geoIp = new GeoIp();
+    private final Traffic traffic = new Traffic();
+    private final BotFilter botFilter = new BotFilter();
+    private final Backfill backfill = new Backfill();
+
+    public Ingestion getIngestion() {
+        return ingestion;
+    }
+
+    public Coalescing getCoalescing() {
+        return coalescing;
+    }
+
+    public Deduplication getDeduplication() {
+        return deduplication;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public Spool getSpool() {
+        return spool;
+    }
+
+    public Dictionary getDictionary() {
+        return dictionary;
+    }
+
+    public Partitioning getPartitioning() {
+        return partitioning;
+    }
+
+    public Purge getPurge() {
+        return purge;
+    }
+
+    public Sampling getSampling() {
+        return sampling;
+    }
+
+    public Stream getStream() {
+        return stream;
+    }
+
+    public Concurrency getConcurrency() {
+        return concurrency;
+    }
+
+    public Enrichment getEnrichment() {
+        return enrichment;
+    }
+
+    public GeoIp getGeoIp() {
+        return geoIp;
+    }
+
+    public Traffic getTraffic() {
+        return traffic;
+    }
+
+    public BotFilter getBotFilter() {
+        return botFilter;
+    }
+
+    public Backfill getBackfill() {
+        return backfill;
+    }
+
+    public static class Ingestion {
+        private IngestionMode mode = IngestionMode.SYNC; // Режим приема: синхронный или через очередь
+        private int queueCapacity = 10000; // Максимальное число пакетов в очереди
+        private int maxCommitEvents = 5000; // Максимальное число событий в одной транзакции
+        private long pollIntervalMs = 200; // Сколько ждать новых пакетов перед проверкой остановки
+        private long shutdownTimeoutMs = 30000; // Сколько ждать дозаписи очереди при остановке
+        private int copyThreshold = 1000; // С какого размера пакета писать через COPY (0 - никогда)
+        private int streamChunkSize = 500; // По сколько событий NDJSON-поток передается на запись
+        private int maxLineBytes = 16 * 1024; // Максимальная длина одной строки NDJSON
+        private long maxDecompressedBytes = 32L * 1024 * 1024; // Предел распакованного тела gzip/deflate
+
+        public IngestionMode getMode() {
+            return mode;
+        }
+
+        public void setMode(IngestionMode mode) {
+            this.mode = mode;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getMaxCommitEvents() {
+            return maxCommitEvents;
+        }
+
+        public void setMaxCommitEvents(int maxCommitEvents) {
+            this.maxCommitEvents = maxCommitEvents;
+        }
+
+        public long getPollIntervalMs() {
+            return pollIntervalMs;
+        }
+
+        public void setPollIntervalMs(long pollIntervalMs) {
+            this.pollIntervalMs = pollIntervalMs;
+        }
+
+        public long getShutdownTimeoutMs() {
+            return shutdownTimeoutMs;
+        }
+
+        public void setShutdownTimeoutMs(long shutdownTimeoutMs) {
+            this.shutdownTimeoutMs = shutdownTimeoutMs;
+        }
+
+        public int getCopyThreshold() {
+            return copyThreshold;
+        }
+
+        public void setCopyThreshold(int copyThreshold) {
+            this.copyThreshold = copyThreshold;
+        }
+
+        public int getStreamChunkSize() {
+            return streamChunkSize;
+        }
+
+        public void setStreamChunkSize(int streamChunkSize) {
+            this.streamChunkSize = streamChunkSize;
+        }
+
+        public int getMaxLineBytes() {
+            return maxLineBytes;
+        }
+
+        public void setMaxLineBytes(int maxLineBytes) {
+            this.maxLineBytes = maxLineBytes;
+        }
+
+        public long getMaxDecompressedBytes() {
+            return maxDecompressedBytes;
+        }
+
+        public void setMaxDecompressedBytes(long maxDecompressedBytes) {
+            this.maxDecompressedBytes = maxDecompressedBytes;
+        }
+    }
+
+    public static class Coalescing {
+        private boolean enabled = true; // Склеивать одинаковые события перед записью
+        private long bucketSeconds = 60; // Ширина временного окна, в пределах которого события склеиваются
+        // Типы событий, которые можно склеивать; ENTER и EXIT не склеиваются, от них зависит время на сайте
+        private Set<EventType> eventTypes = EnumSet.of(
+                EventType.VIEW,
+                EventType.BUTTER_FLY_COUNT,
+                EventType.TREE_COUNT,
+                EventType.CUB_COUNT,
+                EventType.COMMENT_COUNT,
+                EventType.CATALOG_COUNT,
+                EventType.CONTENT_COUNT);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getBucketSeconds() {
+            return bucketSeconds;
+        }
+
+        public void setBucketSeconds(long bucketSeconds) {
+            this.bucketSeconds = bucketSeconds;
+        }
+
+        public Set<EventType> getEventTypes() {
+            return eventTypes;
+        }
+
+        public void setEventTypes(Set<EventType> eventTypes) {
+            this.eventTypes = eventTypes;
+        }
+    }
+
+    public static class Deduplication {
+        private boolean enabled = true; // Пропускать повторно присланные пакеты с тем же X-Batch-Id
+        private long windowMinutes = 60; // Сколько помнить идентификаторы пакетов
+        private int exactCapacity = 100_000; // Сколько последних идентификаторов хранить точно
+        private int expectedBatches = 1_000_000; // Ожидаемое число пакетов за окно (размер фильтра Блума)
+        private double falsePositiveRate = 0.000001; // Целевая доля ложных срабатываний фильтра Блума
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getWindowMinutes() {
+            return windowMinutes;
+        }
+
+        public void setWindowMinutes(long windowMinutes) {
+            this.windowMinutes = windowMinutes;
+        }
+
+        public int getExactCapacity() {
+            return exactCapacity;
+        }
+
+        public void setExactCapacity(int exactCapacity) {
+            this.exactCapacity = exactCapacity;
+        }
+
+        public int getExpectedBatches() {
+            return expectedBatches;
+        }
+
+        public void setExpectedBatches(int expectedBatches) {
+            this.expectedBatches = expectedBatches;
+        }
+
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+
+        public void setFalsePositiveRate(double falsePositiveRate) {
+            this.falsePositiveRate = falsePositiveRate;
+        }
+    }
+
+    public static class RateLimit {
+        private boolean enabled = true;
+        private int stripes = 16; // Число независимых полос с ведрами
+        private long idleSeconds = 300; // Через сколько секунд простоя ведро удаляется
+        private List<Rule> rules = new ArrayList<>(); // Лимиты запросов по IP клиента для конкретных адресов
+        private double userIpEventsPerSecond = 50; // Лимит событий на UserActivity.userIp
+        private int userIpBurst = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+
+        public long getIdleSeconds() {
+            return idleSeconds;
+        }
+
+        public void setIdleSeconds(long idleSeconds) {
+            this.idleSeconds = idleSeconds;
+        }
+
+        public List<Rule> getRules() {
+            return rules;
+        }
+
+        public void setRules(List<Rule> rules) {
+            this.rules = rules;
+        }
+
+        public double getUserIpEventsPerSecond() {
+            return userIpEventsPerSecond;
+        }
+
+        public void setUserIpEventsPerSecond(double userIpEventsPerSecond) {
+            this.userIpEventsPerSecond = userIpEventsPerSecond;
+        }
+
+        public int getUserIpBurst() {
+            return userIpBurst;
+        }
+
+        public void setUserIpBurst(int userIpBurst) {
+            this.userIpBurst = userIpBurst;
+        }
+    }
+
+    public static class Rule {
+        private String path; // Шаблон адреса в стиле Ant, например /api/activity/**
+        private String method; // HTTP-метод; пусто - любой
+        private double requestsPerSecond = 10;
+        private int burst = 50;
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public void setMethod(String method) {
+            this.method = method;
+        }
+
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public void setRequestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+    }
+
+    public static class Spool {
+        private String directory = "spool"; // Каталог сегментов журнала
+        private int segmentBytes = 64 * 1024 * 1024; // Размер одного сегмента
+        private long maxBytes = 1024L * 1024 * 1024; // Предел места на диске, после него пакеты отклоняются
+        private boolean forceOnAppend = false; // Сбрасывать каждую запись на диск (переживает сбой ОС, но медленнее)
+        private long retryBackoffMs = 500; // Начальная пауза перед повтором при недоступной базе
+        private long maxRetryBackoffMs = 30000; // Максимальная пауза между повторами
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getSegmentBytes() {
+            return segmentBytes;
+        }
+
+        public void setSegmentBytes(int segmentBytes) {
+            this.segmentBytes = segmentBytes;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public boolean isForceOnAppend() {
+            return forceOnAppend;
+        }
+
+        public void setForceOnAppend(boolean forceOnAppend) {
+            this.forceOnAppend = forceOnAppend;
+        }
+
+        public long getRetryBackoffMs() {
+            return retryBackoffMs;
+        }
+
+        public void setRetryBackoffMs(long retryBackoffMs) {
+            this.retryBackoffMs = retryBackoffMs;
+        }
+
+        public long getMaxRetryBackoffMs() {
+            return maxRetryBackoffMs;
+        }
+
+        public void setMaxRetryBackoffMs(long maxRetryBackoffMs) {
+            this.maxRetryBackoffMs = maxRetryBackoffMs;
+        }
+    }
+
+    public static class Dictionary {
+        private boolean enabled = true; // Хранить URL страниц и источники ключами словаря activity_dimension
+        private int cacheCapacity = 100_000; // Сколько значений словаря держать в памяти
+        private boolean backfillOnStartup = true; // Переводить при запуске строки, записанные без словаря
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCacheCapacity() {
+            return cacheCapacity;
+        }
+
+        public void setCacheCapacity(int cacheCapacity) {
+            this.cacheCapacity = cacheCapacity;
+        }
+
+        public boolean isBackfillOnStartup() {
+            return backfillOnStartup;
+        }
+
+        public void setBackfillOnStartup(boolean backfillOnStartup) {
+            this.backfillOnStartup = backfillOnStartup;
+        }
+    }
+
+    public static class Partitioning {
+        private boolean enabled = true; // Секционировать user_activity по времени события
+        private PartitionInterval interval = PartitionInterval.MONTH; // Период одной секции (менять только до первого запуска)
+        private int premake = 3; // На сколько периодов вперед создавать секции
+        private String maintenanceCron = "0 15 0 * * *"; // Расписание создания секций наперед
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public PartitionInterval getInterval() {
+            return interval;
+        }
+
+        public void setInterval(PartitionInterval interval) {
+            this.interval = interval;
+        }
+
+        public int getPremake() {
+            return premake;
+        }
+
+        public void setPremake(int premake) {
+            this.premake = premake;
+        }
+
+        public String getMaintenanceCron() {
+            return maintenanceCron;
+        }
+
+        public void setMaintenanceCron(String maintenanceCron) {
+            this.maintenanceCron = maintenanceCron;
+        }
+    }
+
+    public static class Purge {
+        private int batchSize = 10_000; // Сколько строк удалять одной короткой транзакцией
+        private long batchPauseMs = 0; // Пауза между пакетами, чтобы не мешать записи и автоочистке
+        private int retentionDays = 0; // Срок хранения активностей в днях (0 - хранить бессрочно)
+        private String retentionCron = "0 30 3 * * *"; // Расписание удаления устаревших активностей
+        private int keepJobs = 100; // Сколько завершенных заданий помнить для просмотра
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getBatchPauseMs() {
+            return batchPauseMs;
+        }
+
+        public void setBatchPauseMs(long batchPauseMs) {
+            this.batchPauseMs = batchPauseMs;
+        }
+
+        public int getRetentionDays() {
+            return retentionDays;
+        }
+
+        public void setRetentionDays(int retentionDays) {
+            this.retentionDays = retentionDays;
+        }
+
+        public String getRetentionCron() {
+            return retentionCron;
+        }
+
+        public void setRetentionCron(String retentionCron) {
+            this.retentionCron = retentionCron;
+        }
+
+        public int getKeepJobs() {
+            return keepJobs;
+        }
+
+        public void setKeepJobs(int keepJobs) {
+            this.keepJobs = keepJobs;
+        }
+    }
+
+    public static class Sampling {
+        private boolean enabled = true; // Прореживать события при приеме
+        // Доля сохраняемых событий по типам (0..1], не указанные типы сохраняются полностью.
+        // ENTER, EXIT и MAIN_SHOP не прореживаются никогда, даже если указаны здесь.
+        private Map<EventType, Double> rates = new EnumMap<>(EventType.class);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Map<EventType, Double> getRates() {
+            return rates;
+        }
+
+        public void setRates(Map<EventType, Double> rates) {
+            this.rates = rates;
+        }
+    }
+
+    public static class Stream {
+        private boolean enabled = true; // Принимать активности через WebSocket /api/activity/stream
+        private int batchEvents = 500; // Сколько событий соединения копить перед записью
+        private long flushIntervalMs = 250; // Максимальная задержка записи и подтверждения неполного пакета
+        private int maxFrameBytes = 64 * 1024; // Максимальный размер одного кадра
+        private String[] allowedOrigins = {"*"}; // Разрешенные источники (Origin) для подключения
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getBatchEvents() {
+            return batchEvents;
+        }
+
+        public void setBatchEvents(int batchEvents) {
+            this.batchEvents = batchEvents;
+        }
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        public int getMaxFrameBytes() {
+            return maxFrameBytes;
+        }
+
+        public void setMaxFrameBytes(int maxFrameBytes) {
+            this.maxFrameBytes = maxFrameBytes;
+        }
+
+        public String[] getAllowedOrigins() {
+            return allowedOrigins;
+        }
+
+        public void setAllowedOrigins(String[] allowedOrigins) {
+            this.allowedOrigins = allowedOrigins;
+        }
+    }
+
+    public static class Concurrency {
+        private boolean enabled = true; // Ограничивать число одновременных запросов приема
+        private int initialLimit = 20; // Начальный предел одновременных запросов
+        private int minLimit = 2; // Предел не опускается ниже
+        private int maxLimit = 200; // Предел не поднимается выше
+        private long windowMs = 1000; // Длительность окна измерения задержки
+        private int minWindowSamples = 10; // Минимум запросов в окне для пересчета предела
+        private double rttTolerance = 1.5; // Во сколько раз задержка может превысить базовую, прежде чем предел начнет снижаться
+        private double smoothing = 0.2; // Доля нового значения при пересчете предела (0..1]
+        private int retryAfterSeconds = 1; // Значение Retry-After в ответе 503
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public long getWindowMs() {
+            return windowMs;
+        }
+
+        public void setWindowMs(long windowMs) {
+            this.windowMs = windowMs;
+        }
+
+        public int getMinWindowSamples() {
+            return minWindowSamples;
+        }
+
+        public void setMinWindowSamples(int minWindowSamples) {
+            this.minWindowSamples = minWindowSamples;
+        }
+
+        public double getRttTolerance() {
+            return rttTolerance;
+        }
+
+        public void setRttTolerance(double rttTolerance) {
+            this.rttTolerance = rttTolerance;
+        }
+
+        public double getSmoothing() {
+            return smoothing;
+        }
+
+        public void setSmoothing(double smoothing) {
+            this.smoothing = smoothing;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public void setRetryAfterSeconds(int retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+
+    public static class Enrichment {
+        private boolean enabled = true; // Обогащать события перед записью
+        private int chunkSize = 500; // Сколько событий пакета обрабатывает одна задача этапа
+        private int threads = 2; // Потоков на этап, если для этапа не задано иное
+        private Map<String, EnrichmentStage> stages = new HashMap<>(); // Настройки этапов по имени
+        // Параметры запроса, удаляемые из URL страницы и источника; "*" в конце - любой параметр с таким началом
+        private List<String> trackingParameters = new ArrayList<>(List.of("utm_*", "gclid", "yclid", "fbclid", "_openstat"));
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public Map<String, EnrichmentStage> getStages() {
+            return stages;
+        }
+
+        public void setStages(Map<String, EnrichmentStage> stages) {
+            this.stages = stages;
+        }
+
+        public List<String> getTrackingParameters() {
+            return trackingParameters;
+        }
+
+        public void setTrackingParameters(List<String> trackingParameters) {
+            this.trackingParameters = trackingParameters;
+        }
+    }
+
+    public static class EnrichmentStage {
+        private boolean enabled = true;
+        private int threads; // 0 - activity.enrichment.threads
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+    }
+
+    public static class GeoIp {
+        private boolean enabled = true; // Определять страну посетителя по IP при приеме
+        private String file = ""; // CSV с диапазонами адресов и кодами стран; пусто - страна не определяется
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+    }
+
+    public static class Traffic {
+        private boolean enabled = true; // Определять хост и канал источника при приеме
+        // Правила каналов: части хоста источника (без "www."). Образец совпадает с целыми метками хоста:
+        // "vk.com" - vk.com и m.vk.com, но не xvk.com; "google." - google.ru, google.com.tr и т.п.
+        private Map<TrafficChannel, List<String>> hosts = defaultHosts();
+        // Хосты самого сайта (вместе с поддоменами); переход с хоста текущей страницы считается внутренним всегда
+        private List<String> internalHosts = new ArrayList<>(List.of("localhost"));
+        // Параметры URL страницы, по которым заход относится к рекламной кампании; "*" в конце - любой с таким началом
+        private List<String> campaignParameters = new ArrayList<>(List.of("utm_*", "gclid", "yclid", "fbclid", "_openstat"));
+
+        private static Map<TrafficChannel, List<String>> defaultHosts() {
+            Map<TrafficChannel, List<String>> hosts = new EnumMap<>(TrafficChannel.class);
+            hosts.put(TrafficChannel.SEARCH, new ArrayList<>(List.of("google.", "yandex.", "ya.ru", "bing.com",
+                    "duckduckgo.com", "search.yahoo.com", "go.mail.ru", "baidu.com", "ecosia.org")));
+            hosts.put(TrafficChannel.SOCIAL, new ArrayList<>(List.of("vk.com", "ok.ru", "t.me", "facebook.com", "fb.com",
+                    "instagram.com", "twitter.com", "x.com", "youtube.com", "dzen.ru", "pinterest.", "reddit.com",
+                    "linkedin.com", "tiktok.com")));
+            return hosts;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Map<TrafficChannel, List<String>> getHosts() {
+            return hosts;
+        }
+
+        public void setHosts(Map<TrafficChannel, List<String>> hosts) {
+            this.hosts = hosts;
+        }
+
+        public List<String> getInternalHosts() {
+            return internalHosts;
+        }
+
+        public void setInternalHosts(List<String> internalHosts) {
+            this.internalHosts = internalHosts;
+        }
+
+        public List<String> getCampaignParameters() {
+            return campaignParameters;
+        }
+
+        public void setCampaignParameters(List<String> campaignParameters) {
+            this.campaignParameters = campaignParameters;
+        }
+    }
+
+    public static class BotFilter {
+        private boolean enabled = true; // Проверять события на ботов до записи
+        private BotFilterAction action = BotFilterAction.DROP; // Отбрасывать события ботов или сохранять с отметкой
+        // Части User-Agent без учета регистра. "bot/", "bot;" и т.п. вместо "bot", чтобы не задеть, например, телефоны Cubot.
+        // Библиотек HTTP (okhttp, java/, curl/ и т.п.) в списке нет: ими пользуются мобильные приложения и серверные
+        // ретрансляторы, а User-Agent проверяется на весь пакет, и их события терялись бы целиком
+        private List<String> userAgentPatterns = new ArrayList<>(List.of("bot/", "bot;", "bot)", "bot (", "bot-",
+                "crawler", "spider", "slurp", "+http", "headlesschrome", "phantomjs", "puppeteer", "playwright",
+                "lighthouse", "pingdom", "uptimerobot", "statuscake", "site24x7", "facebookexternalhit"));
+        private List<String> ipRanges = new ArrayList<>(); // Диапазоны адресов ботов и мониторинга, например 66.249.64.0/19
+        private double maxEventsPerSecond = 10; // Средняя частота событий с одного userIp, недостижимая для человека
+        private int eventBurst = 500; // Сколько событий сверх частоты допускается разом (буфер трекера)
+        private long flagSeconds = 900; // Сколько считать ботом адрес, превысивший частоту
+        private boolean exitWithoutEnter = true; // Отсеивать EXIT сессии, для которой не было ENTER
+        private long sessionTtlSeconds = 14400; // Сколько помнить ENTER сессии
+        private int stripes = 16; // Число полос таблиц адресов и сессий
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public BotFilterAction getAction() {
+            return action;
+        }
+
+        public void setAction(BotFilterAction action) {
+            this.action = action;
+        }
+
+        public List<String> getUserAgentPatterns() {
+            return userAgentPatterns;
+        }
+
+        public void setUserAgentPatterns(List<String> userAgentPatterns) {
+            this.userAgentPatterns = userAgentPatterns;
+        }
+
+        public List<String> getIpRanges() {
+            return ipRanges;
+        }
+
+        public void setIpRanges(List<String> ipRanges) {
+            this.ipRanges = ipRanges;
+        }
+
+        public double getMaxEventsPerSecond() {
+            return maxEventsPerSecond;
+        }
+
+        public void setMaxEventsPerSecond(double maxEventsPerSecond) {
+            this.maxEventsPerSecond = maxEventsPerSecond;
+        }
+
+        public int getEventBurst() {
+            return eventBurst;
+        }
+
+        public void setEventBurst(int eventBurst) {
+            this.eventBurst = eventBurst;
+        }
+
+        public long getFlagSeconds() {
+            return flagSeconds;
+        }
+
+        public void setFlagSeconds(long flagSeconds) {
+            this.flagSeconds = flagSeconds;
+        }
+
+        public boolean isExitWithoutEnter() {
+            return exitWithoutEnter;
+        }
+
+        public void setExitWithoutEnter(boolean exitWithoutEnter) {
+            this.exitWithoutEnter = exitWithoutEnter;
+        }
+
+        public long getSessionTtlSeconds() {
+            return sessionTtlSeconds;
+        }
+
+        public void setSessionTtlSeconds(long sessionTtlSeconds) {
+            this.sessionTtlSeconds = sessionTtlSeconds;
+        }
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+    }
+
+    public static class Backfill {
+        private String directory = "logs/nginx"; // Каталог журналов: загружаются только файлы внутри него
+        private int chunkBytes = 16 * 1024 * 1024; // Размер части файла, отображаемой в память и разбираемой одним потоком
+        private int threads = 0; // Потоков разбора (0 - по числу процессоров)
+        private String siteUrl = ""; // Адрес сайта перед путем запроса, например https://actpromo.ru (пусто - относительный путь)
+        private boolean trustForwardedFor = false; // Брать адрес посетителя из последнего поля формата main ($http_x_forwarded_for)
+        private List<String> skipPaths = new ArrayList<>(List.of("/api/", "/static/")); // Начала путей, которые не являются просмотром страницы
+        private List<String> assetExtensions = new ArrayList<>(List.of("js", "css", "map", "png", "jpg", "jpeg", "gif", "svg", "ico", "webp",
+                "avif", "woff", "woff2", "ttf", "eot", "json", "txt", "xml", "webmanifest")); // Расширения файлов статики без учета регистра
+        private long progressLogSeconds = 10; // Как часто писать ход загрузки в журнал приложения
+        private int keepJobs = 20; // Сколько завершенных заданий помнить для просмотра
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getChunkBytes() {
+            return chunkBytes;
+        }
+
+        public void setChunkBytes(int chunkBytes) {
+            this.chunkBytes = chunkBytes;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public String getSiteUrl() {
+            return siteUrl;
+        }
+
+        public void setSiteUrl(String siteUrl) {
+            this.siteUrl = siteUrl;
+        }
+
+        public boolean isTrustForwardedFor() {
+            return trustForwardedFor;
+        }
+
+        public void setTrustForwardedFor(boolean trustForwardedFor) {
+            this.trustForwardedFor = trustForwardedFor;
+        }
+
+        public List<String> getSkipPaths() {
+            return skipPaths;
+        }
+
+        public void setSkipPaths(List<String> skipPaths) {
+            this.skipPaths = skipPaths;
+        }
+
+        public List<String> getAssetExtensions() {
+            return assetExtensions;
+        }
+
+        public void setAssetExtensions(List<String> assetExtensions) {
+            this.assetExtensions = assetExtensions;
+        }
+
+        public long getProgressLogSeconds() {
+            return progressLogSeconds;
+        }
+
+        public void setProgressLogSeconds(long progressLogSeconds) {
+            this.progressLogSeconds = progressLogSeconds;
+        }
+
+        public int getKeepJobs() {
+            return keepJobs;
+        }
+
+        public void setKeepJobs(int keepJobs) {
+            this.keepJobs = keepJobs;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package backend.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+// Выбор пула соединений по признаку потока: внутри методов с @AnalyticsDataSource - пул аналитики,
+// иначе основной. Признак читается в момент получения физического соединения, поэтому источник
+// оборачивается в LazyConnectionDataSourceProxy (DataSourceConfig): транзакция, начатая до вызова
+// метода аналитики, соединение еще не держит.
+public class ActivityRoutingDataSource extends AbstractRoutingDataSource {
+    public static final String INGESTION = "ingestion";
+    public static final String ANALYTICS = "analytics";
+
+    private static final ThreadLocal<Boolean> analytics = new ThreadLocal<>();
+
+    // Включает пул аналитики для текущего потока; возвращает прежнее значение для restore
+    public static Boolean useAnalytics() {
+        Boolean previous = analytics.get();
+        analytics.set(Boolean.TRUE);
+        return previous;
+    }
+
+    public static void restore(Boolean previous) {
+        if (previous == null) {
+            analytics.remove();
+        } else {
+            analytics.set(previous);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return Boolean.TRUE.equals(analytics.get()) ? ANALYTICS : INGESTION;
+    }
+}
@@ -0,0 +1,157 @@
+package backend.config;
+
+import backend.model.DimensionKind;
+import backend.model.UserActivity;
+import backend.repository.ActivityDictionary;
+import backend.utils.IpAddresses;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Доводит схему user_activity до состояния, которое не умеет создавать ddl-auto=update.
+// Зависит от EntityManagerFactory, чтобы выполняться после обновления схемы Hibernate и до старта веб-сервера.
+@Component
+public class ActivitySchemaInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(ActivitySchemaInitializer.class);
+
+    private static final long BACKFILL_STEP = 100_000; // Сколько идентификаторов обновлять одной командой
+    // Строки, где адрес хранится строкой и похож на канонический IPv4 или IPv6: только такие IpAddresses.parse
+    // может перевести в user_ip_bin. Прочие значения ("unknown", адреса с ведущими нулями) остаются строкой навсегда,
+    // и проверять их при каждом запуске незачем
+    private static final String USER_IP_PENDING = "user_ip IS NOT NULL AND user_ip_bin IS NULL AND (" +
+            "user_ip ~ '^(0|[1-9][0-9]{0,2})(\\.(0|[1-9][0-9]{0,2})){3}$' OR user_ip ~ '^[0-9a-f]{0,4}(:[0-9a-f]{0,4}){2,7}$')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ActivityDictionary activityDictionary;
+    private final ActivityPartitionManager activityPartitionManager;
+    private final ActivityProperties.Dictionary dictionarySettings;
+
+    public ActivitySchemaInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                                     ActivityDictionary activityDictionary, ActivityPartitionManager activityPartitionManager,
+                                     ActivityProperties activityProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.activityDictionary = activityDictionary;
+        this.activityPartitionManager = activityPartitionManager;
+        this.dictionarySettings = activityProperties.getDictionary();
+    }
+
+    @PostConstruct
+    public void initialize() {
+        syncIdSequence();
+        activityPartitionManager.migrate();
+        activityPartitionManager.ensurePartitions();
+        migrateUserIp();
+        migrateEventDetails();
+        dropDimensionKindCheck();
+        if (dictionarySettings.isEnabled() && dictionarySettings.isBackfillOnStartup()) {
+            backfillDictionary(DimensionKind.PAGE_URL, "page_url");
+            backfillDictionary(DimensionKind.REFERER, "referer");
+            backfillDictionary(DimensionKind.REFERER_HOST, "referer_host");
+        }
+        activityDictionary.preload();
+    }
+
+    // Раньше id выдавался IDENTITY-столбцом: сдвигаем последовательность за уже выданные значения,
+    // чтобы пулы Hibernate не пересеклись со старыми строками
+    private void syncIdSequence() {
+        Long value = jdbcTemplate.queryForObject(
+                "SELECT setval('" + UserActivity.ID_SEQUENCE + "', GREATEST(" +
+                        "(SELECT COALESCE(MAX(id), 0) FROM user_activity), " +
+                        "(SELECT last_value FROM " + UserActivity.ID_SEQUENCE + ")))",
+                Long.class);
+        logger.info("Последовательность {} синхронизирована, текущее значение {}", UserActivity.ID_SEQUENCE, value);
+    }
+
+    // eventDetails хранится в jsonb: прежний текстовый столбец переводится один раз (с перезаписью таблицы),
+    // объекты и массивы JSON сохраняются как есть, прочий текст - строкой JSON, как это делает EventDetailsJson.
+    // GIN-индекс (jsonb_ops) обслуживает поиск по наличию ключа (?) и по вхождению (@>); новые секции
+    // получают его при подключении.
+    private void migrateEventDetails() {
+        String type = jdbcTemplate.queryForObject("SELECT data_type FROM information_schema.columns " +
+                "WHERE table_schema = current_schema() AND table_name = 'user_activity' AND column_name = 'event_details'",
+                String.class);
+        if (!"jsonb".equals(type)) {
+            long started = System.currentTimeMillis();
+            jdbcTemplate.execute("CREATE OR REPLACE FUNCTION activity_details_to_jsonb(value text) RETURNS jsonb " +
+                    "LANGUAGE plpgsql IMMUTABLE AS $$ BEGIN " +
+                    "IF left(ltrim(value), 1) IN ('{', '[') THEN RETURN value::jsonb; END IF; " +
+                    "RETURN to_jsonb(value); " +
+                    "EXCEPTION WHEN others THEN RETURN to_jsonb(value); END $$");
+            jdbcTemplate.execute("ALTER TABLE user_activity ALTER COLUMN event_details TYPE jsonb " +
+                    "USING activity_details_to_jsonb(event_details)");
+            jdbcTemplate.execute("DROP FUNCTION activity_details_to_jsonb(text)");
+            logger.info("Столбец event_details переведен в jsonb за {} мс", System.currentTimeMillis() - started);
+        }
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS user_activity_event_details_idx ON user_activity USING GIN (event_details)");
+    }
+
+    // Hibernate создает проверку диапазона порядковых номеров DimensionKind только вместе с таблицей и не
+    // обновляет ее, поэтому новые виды значений отвергались бы в уже существующих базах
+    private void dropDimensionKindCheck() {
+        jdbcTemplate.execute("ALTER TABLE activity_dimension DROP CONSTRAINT IF EXISTS activity_dimension_kind_check");
+    }
+
+    // Переводит строки, записанные без словаря, на ключи. Обновление идет диапазонами id,
+    // каждая команда в своей транзакции, чтобы не держать блокировки на всю таблицу.
+    // Частичный индекс содержит только непереведенные строки: после перевода он пуст, и проверка
+    // при следующих запусках не сканирует таблицу.
+    private void backfillDictionary(DimensionKind kind, String column) {
+        String pending = column + " IS NOT NULL AND " + column + " <> ''";
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS user_activity_" + column + "_text_idx ON user_activity (id) WHERE " + pending);
+        Long from = jdbcTemplate.queryForObject("SELECT MIN(id) FROM user_activity WHERE " + pending, Long.class);
+        if (from == null) {
+            return;
+        }
+        Long to = jdbcTemplate.queryForObject("SELECT MAX(id) FROM user_activity WHERE " + pending, Long.class);
+        jdbcTemplate.update("INSERT INTO activity_dimension (kind, value) SELECT DISTINCT ?, " + column +
+                " FROM user_activity WHERE " + pending + " ON CONFLICT (kind, value) DO NOTHING", kind.ordinal());
+        long updated = 0;
+        for (long start = from; start <= to; start += BACKFILL_STEP) {
+            updated += jdbcTemplate.update("UPDATE user_activity u SET " + column + "_id = d.id, " + column + " = NULL " +
+                    "FROM activity_dimension d WHERE d.kind = ? AND d.value = u." + column +
+                    " AND u.id >= ? AND u.id < ?", kind.ordinal(), start, start + BACKFILL_STEP);
+        }
+        logger.info("Столбец {}: {} строк переведено на ключи словаря", column, updated);
+    }
+
+    // IP-адреса хранятся в user_ip_bin, строкой остаются только неразобранные значения.
+    // Частичный индекс содержит лишь строки, которые еще можно перевести, поэтому поиск при запуске не сканирует
+    // таблицу и не перечитывает значения, которые адресами не являются.
+    private void migrateUserIp() {
+        jdbcTemplate.execute("ALTER TABLE user_activity ALTER COLUMN user_ip DROP NOT NULL");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS user_activity_user_ip_text_idx"); // Включал и неразбираемые значения
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS user_activity_user_ip_pending_idx ON user_activity (id) " +
+                "WHERE " + USER_IP_PENDING);
+
+        long converted = 0;
+        long lastId = 0;
+        while (true) {
+            List<Object[]> updates = new ArrayList<>();
+            List<Long> ids = new ArrayList<>();
+            jdbcTemplate.query("SELECT id, user_ip FROM user_activity WHERE " + USER_IP_PENDING + " AND id > ? " +
+                    "ORDER BY id LIMIT 10000", resultSet -> {
+                long id = resultSet.getLong(1);
+                ids.add(id);
+                byte[] address = IpAddresses.parse(resultSet.getString(2));
+                if (address != null) {
+                    updates.add(new Object[]{address, id});
+                }
+            }, lastId);
+            if (ids.isEmpty()) {
+                break;
+            }
+            lastId = ids.get(ids.size() - 1);
+            jdbcTemplate.batchUpdate("UPDATE user_activity SET user_ip_bin = ?, user_ip = NULL WHERE id = ?", updates);
+            converted += updates.size();
+        }
+        if (converted > 0) {
+            logger.info("IP-адреса {} строк переведены в двоичный вид", converted);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package backend.config;
+
+import backend.controller.ActivityStreamHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+// Потоковый прием активностей через WebSocket: одно соединение вместо POST на каждую отправку
+@Configuration
+@EnableWebSocket
+@ConditionalOnProperty(prefix = "activity.stream", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ActivityWebSocketConfig implements WebSocketConfigurer {
+    public static final String STREAM_PATH = "/api/activity/stream";
+
+    private final ActivityStreamHandler activityStreamHandler;
+    private final ActivityProperties.Stream settings;
+
+    public ActivityWebSocketConfig(ActivityStreamHandler activityStreamHandler, ActivityProperties activityProperties) {
+        this.activityStreamHandler = activityStreamHandler;
+        this.settings = activityProperties.getStream();
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(activityStreamHandler, STREAM_PATH)
+                .setAllowedOriginPatterns(settings.getAllowedOrigins());
+    }
+
+    // Кадры больше предела контейнер отклоняет, закрывая соединение с кодом 1009.
+    // Предел задается параметром контекста Tomcat, а не ServerContainer: так конфигурация не требует
+    // запущенного контейнера и не мешает тестам с MockMvc
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> webSocketFrameLimit() {
+        String limit = String.valueOf(settings.getMaxFrameBytes());
+        return factory -> factory.addContextCustomizers(context ->
+                context.addParameter("org.apache.tomcat.websocket.textBufferSize", limit));
+    }
+}
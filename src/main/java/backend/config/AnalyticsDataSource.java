@@ -0,0 +1,12 @@
+package backend.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Запросы к базе из методов класса (или метода) идут через пул аналитики, а не через основной пул
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AnalyticsDataSource {
+}
@@ -0,0 +1,26 @@
+package backend.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+// Переключает текущий поток на пул аналитики на время вызова методов с @AnalyticsDataSource.
+// Выполняется раньше транзакционного прокси, чтобы признак был выставлен до первого запроса транзакции.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class AnalyticsDataSourceAspect {
+
+    @Around("@within(backend.config.AnalyticsDataSource) || @annotation(backend.config.AnalyticsDataSource)")
+    public Object useAnalyticsPool(ProceedingJoinPoint joinPoint) throws Throwable {
+        Boolean previous = ActivityRoutingDataSource.useAnalytics();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ActivityRoutingDataSource.restore(previous);
+        }
+    }
+}
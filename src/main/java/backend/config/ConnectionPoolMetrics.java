@@ -0,0 +1,86 @@
+package backend.config;
+
+import backend.dto.ingestion.ConnectionPoolStats;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Метрики пулов соединений Hikari: ожидание и удержание соединений, таймауты и текущая загрузка.
+// Пул сам вызывает трекер при каждой выдаче и возврате соединения; счетчики - атомарные переменные.
+@Component
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+    private final Map<String, Tracker> trackers = new ConcurrentSkipListMap<>();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        Tracker tracker = new Tracker(poolName, poolStats);
+        trackers.put(poolName, tracker);
+        return tracker;
+    }
+
+    // Пулы, уже открывшие соединения (Hikari создает пул при первом запросе соединения)
+    public List<ConnectionPoolStats> getStats() {
+        return trackers.values().stream().map(Tracker::toStats).toList();
+    }
+
+    private static class Tracker implements IMetricsTracker {
+        private final String poolName;
+        private final PoolStats poolStats;
+        private final AtomicLong acquisitions = new AtomicLong();
+        private final AtomicLong acquireNanos = new AtomicLong();
+        private final AtomicLong maxAcquireNanos = new AtomicLong();
+        private final AtomicLong usages = new AtomicLong();
+        private final AtomicLong usageMillis = new AtomicLong();
+        private final AtomicLong maxUsageMillis = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+
+        Tracker(String poolName, PoolStats poolStats) {
+            this.poolName = poolName;
+            this.poolStats = poolStats;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquisitions.incrementAndGet();
+            acquireNanos.addAndGet(elapsedAcquiredNanos);
+            maxAcquireNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usages.incrementAndGet();
+            usageMillis.addAndGet(elapsedBorrowedMillis);
+            maxUsageMillis.accumulateAndGet(elapsedBorrowedMillis, Math::max);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.incrementAndGet();
+        }
+
+        ConnectionPoolStats toStats() {
+            ConnectionPoolStats stats = new ConnectionPoolStats();
+            long acquired = acquisitions.get();
+            long used = usages.get();
+            stats.setName(poolName);
+            // Hikari обновляет эти значения не чаще раза в секунду
+            stats.setMaxConnections(poolStats.getMaxConnections());
+            stats.setActiveConnections(poolStats.getActiveConnections());
+            stats.setIdleConnections(poolStats.getIdleConnections());
+            stats.setPendingThreads(poolStats.getPendingThreads());
+            stats.setAcquisitions(acquired);
+            stats.setAvgAcquireMillis(acquired > 0 ? acquireNanos.get() / 1_000_000.0 / acquired : 0);
+            stats.setMaxAcquireMillis(maxAcquireNanos.get() / 1_000_000.0);
+            stats.setAvgUsageMillis(used > 0 ? (double) usageMillis.get() / used : 0);
+            stats.setMaxUsageMillis(maxUsageMillis.get());
+            stats.setTimeouts(timeouts.get());
+            return stats;
+        }
+    }
+}
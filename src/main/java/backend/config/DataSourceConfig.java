@@ -0,0 +1,54 @@
+package backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Два пула соединений, чтобы тяжелые аналитические запросы не отнимали соединения у записи активностей.
+// Только классы и методы с @AnalyticsDataSource (отчеты аналитики) получают соединение из пула аналитики,
+// все остальное, включая обычные чтения (списки книг, поиск по id), - из основного пула. Соединение берется
+// при первом запросе к базе. Пул аналитики можно направить на реплику через activity.analytics-pool.jdbc-url.
+@Configuration
+public class DataSourceConfig {
+
+    // Основной пул: запись активностей и все запросы вне аналитики (настройки spring.datasource.hikari.*)
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource ingestionDataSource(DataSourceProperties properties, ConnectionPoolMetrics metrics) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("activity-ingestion");
+        dataSource.setMetricsTrackerFactory(metrics);
+        return dataSource;
+    }
+
+    // Пул аналитики со своим размером и таймаутом (настройки activity.analytics-pool.*)
+    @Bean
+    @ConfigurationProperties("activity.analytics-pool")
+    public HikariDataSource analyticsDataSource(DataSourceProperties properties, ConnectionPoolMetrics metrics) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("activity-analytics");
+        dataSource.setReadOnly(true); // Случайная запись через этот пул завершится ошибкой, а не пройдет мимо основного
+        dataSource.setMetricsTrackerFactory(metrics);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("ingestionDataSource") HikariDataSource ingestionDataSource,
+                                 @Qualifier("analyticsDataSource") HikariDataSource analyticsDataSource) {
+        ActivityRoutingDataSource routing = new ActivityRoutingDataSource();
+        routing.setTargetDataSources(Map.of(ActivityRoutingDataSource.INGESTION, ingestionDataSource,
+                ActivityRoutingDataSource.ANALYTICS, analyticsDataSource));
+        routing.setDefaultTargetDataSource(ingestionDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,49 @@
+package backend.config;
+
+import backend.service.ActivityConcurrencyLimiter;
+import backend.service.ActivityRateLimiter;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+// Сервлет-фильтры приема активностей. Регистрируются только на /api/activity/*
+// и выполняются до разбора тела запроса.
+@Configuration
+public class IngestionFilterConfig {
+    private static final String ACTIVITY_URL_PATTERN = "/api/activity/*";
+    // Точный путь приема событий (JSON, NDJSON и бинарный формат): административные POST ниже /api/activity/
+    // (загрузка журналов и т.п.) не должны ни сбрасываться при перегрузке, ни портить замеры задержки приема
+    private static final String INGESTION_URL_PATTERN = "/api/activity";
+
+    public static final int RATE_LIMIT_ORDER = Ordered.HIGHEST_PRECEDENCE + 10;
+    public static final int LOAD_SHEDDING_ORDER = Ordered.HIGHEST_PRECEDENCE + 20;
+    public static final int DECOMPRESSION_ORDER = Ordered.HIGHEST_PRECEDENCE + 30;
+
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(ActivityRateLimiter activityRateLimiter) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(new RateLimitFilter(activityRateLimiter));
+        registration.addUrlPatterns(ACTIVITY_URL_PATTERN);
+        registration.setOrder(RATE_LIMIT_ORDER);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<LoadSheddingFilter> loadSheddingFilter(ActivityConcurrencyLimiter activityConcurrencyLimiter,
+                                                                         ActivityProperties activityProperties) {
+        FilterRegistrationBean<LoadSheddingFilter> registration = new FilterRegistrationBean<>(new LoadSheddingFilter(
+                activityConcurrencyLimiter, activityProperties.getConcurrency().getRetryAfterSeconds()));
+        registration.addUrlPatterns(INGESTION_URL_PATTERN);
+        registration.setOrder(LOAD_SHEDDING_ORDER);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestDecompressionFilter> requestDecompressionFilter(ActivityProperties activityProperties) {
+        FilterRegistrationBean<RequestDecompressionFilter> registration = new FilterRegistrationBean<>(
+                new RequestDecompressionFilter(activityProperties.getIngestion().getMaxDecompressedBytes()));
+        registration.addUrlPatterns(ACTIVITY_URL_PATTERN);
+        registration.setOrder(DECOMPRESSION_ORDER);
+        return registration;
+    }
+}
@@ -0,0 +1,50 @@
+package backend.config;
+
+import backend.service.ActivityConcurrencyLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Отклоняет запросы записи активностей сверх адаптивного предела одновременных запросов.
+// Регистрируется только на путь приема (IngestionFilterConfig); чтение статистики и администрирование
+// не ограничиваются: они должны отвечать и при перегрузке.
+public class LoadSheddingFilter extends OncePerRequestFilter {
+    private final ActivityConcurrencyLimiter activityConcurrencyLimiter;
+    private final int retryAfterSeconds;
+
+    public LoadSheddingFilter(ActivityConcurrencyLimiter activityConcurrencyLimiter, int retryAfterSeconds) {
+        this.activityConcurrencyLimiter = activityConcurrencyLimiter;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        if (!activityConcurrencyLimiter.isEnabled() || !HttpMethod.POST.matches(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!activityConcurrencyLimiter.tryAcquire()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            RequestDecompressionFilter.writeError(response, HttpStatus.SERVICE_UNAVAILABLE,
+                    "Сервер перегружен", "Повторите через " + retryAfterSeconds + " с");
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+        } finally {
+            activityConcurrencyLimiter.release(start, failed);
+        }
+    }
+}
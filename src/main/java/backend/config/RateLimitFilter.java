@@ -0,0 +1,38 @@
+package backend.config;
+
+import backend.service.ActivityRateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Отсекает слишком частые запросы с одного IP до чтения и разбора тела
+public class RateLimitFilter extends OncePerRequestFilter {
+    private final ActivityRateLimiter activityRateLimiter;
+
+    public RateLimitFilter(ActivityRateLimiter activityRateLimiter) {
+        this.activityRateLimiter = activityRateLimiter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        // За прокси настоящий адрес клиента подставляет server.forward-headers-strategy
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        long waitNanos = activityRateLimiter.checkRequest(request.getMethod(), path, request.getRemoteAddr());
+        if (waitNanos > 0) {
+            long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            RequestDecompressionFilter.writeError(response, HttpStatus.TOO_MANY_REQUESTS,
+                    "Слишком много запросов", "Повторите через " + retryAfterSeconds + " с");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,256 @@
+package backend.config;
+
+import backend.utils.PayloadTooLargeException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// Потоковая распаковка тел запросов с Content-Encoding: gzip или deflate.
+// Размер распакованных данных ограничен, чтобы маленький архив не развернулся в гигабайты.
+public class RequestDecompressionFilter extends OncePerRequestFilter {
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final ObjectMapper ERROR_WRITER = new ObjectMapper();
+
+    private final long maxDecompressedBytes;
+
+    public RequestDecompressionFilter(long maxDecompressedBytes) {
+        this.maxDecompressedBytes = maxDecompressedBytes;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if (encoding == null || encoding.isBlank() || "identity".equalsIgnoreCase(encoding.trim())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        InputStream decoded;
+        try {
+            switch (encoding.trim().toLowerCase()) {
+                case "gzip", "x-gzip" -> decoded = new GZIPInputStream(request.getInputStream(), BUFFER_SIZE);
+                case "deflate" -> decoded = inflate(request.getInputStream());
+                default -> {
+                    writeError(response, HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Неподдерживаемое сжатие", encoding);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // Поврежденный заголовок gzip
+            writeError(response, HttpStatus.BAD_REQUEST, "Некорректное сжатое тело запроса", e.getMessage());
+            return;
+        }
+        chain.doFilter(new DecompressedRequest(request, new LimitedInputStream(decoded, maxDecompressedBytes)), response);
+    }
+
+    // Ответ в том же формате, что и ошибки контроллеров: {"message": ..., "details": ...}
+    static void writeError(HttpServletResponse response, HttpStatus status, String message, String details) throws IOException {
+        Map<String, String> body = new HashMap<>();
+        body.put("message", message);
+        if (details != null) {
+            body.put("details", details);
+        }
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        ERROR_WRITER.writeValue(response.getOutputStream(), body);
+    }
+
+    // По HTTP deflate - это поток zlib, но часть клиентов шлет "сырой" deflate: различаем по заголовку zlib
+    private InputStream inflate(InputStream body) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(body, 2);
+        int b0 = in.read();
+        int b1 = b0 < 0 ? -1 : in.read();
+        if (b1 >= 0) {
+            in.unread(b1);
+        }
+        if (b0 >= 0) {
+            in.unread(b0);
+        }
+        boolean zlib = b1 >= 0 && (b0 & 0x0F) == 8 && ((b0 << 8) | b1) % 31 == 0;
+        return new InflaterInputStream(in, new Inflater(!zlib), BUFFER_SIZE);
+    }
+
+    private static class LimitedInputStream extends InputStream {
+        private final InputStream in;
+        private final long limit;
+        private long count;
+
+        LimitedInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                advance(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = in.read(buffer, offset, length);
+            if (read > 0) {
+                advance(read);
+            }
+            return read;
+        }
+
+        private void advance(int read) throws PayloadTooLargeException {
+            count += read;
+            if (count > limit) {
+                throw new PayloadTooLargeException(limit);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // Запрос с распакованным телом: заголовки сжатия и длины больше не соответствуют телу и скрываются
+    private static class DecompressedRequest extends HttpServletRequestWrapper {
+        private static final List<String> HIDDEN_HEADERS = List.of(
+                HttpHeaders.CONTENT_ENCODING.toLowerCase(), HttpHeaders.CONTENT_LENGTH.toLowerCase());
+
+        private final ServletInputStream body;
+        private BufferedReader reader;
+
+        DecompressedRequest(HttpServletRequest request, InputStream decoded) {
+            super(request);
+            this.body = new ServletInputStream() {
+                private volatile boolean finished;
+                private ReadListener listener;
+
+                @Override
+                public int read() throws IOException {
+                    int b = decoded.read();
+                    finished = b < 0;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = decoded.read(buffer, offset, length);
+                    finished = read < 0;
+                    return read;
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return finished;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // Контракт Servlet: слушатель задается один раз и только в асинхронном запросе. Распаковка читает
+                // исходное тело блокирующе, поэтому данные всегда "готовы", и слушатель вызывается в потоке
+                // асинхронного контекста: onDataAvailable читает до конца тела, затем onAllDataRead
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    Objects.requireNonNull(readListener, "readListener");
+                    if (!request.isAsyncStarted()) {
+                        throw new IllegalStateException("Асинхронная обработка запроса не начата");
+                    }
+                    if (listener != null) {
+                        throw new IllegalStateException("ReadListener уже задан");
+                    }
+                    listener = readListener;
+                    request.getAsyncContext().start(() -> {
+                        try {
+                            if (!finished) {
+                                readListener.onDataAvailable();
+                            }
+                            if (finished) {
+                                readListener.onAllDataRead();
+                            }
+                        } catch (Throwable e) {
+                            readListener.onError(e);
+                        }
+                    });
+                }
+            };
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return body;
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            if (reader == null) {
+                String encoding = getCharacterEncoding();
+                Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+                reader = new BufferedReader(new InputStreamReader(body, charset));
+            }
+            return reader;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isHidden(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isHidden(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = Collections.list(super.getHeaderNames());
+            names.removeIf(this::isHidden);
+            return Collections.enumeration(names);
+        }
+
+        private boolean isHidden(String name) {
+            return name != null && HIDDEN_HEADERS.contains(name.toLowerCase());
+        }
+    }
+}
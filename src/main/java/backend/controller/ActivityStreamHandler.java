@@ -0,0 +1,306 @@
+package backend.controller;
+
+import backend.config.ActivityProperties;
+import backend.dto.ingestion.ActivityFrame;
+import backend.dto.ingestion.IngestionResult;
+import backend.dto.ingestion.StreamAck;
+import backend.model.BatchState;
+import backend.model.UserActivity;
+import backend.service.ActivityIngestionService;
+import backend.service.BatchDeduplicator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Потоковый прием активностей через WebSocket.
+//
+// Клиент отправляет кадры {"seq": N, "events": [...]} с возрастающим seq. Кадры соединения копятся
+// до activity.stream.batch-events событий или flush-interval-ms и передаются на запись одним пакетом
+// тем же путем, что и POST /api/activity. После записи клиент получает {"type":"ack","seq":N}:
+// все кадры до N включительно сохранены. В режиме ASYNC подтверждение отправляет поток записи после транзакции,
+// в режиме SPOOL - после записи в журнал; подтверждения идут строго по возрастанию seq.
+// Если пакет сохранить не удалось, клиент получает "nack",
+// соединение закрывается, и после переподключения клиент повторяет кадры после последнего ack.
+// С параметром ?stream=<id> повторно присланные кадры распознаются по паре (id, seq) и не записываются дважды;
+// если кадр с той же парой еще записывается прежним соединением, новое соединение закрывается без его подтверждения.
+@Component
+@ConditionalOnProperty(prefix = "activity.stream", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ActivityStreamHandler extends TextWebSocketHandler {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityStreamHandler.class);
+
+    private static final int SEND_TIME_LIMIT_MS = 10_000;
+    private static final int SEND_BUFFER_BYTES = 256 * 1024;
+    private static final int MAX_STREAM_ID_LENGTH = BatchDeduplicator.MAX_BATCH_ID_LENGTH - 24; // Остаток - на ":seq"
+
+    private final ActivityIngestionService activityIngestionService;
+    private final ActivityProperties.Stream settings;
+    private final ObjectReader frameReader;
+    private final ObjectWriter ackWriter;
+    private final Map<String, StreamState> streams = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "activity-stream-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ActivityStreamHandler(ActivityIngestionService activityIngestionService, ActivityProperties activityProperties,
+                                 ObjectMapper objectMapper) {
+        this.activityIngestionService = activityIngestionService;
+        this.settings = activityProperties.getStream();
+        this.frameReader = objectMapper.readerFor(ActivityFrame.class);
+        this.ackWriter = objectMapper.writerFor(StreamAck.class);
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = Math.max(10, settings.getFlushIntervalMs());
+        flusher.scheduleWithFixedDelay(this::flushExpired, interval, Math.max(5, interval / 4), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdownNow();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String streamId = session.getUri() == null ? null
+                : UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst("stream");
+        if (streamId != null && (streamId.isBlank() || streamId.length() > MAX_STREAM_ID_LENGTH)) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("Некорректный идентификатор потока"));
+            return;
+        }
+        // Подтверждения отправляются и из потока приема, и из потока записи по таймеру
+        WebSocketSession sender = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_BYTES);
+        streams.put(session.getId(), new StreamState(sender, streamId, session.getHandshakeHeaders().getFirst(HttpHeaders.USER_AGENT)));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        StreamState state = streams.get(session.getId());
+        if (state == null) {
+            return;
+        }
+        ActivityFrame frame;
+        try {
+            frame = frameReader.readValue(message.getPayload());
+        } catch (IOException e) {
+            frame = null;
+        }
+
+        state.lock.lock();
+        try {
+            if (state.startedAt == 0) {
+                state.startedAt = System.currentTimeMillis();
+            }
+            if (frame == null) {
+                state.rejected++; // Неразобранный кадр повторять бессмысленно: он засчитывается как обработанный
+            } else if (frame.getSeq() <= state.lastSeq) {
+                state.duplicateFrames++;
+            } else {
+                String batchId = state.streamId == null ? null : state.streamId + ":" + frame.getSeq();
+                BatchState batchState = activityIngestionService.beginBatch(batchId);
+                if (batchState == BatchState.IN_PROGRESS) {
+                    // Кадр еще записывается прежним соединением и может не записаться: закрываем соединение,
+                    // клиент повторит неподтвержденные кадры после переподключения
+                    state.sender.close(CloseStatus.SERVICE_OVERLOAD.withReason("Кадр " + frame.getSeq() + " еще обрабатывается"));
+                    return;
+                }
+                state.lastSeq = frame.getSeq();
+                if (batchState == BatchState.DUPLICATE) {
+                    state.duplicateFrames++;
+                } else {
+                    if (batchId != null) {
+                        state.frameIds.add(batchId);
+                    }
+                    addEvents(state, frame.getEvents());
+                }
+            }
+            if (state.events.size() >= Math.max(1, settings.getBatchEvents())) {
+                flush(state);
+            }
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        StreamState state = streams.remove(session.getId());
+        if (state == null) {
+            return;
+        }
+        // Кадры, еще не переданные на запись, отбрасываются: клиент повторит их после переподключения.
+        // Уже поставленные в очередь дописываются, и поток записи запомнит их идентификаторы
+        state.lock.lock();
+        try {
+            state.frameIds.forEach(batchId -> activityIngestionService.endBatch(batchId, false));
+            state.reset();
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    private void addEvents(StreamState state, List<UserActivity> events) {
+        if (events == null) {
+            return;
+        }
+        for (UserActivity activity : events) {
+            if (activityIngestionService.isValid(activity)) {
+                state.events.add(activity);
+            } else {
+                state.rejected++;
+            }
+        }
+    }
+
+    private void flushExpired() {
+        long now = System.currentTimeMillis();
+        for (StreamState state : streams.values()) {
+            if (state.startedAt == 0 || now - state.startedAt < settings.getFlushIntervalMs() || !state.lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (state.startedAt != 0) {
+                    flush(state);
+                }
+            } catch (Exception e) {
+                logger.warn("Ошибка записи пакета потока {}: {}", state.sender.getId(), e.getMessage());
+            } finally {
+                state.lock.unlock();
+            }
+        }
+    }
+
+    // Передает накопленные события на запись; вызывается под блокировкой состояния.
+    // Подтверждение отправляется, когда пакет сохранен, - в асинхронном режиме из потока записи
+    private void flush(StreamState state) throws IOException {
+        List<UserActivity> events = new ArrayList<>(state.events);
+        List<String> frameIds = new ArrayList<>(state.frameIds);
+        StreamAck ack = new StreamAck(); // type заполняется, когда результат записи известен
+        ack.setSeq(state.lastSeq == Long.MIN_VALUE ? 0 : state.lastSeq);
+        ack.setRejected(state.rejected);
+        ack.setDuplicateFrames(state.duplicateFrames);
+        state.reset();
+        synchronized (state.acks) {
+            state.acks.add(ack);
+        }
+
+        IngestionResult admission = new IngestionResult(); // Принятые и отброшенные лимитом события
+        if (!events.isEmpty() && activityIngestionService.isAsync()) {
+            boolean queued;
+            try {
+                queued = activityIngestionService.enqueue(events, state.userAgent, admission,
+                        written -> completeFromWriter(state, frameIds, ack, admission, written));
+            } catch (Exception e) {
+                logger.error("Ошибка постановки в очередь {} активностей потока {}: {}", events.size(), state.sender.getId(), e.getMessage(), e);
+                queued = false;
+            }
+            if (!queued) {
+                complete(state, frameIds, ack, admission, false, "Очередь приема переполнена");
+            }
+            return;
+        }
+
+        boolean accepted;
+        String error = null;
+        try {
+            if (!events.isEmpty()) {
+                activityIngestionService.saveNow(events, state.userAgent, admission);
+            }
+            accepted = true;
+        } catch (Exception e) {
+            logger.error("Ошибка записи {} активностей потока {}: {}", events.size(), state.sender.getId(), e.getMessage(), e);
+            accepted = false;
+            error = "Ошибка записи";
+        }
+        complete(state, frameIds, ack, admission, accepted, error);
+    }
+
+    private void completeFromWriter(StreamState state, List<String> frameIds, StreamAck ack, IngestionResult admission,
+                                    boolean written) {
+        try {
+            complete(state, frameIds, ack, admission, written, written ? null : "Ошибка записи");
+        } catch (IOException e) {
+            logger.warn("Не удалось отправить подтверждение потока {}: {}", state.sender.getId(), e.getMessage());
+        }
+    }
+
+    // Запоминает или освобождает идентификаторы кадров и отправляет готовые подтверждения по порядку
+    private void complete(StreamState state, List<String> frameIds, StreamAck ack, IngestionResult admission,
+                          boolean accepted, String error) throws IOException {
+        for (String batchId : frameIds) {
+            activityIngestionService.endBatch(batchId, accepted);
+        }
+        synchronized (state.acks) {
+            ack.setAccepted(accepted ? (int) admission.getAccepted() : 0);
+            ack.setLimited(accepted ? (int) admission.getLimited() : 0);
+            ack.setError(error);
+            ack.setType(accepted ? "ack" : "nack");
+            // Подтверждение не обгоняет пакеты, которые еще записываются
+            while (!state.acks.isEmpty() && state.acks.peek().getType() != null) {
+                StreamAck ready = state.acks.poll();
+                state.sender.sendMessage(new TextMessage(ackWriter.writeValueAsString(ready)));
+                if (!"ack".equals(ready.getType())) {
+                    state.acks.clear();
+                    state.sender.close(CloseStatus.SERVICE_OVERLOAD.withReason(ready.getError()));
+                    return;
+                }
+            }
+        }
+    }
+
+    // Кадры соединения, принятые после последнего подтверждения
+    private static class StreamState {
+        private final WebSocketSession sender;
+        private final String streamId;
+        private final String userAgent; // User-Agent запроса на установку соединения
+        private final ReentrantLock lock = new ReentrantLock();
+        private final List<UserActivity> events = new ArrayList<>();
+        private final List<String> frameIds = new ArrayList<>(); // Идентификаторы кадров для защиты от повторов
+        private final Deque<StreamAck> acks = new ArrayDeque<>(); // Подтверждения в порядке seq, в том числе ждущие записи
+        private long lastSeq = Long.MIN_VALUE;
+        private int rejected;
+        private int duplicateFrames;
+        private volatile long startedAt; // Время первого неподтвержденного кадра, 0 - таких нет
+
+        StreamState(WebSocketSession sender, String streamId, String userAgent) {
+            this.sender = sender;
+            this.streamId = streamId;
+            this.userAgent = userAgent;
+        }
+
+        void reset() {
+            events.clear();
+            frameIds.clear();
+            rejected = 0;
+            duplicateFrames = 0;
+            startedAt = 0;
+        }
+    }
+}
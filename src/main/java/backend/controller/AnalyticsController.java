@@ -1,6 +1,8 @@
 package backend.controller;
 
 import backend.dto.analitics.*;
+import backend.model.ActivityPeriod;
+import backend.model.EventType;
 import backend.model.TimeOnSiteSummary;
 import backend.service.AnalyticsService;
 import backend.utils.JwtUtil;
@@ -14,13 +16,16 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +52,10 @@ public class AnalyticsController {
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = Map.class),
                             examples = @ExampleObject(value = "{\"count\": 123}"))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Начало периода не раньше конца",
+                    content = @Content),
             @ApiResponse(
                     responseCode = "401",
                     description = "Недействительный или отсутствующий токен авторизации",
@@ -62,7 +71,11 @@ public class AnalyticsController {
     })
     @GetMapping("/unique-visitors")
     public ResponseEntity<Map<String, Long>> getUniqueVisitorsCount(
-            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader) {
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Начало периода включительно, например 2026-10-01T00:00:00") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Конец периода, не включая") LocalDateTime to) {
 
         try {
             String token = authorizationHeader.substring(7); // Убираем "Bearer "
@@ -72,8 +85,10 @@ public class AnalyticsController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            Long count = analyticsService.getUniqueVisitorsCount();
+            Long count = analyticsService.getUniqueVisitorsCount(ActivityPeriod.of(from, to));
             return ResponseEntity.ok(Map.of("count", count));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build(); // Начало периода не раньше конца
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -81,12 +96,16 @@ public class AnalyticsController {
 
 
 
-    @Operation(summary = "Получить источники трафика", description = "Возвращает список источников трафика")
+    @Operation(summary = "Получить источники трафика", description = "Возвращает хосты источников трафика с суммой событий")
     @ApiResponses({
             @ApiResponse(responseCode = "200",
                     description = "Данные успешно получены",
                     content = @Content(mediaType = "application/json",
                             array = @ArraySchema(schema = @Schema(implementation = TrafficSourceStats.class)))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Начало периода не раньше конца",
+                    content = @Content),
             @ApiResponse(
                     responseCode = "401",
                     description = "Недействительный или отсутствующий токен авторизации",
@@ -102,7 +121,166 @@ public class AnalyticsController {
     })
     @GetMapping("/traffic-sources")
     public ResponseEntity<List<TrafficSourceStats>> getTrafficSources(
-            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader) {
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Начало периода включительно, например 2026-10-01T00:00:00") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Конец периода, не включая") LocalDateTime to) {
+
+        try {
+            String token = authorizationHeader.substring(7); // Убираем "Bearer "
+            String username = jwtUtil.getUsernameFromToken(token);
+
+            if (!"admin".equals(username)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+
+            return ResponseEntity.ok(analyticsService.getTrafficSources(ActivityPeriod.of(from, to)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build(); // Начало периода не раньше конца
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+
+
+    @Operation(summary = "Получить посещения по странам",
+            description = "Возвращает число посетителей и визитов по странам, определенным по IP; country = null - страна не определена")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200",
+                    description = "Данные успешно получены",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = CountryStats.class)))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Начало периода не раньше конца",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Недействительный или отсутствующий токен авторизации",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Доступ запрещен",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Внутренняя ошибка сервера",
+                    content = @Content)
+    })
+    @GetMapping("/countries")
+    public ResponseEntity<List<CountryStats>> getVisitsByCountry(
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Начало периода включительно, например 2026-10-01T00:00:00") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Конец периода, не включая") LocalDateTime to) {
+
+        try {
+            String token = authorizationHeader.substring(7); // Убираем "Bearer "
+            String username = jwtUtil.getUsernameFromToken(token);
+
+            if (!"admin".equals(username)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+
+            return ResponseEntity.ok(analyticsService.getVisitsByCountry(ActivityPeriod.of(from, to)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build(); // Начало периода не раньше конца
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+
+
+    @Operation(summary = "Получить посещения по каналам трафика",
+            description = "Возвращает число посетителей и визитов по каналам (DIRECT, INTERNAL, SEARCH, SOCIAL, CAMPAIGN, REFERRAL), определенным при приеме; channel = null - событие записано до классификации")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200",
+                    description = "Данные успешно получены",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = TrafficChannelStats.class)))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Начало периода не раньше конца",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Недействительный или отсутствующий токен авторизации",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Доступ запрещен",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Внутренняя ошибка сервера",
+                    content = @Content)
+    })
+    @GetMapping("/traffic-channels")
+    public ResponseEntity<List<TrafficChannelStats>> getVisitsByChannel(
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Начало периода включительно, например 2026-10-01T00:00:00") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Конец периода, не включая") LocalDateTime to) {
+
+        try {
+            String token = authorizationHeader.substring(7); // Убираем "Bearer "
+            String username = jwtUtil.getUsernameFromToken(token);
+
+            if (!"admin".equals(username)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+
+            return ResponseEntity.ok(analyticsService.getVisitsByChannel(ActivityPeriod.of(from, to)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build(); // Начало периода не раньше конца
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+
+
+    @Operation(summary = "Получить разбивку событий по ключу eventDetails",
+            description = "Группирует события, в деталях которых есть ключ key, по его значению: например, какой товар " +
+                    "каталога выбран в событиях CATALOG_COUNT (key=item). Поиск по ключу и фильтру идет по GIN-индексу")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200",
+                    description = "Данные успешно получены",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = EventDetailStats.class)))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Начало периода не раньше конца, не задан ключ или фильтр не является объектом JSON",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Недействительный или отсутствующий токен авторизации",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Доступ запрещен",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Внутренняя ошибка сервера",
+                    content = @Content)
+    })
+    @GetMapping("/event-details")
+    public ResponseEntity<List<EventDetailStats>> getEventDetailValues(
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader,
+            @RequestParam @Parameter(description = "Ключ eventDetails, по значению которого группируются события, например item") String key,
+            @RequestParam(required = false) @Parameter(description = "Тип события, например CATALOG_COUNT") EventType eventType,
+            @RequestParam(required = false) @Parameter(description = "Объект JSON, которому должны соответствовать детали, например {\"section\":\"new\"}") String filter,
+            @RequestParam(defaultValue = "100") @Parameter(description = "Сколько значений вернуть, не больше 1000") int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Начало периода включительно, например 2026-10-01T00:00:00") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Конец периода, не включая") LocalDateTime to) {
 
         try {
             String token = authorizationHeader.substring(7); // Убираем "Bearer "
@@ -112,7 +290,9 @@ public class AnalyticsController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            return ResponseEntity.ok(analyticsService.getTrafficSources());
+            return ResponseEntity.ok(analyticsService.getEventDetailValues(ActivityPeriod.of(from, to), key, eventType, filter, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build(); // Некорректный период, ключ или фильтр
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -126,6 +306,10 @@ public class AnalyticsController {
                     description = "Данные успешно получены",
                     content = @Content(mediaType = "application/json",
                             array = @ArraySchema(schema = @Schema(implementation = TimeOnSiteStats.class)))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Начало периода не раньше конца",
+                    content = @Content),
             @ApiResponse(
                     responseCode = "401",
                     description = "Недействительный или отсутствующий токен авторизации",
@@ -141,7 +325,11 @@ public class AnalyticsController {
     })
     @GetMapping("/time-on-site")
     public ResponseEntity<TimeOnSiteSummary> getTimeOnSite(
-            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader) {
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Начало периода включительно, например 2026-10-01T00:00:00") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Конец периода, не включая") LocalDateTime to) {
 
         try {
             String token = authorizationHeader.substring(7); // Убираем "Bearer "
@@ -153,10 +341,12 @@ public class AnalyticsController {
             }
 
             // Получаем данные о времени на сайте
-            TimeOnSiteSummary timeOnSiteSummary = analyticsService.getTimeOnSite();
+            TimeOnSiteSummary timeOnSiteSummary = analyticsService.getTimeOnSite(ActivityPeriod.of(from, to));
 
             // Возвращаем результат
             return ResponseEntity.ok(timeOnSiteSummary);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build(); // Начало периода не раньше конца
         } catch (Exception e) {
             System.out.println("Ошибка при обработке запроса: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -170,6 +360,10 @@ public class AnalyticsController {
                     description = "Данные успешно получены",
                     content = @Content(mediaType = "application/json",
                             array = @ArraySchema(schema = @Schema(implementation = PageStats.class)))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Начало периода не раньше конца",
+                    content = @Content),
             @ApiResponse(
                     responseCode = "401",
                     description = "Недействительный или отсутствующий токен авторизации",
@@ -182,7 +376,11 @@ public class AnalyticsController {
     })
     @GetMapping("/popular-pages")
     public ResponseEntity<List<PageStats>> getPopularPages(
-            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader) {
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Начало периода включительно, например 2026-10-01T00:00:00") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Конец периода, не включая") LocalDateTime to) {
 
         try {
             String token = authorizationHeader.substring(7); // Убираем "Bearer "
@@ -192,7 +390,9 @@ public class AnalyticsController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            return ResponseEntity.ok(analyticsService.getPopularPages());
+            return ResponseEntity.ok(analyticsService.getPopularPages(ActivityPeriod.of(from, to)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build(); // Начало периода не раньше конца
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -206,6 +406,9 @@ public class AnalyticsController {
                     description = "Данные успешно получены",
                     content = @Content(mediaType = "application/json",
                             array = @ArraySchema(schema = @Schema(implementation = StoreLinkStats.class)))),
+            @ApiResponse(responseCode = "400",
+                    description = "Начало периода не раньше конца",
+                    content = @Content),
             @ApiResponse(responseCode = "401",
                     description = "Недействительный или отсутствующий токен авторизации",
                     content = @Content),
@@ -218,7 +421,11 @@ public class AnalyticsController {
     })
     @GetMapping("/store-link-stats")
     public ResponseEntity<List<StoreLinkStats>> getStoreLinkStats(
-            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader) {
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Начало периода включительно, например 2026-10-01T00:00:00") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Конец периода, не включая") LocalDateTime to) {
 
         try {
             // Извлекаем токен из заголовка
@@ -232,10 +439,12 @@ public class AnalyticsController {
             }
 
             // Получаем данные о переходах на основной магазин
-            List<StoreLinkStats> storeLinkStats = analyticsService.getStoreLinkStats();
+            List<StoreLinkStats> storeLinkStats = analyticsService.getStoreLinkStats(ActivityPeriod.of(from, to));
 
             // Возвращаем результат
             return ResponseEntity.ok(storeLinkStats);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build(); // Начало периода не раньше конца
         } catch (Exception e) {
             System.out.println("Ошибка при обработке запроса: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -249,6 +458,10 @@ public class AnalyticsController {
                     description = "Данные успешно получены",
                     content = @Content(mediaType = "application/json",
                             array = @ArraySchema(schema = @Schema(implementation = InteractiveElementStats.class)))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Начало периода не раньше конца",
+                    content = @Content),
             @ApiResponse(
                     responseCode = "401",
                     description = "Недействительный или отсутствующий токен авторизации",
@@ -264,7 +477,11 @@ public class AnalyticsController {
     })
     @GetMapping("/interactive-elements")
     public ResponseEntity<List<InteractiveElementStats>> getInteractiveElementInteractions(
-            @RequestHeader("Authorization") String authorizationHeader) {
+            @RequestHeader("Authorization") String authorizationHeader,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Начало периода включительно, например 2026-10-01T00:00:00") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Конец периода, не включая") LocalDateTime to) {
 
         try {
             String token = authorizationHeader.substring(7); // Убираем "Bearer "
@@ -274,11 +491,13 @@ public class AnalyticsController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            List<InteractiveElementStats> stats = analyticsService.getInteractiveElementInteractions();
+            List<InteractiveElementStats> stats = analyticsService.getInteractiveElementInteractions(ActivityPeriod.of(from, to));
             return ResponseEntity.ok(stats);
         } catch (JwtException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Collections.singletonList(new InteractiveElementStats("Несанкционированный доступ", 0L)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build(); // Начало периода не раньше конца
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
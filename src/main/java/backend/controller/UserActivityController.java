@@ -1,9 +1,23 @@
 package backend.controller;
 
+import backend.dto.backfill.BackfillJobInfo;
+import backend.dto.ingestion.IngestionResult;
+import backend.dto.ingestion.IngestionStats;
+import backend.dto.ingestion.SamplingStats;
+import backend.dto.purge.PurgeJobInfo;
+import backend.model.ActivityPeriod;
+import backend.model.BatchState;
 import backend.model.UserActivity;
 import backend.repository.UserActivityRepository;
+import backend.service.ActivityBackfillService;
+import backend.service.ActivityIngestionService;
+import backend.service.ActivityPurgeService;
+import backend.service.ActivitySampler;
+import backend.service.BatchDeduplicator;
 import backend.service.UserActivityService;
+import backend.utils.ActivityBinaryCodec;
 import backend.utils.JwtUtil;
+import backend.utils.PayloadTooLargeException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -12,28 +26,51 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.zip.ZipException;
 
 @Tag(name = "UserActivityController", description = "Контроллер для фиксирования активности на сайте")
 @Controller
 @RequestMapping("/api/activity")
 public class UserActivityController {
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    private static final String BATCH_ID_HEADER = "X-Batch-Id";
+    private static final String LIMITED_EVENTS_HEADER = "X-Limited-Events"; // Сколько событий отброшено лимитом на userIp
+    private static final String IN_PROGRESS_RETRY_AFTER_SECONDS = "1"; // Retry-After для пакета, который еще обрабатывается
+
     private final UserActivityService userActivityService;
     private final JwtUtil jwtUtil;
     private final UserActivityRepository userActivityRepository;
+    private final ActivityIngestionService activityIngestionService;
+    private final ActivityPurgeService activityPurgeService;
+    private final ActivitySampler activitySampler;
+    private final ActivityBackfillService activityBackfillService;
 
-    public UserActivityController(UserActivityService userActivityService, JwtUtil jwtUtil, UserActivityRepository userActivityRepository) {
+    public UserActivityController(UserActivityService userActivityService, JwtUtil jwtUtil, UserActivityRepository userActivityRepository,
+                                  ActivityIngestionService activityIngestionService, ActivityPurgeService activityPurgeService,
+                                  ActivitySampler activitySampler, ActivityBackfillService activityBackfillService) {
         this.userActivityService = userActivityService;
         this.jwtUtil = jwtUtil;
         this.userActivityRepository = userActivityRepository;
+        this.activityIngestionService = activityIngestionService;
+        this.activityPurgeService = activityPurgeService;
+        this.activitySampler = activitySampler;
+        this.activityBackfillService = activityBackfillService;
     }
 
     // Метод для создания JSON-ответа об ошибке
@@ -46,23 +83,48 @@ public class UserActivityController {
         return errorResponse;
     }
 
-    @Operation(summary = "Сохранение активности")
+    @Operation(summary = "Сохранение активности",
+            description = "В ответе - записанные строки, а не эхо каждого присланного события: одинаковые события пакета " +
+                    "склеиваются в одну строку с суммой countEvent (activity.coalescing), события ботов, сверх лимита " +
+                    "и отброшенные прореживанием не записываются и в ответ не попадают")
     @ApiResponses({
             @ApiResponse(
                     responseCode = "200",
-                    description = "Активность пользователя успешно сохранена",
-                    content = @Content(schema = @Schema(implementation = UserActivity.class))),
+                    description = "Активность сохранена; список записанных строк, их может быть меньше, чем присланных событий. "
+                            + "Заголовок X-Limited-Events - сколько событий отброшено лимитом на IP",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = UserActivity.class)))),
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Активность принята в очередь на запись (асинхронный режим); limited - отброшено лимитом на IP",
+                    content = @Content),
             @ApiResponse(
                     responseCode = "400",
                     description = "Некорректные параметры запроса",
                     content = @Content),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Все события пакета отброшены лимитом на IP, повторите после Retry-After",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Пакет с этим X-Batch-Id еще обрабатывается, повторите после Retry-After",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Очередь приема переполнена",
+                    content = @Content),
             @ApiResponse(
                     responseCode = "500",
                     description = "Внутренняя ошибка сервера",
                     content = @Content)
     })
     @PostMapping
-    public ResponseEntity<?> saveUserActivity(@RequestBody List<UserActivity> userActivities) {
+    public ResponseEntity<?> saveUserActivity(
+            @RequestBody List<UserActivity> userActivities,
+            @RequestHeader(value = BATCH_ID_HEADER, required = false) @Parameter(description = "Идентификатор пакета для защиты от повторной отправки") String batchId,
+            @RequestHeader(value = HttpHeaders.USER_AGENT, required = false) @Parameter(hidden = true) String userAgent) {
+        boolean begun = false;
+        boolean accepted = false;
         try {
             // Проверка корректности параметров
             if (userActivities == null || userActivities.isEmpty()) {
@@ -72,19 +134,253 @@ public class UserActivityController {
 
             // Валидация каждой активности в списке
             for (UserActivity activity : userActivities) {
-                if (activity.getUserIp() == null || activity.getEventType() == null ||
-                        activity.getEventType().equals("") || activity.getTimestamp() == null) {
+                if (!activityIngestionService.isValid(activity)) {
                     return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                            .body(createErrorResponse("Некорректные параметры запроса", "IP, тип события и временная метка не могут быть пустыми"));
+                            .body(createErrorResponse("Некорректные параметры запроса", "IP, тип события и временная метка обязательны, "
+                                    + "строки не длиннее " + UserActivity.MAX_TEXT_LENGTH + " символов и без NUL, годы 1-9999, countEvent больше нуля"));
                 }
             }
+            if (isBatchIdTooLong(batchId)) {
+                return batchIdTooLongResponse();
+            }
+
+            // Повторно присланный пакет уже принят или еще обрабатывается, в базу его не пишем
+            BatchState batchState = activityIngestionService.beginBatch(batchId);
+            if (batchState != BatchState.NEW) {
+                return repeatedBatchResponse(batchState, Map.of("duplicate", true));
+            }
+            begun = true;
 
-            // Сохранение активностей
-            List<UserActivity> savedActivities = userActivityService.logActivity(userActivities);
-            return ResponseEntity.ok(savedActivities);
+            // В асинхронном режиме только ставим пакет в очередь и сразу отвечаем
+            IngestionResult result = new IngestionResult();
+            if (activityIngestionService.isAsync()) {
+                if (!activityIngestionService.enqueue(userActivities, userAgent, result)) {
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .body(createErrorResponse("Сервис перегружен", "Очередь приема активностей переполнена"));
+                }
+                if (isFullyLimited(result)) {
+                    return limitedResponse(result, createErrorResponse("Слишком много событий", limitedDetails(result)));
+                }
+                accepted = true;
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .body(Map.of("accepted", result.getAccepted(), "limited", result.getLimited()));
+            }
+
+            // Сохранение активностей; события, отброшенные лимитом, в ответ не попадают и считаются в заголовке
+            List<UserActivity> savedActivities = activityIngestionService.saveNow(userActivities, userAgent, result);
+            if (isFullyLimited(result)) {
+                return limitedResponse(result, createErrorResponse("Слишком много событий", limitedDetails(result)));
+            }
+            accepted = true;
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (result.getLimited() > 0) {
+                response.header(LIMITED_EVENTS_HEADER, String.valueOf(result.getLimited()))
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(result.getRetryAfterSeconds()));
+            }
+            return response.body(savedActivities);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("Внутренняя ошибка сервера", e.getMessage()));
+        } finally {
+            if (begun) {
+                activityIngestionService.endBatch(batchId, accepted);
+            }
+        }
+    }
+
+    // Все события пакета отброшены лимитом на userIp: пакет не принят, и его X-Batch-Id можно прислать снова
+    private static boolean isFullyLimited(IngestionResult result) {
+        return result.getLimited() > 0 && result.getAccepted() == 0;
+    }
+
+    private ResponseEntity<?> limitedResponse(IngestionResult result, Object body) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(result.getRetryAfterSeconds()))
+                .body(body);
+    }
+
+    private static String limitedDetails(IngestionResult result) {
+        return "Превышен лимит событий на IP, отброшено " + result.getLimited() + ", повторите через "
+                + result.getRetryAfterSeconds() + " с";
+    }
+
+    private boolean isBatchIdTooLong(String batchId) {
+        return batchId != null && batchId.length() > BatchDeduplicator.MAX_BATCH_ID_LENGTH;
+    }
+
+    private ResponseEntity<?> batchIdTooLongResponse() {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(createErrorResponse("Некорректные параметры запроса",
+                        BATCH_ID_HEADER + " длиннее " + BatchDeduplicator.MAX_BATCH_ID_LENGTH + " символов"));
+    }
+
+    // Уже принятый пакет подтверждаем как успешный; пока первая попытка обрабатывается, просим повторить позже:
+    // она может и не удаться, и тогда повтор должен быть записан
+    private ResponseEntity<?> repeatedBatchResponse(BatchState batchState, Object duplicateBody) {
+        if (batchState == BatchState.DUPLICATE) {
+            return ResponseEntity.ok(duplicateBody);
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, IN_PROGRESS_RETRY_AFTER_SECONDS)
+                .body(createErrorResponse("Пакет еще обрабатывается", "Пакет с этим " + BATCH_ID_HEADER + " обрабатывается, повторите запрос позже"));
+    }
+
+    // Ошибка чтения JSON-тела: превышение предела распаковки отдаем как 413, остальное как 400
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<?> handleUnreadableBody(HttpMessageNotReadableException e) {
+        if (NestedExceptionUtils.getMostSpecificCause(e) instanceof PayloadTooLargeException tooLarge) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(createErrorResponse("Слишком большое тело запроса", tooLarge.getMessage()));
+        }
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(createErrorResponse("Некорректное тело запроса", NestedExceptionUtils.getMostSpecificCause(e).getMessage()));
+    }
+
+    @Operation(summary = "Потоковое сохранение активности в формате NDJSON",
+            description = "Одна строка - одно событие. Строки разбираются по одной, некорректные строки пропускаются")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Поток обработан, активности сохранены",
+                    content = @Content(schema = @Schema(implementation = IngestionResult.class))),
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Поток обработан, активности приняты в очередь на запись (асинхронный режим)",
+                    content = @Content(schema = @Schema(implementation = IngestionResult.class))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Некорректное сжатое тело; поле lines показывает, сколько строк уже записано, error - причину",
+                    content = @Content(schema = @Schema(implementation = IngestionResult.class))),
+            @ApiResponse(
+                    responseCode = "413",
+                    description = "Тело больше допустимого; поле lines показывает, сколько строк уже записано",
+                    content = @Content(schema = @Schema(implementation = IngestionResult.class))),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Все события пакета отброшены лимитом на IP, повторите после Retry-After",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Пакет с этим X-Batch-Id еще обрабатывается, повторите после Retry-After",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Очередь приема переполнена, поле lines показывает, сколько строк обработано",
+                    content = @Content(schema = @Schema(implementation = IngestionResult.class))),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Внутренняя ошибка сервера; поле lines показывает, сколько строк уже записано, повтор - с этой строки",
+                    content = @Content(schema = @Schema(implementation = IngestionResult.class)))
+    })
+    @PostMapping(consumes = NDJSON_MEDIA_TYPE)
+    public ResponseEntity<?> saveUserActivityStream(
+            HttpServletRequest request,
+            @RequestHeader(value = BATCH_ID_HEADER, required = false) @Parameter(description = "Идентификатор пакета для защиты от повторной отправки") String batchId) {
+        if (isBatchIdTooLong(batchId)) {
+            return batchIdTooLongResponse();
+        }
+        BatchState batchState = activityIngestionService.beginBatch(batchId);
+        if (batchState != BatchState.NEW) {
+            return repeatedBatchResponse(batchState, IngestionResult.duplicate());
+        }
+        boolean accepted = false;
+        // Порции пишутся по мере чтения, поэтому и при ошибке клиент получает lines - сколько строк уже записано,
+        // а X-Batch-Id освобождается для повтора оставшейся части
+        IngestionResult result = new IngestionResult();
+        try {
+            activityIngestionService.ingestStream(request.getInputStream(), request.getHeader(HttpHeaders.USER_AGENT), result);
+            if (!result.isCompleted()) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(result);
+            }
+            if (isFullyLimited(result)) {
+                return limitedResponse(result, result);
+            }
+            accepted = true;
+            return ResponseEntity.status(activityIngestionService.isAsync() ? HttpStatus.ACCEPTED : HttpStatus.OK).body(result);
+        } catch (PayloadTooLargeException e) {
+            result.setError("Слишком большое тело запроса: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(result);
+        } catch (ZipException e) {
+            result.setError("Некорректное сжатое тело запроса: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(result);
+        } catch (Exception e) {
+            result.setError("Внутренняя ошибка сервера: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(result);
+        } finally {
+            activityIngestionService.endBatch(batchId, accepted);
+        }
+    }
+
+    @Operation(summary = "Сохранение активности в компактном бинарном формате",
+            description = "Формат описан в ActivityBinaryCodec: таблица строк пакета, varint-поля и разностные метки времени")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Активности сохранены",
+                    content = @Content(schema = @Schema(implementation = IngestionResult.class))),
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Активности приняты в очередь на запись (асинхронный режим)",
+                    content = @Content(schema = @Schema(implementation = IngestionResult.class))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Некорректный бинарный пакет",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Все события пакета отброшены лимитом на IP, повторите после Retry-After",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Пакет с этим X-Batch-Id еще обрабатывается, повторите после Retry-After",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Очередь приема переполнена",
+                    content = @Content(schema = @Schema(implementation = IngestionResult.class))),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Внутренняя ошибка сервера",
+                    content = @Content)
+    })
+    @PostMapping(consumes = ActivityBinaryCodec.MEDIA_TYPE)
+    public ResponseEntity<?> saveUserActivityBinary(
+            HttpServletRequest request,
+            @RequestHeader(value = BATCH_ID_HEADER, required = false) @Parameter(description = "Идентификатор пакета для защиты от повторной отправки") String batchId) {
+        if (isBatchIdTooLong(batchId)) {
+            return batchIdTooLongResponse();
+        }
+        List<UserActivity> userActivities;
+        try {
+            userActivities = ActivityBinaryCodec.decode(request.getInputStream());
+        } catch (PayloadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(createErrorResponse("Слишком большое тело запроса", e.getMessage()));
+        } catch (IllegalArgumentException | IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(createErrorResponse("Некорректный бинарный пакет", e.getMessage()));
+        }
+
+        BatchState batchState = activityIngestionService.beginBatch(batchId);
+        if (batchState != BatchState.NEW) {
+            return repeatedBatchResponse(batchState, IngestionResult.duplicate());
+        }
+        boolean accepted = false;
+        try {
+            IngestionResult result = activityIngestionService.ingestBatch(userActivities, request.getHeader(HttpHeaders.USER_AGENT));
+            if (!result.isCompleted()) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(result);
+            }
+            if (isFullyLimited(result)) {
+                return limitedResponse(result, result);
+            }
+            accepted = true;
+            return ResponseEntity.status(activityIngestionService.isAsync() ? HttpStatus.ACCEPTED : HttpStatus.OK).body(result);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Внутренняя ошибка сервера", e.getMessage()));
+        } finally {
+            activityIngestionService.endBatch(batchId, accepted);
         }
     }
 
@@ -133,6 +429,10 @@ public class UserActivityController {
                     responseCode = "200",
                     description = "Успешный запрос",
                     content = @Content(array = @ArraySchema(schema = @Schema(implementation = UserActivity.class)))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Начало периода не раньше конца",
+                    content = @Content),
             @ApiResponse(
                     responseCode = "401",
                     description = "Недействительный или отсутствующий токен авторизации",
@@ -153,7 +453,11 @@ public class UserActivityController {
     @GetMapping("/ip/{ip}")
     public ResponseEntity<?> getUserActivityByIp(
             @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader,
-            @PathVariable String ip) {
+            @PathVariable String ip,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Начало периода включительно, например 2026-10-01T00:00:00") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Конец периода, не включая") LocalDateTime to) {
 
         try {
             String token = authorizationHeader.substring(7);
@@ -164,13 +468,16 @@ public class UserActivityController {
                         .body(createErrorResponse("Доступ запрещен", "Только администратор может получить данные"));
             }
 
-            List<UserActivity> activities = userActivityService.getUserActivityByIp(ip);
+            List<UserActivity> activities = userActivityService.getUserActivityByIp(ip, ActivityPeriod.of(from, to));
             if (activities.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(createErrorResponse("Активности не найдены", "Для IP " + ip + " активности отсутствуют"));
             }
 
             return ResponseEntity.ok(activities);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(createErrorResponse("Некорректный период", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("Внутренняя ошибка сервера", e.getMessage()));
@@ -200,7 +507,7 @@ public class UserActivityController {
                     description = "Внутренняя ошибка сервера",
                     content = @Content)
     })
-    @DeleteMapping("/{id}")
+    @DeleteMapping("/{id:\\d+}") // Только числа: иначе шаблон перехватывал бы /stream и другие пути
     public ResponseEntity<?> deleteUserActivityById(
             @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader,
             @PathVariable Long id) {
@@ -228,12 +535,13 @@ public class UserActivityController {
     }
 
     @DeleteMapping("/user-activities")
-    @Operation(summary = "Удалить все активности пользователей", description = "Удаляет все активности пользователей")
+    @Operation(summary = "Удалить все активности пользователей",
+            description = "Запускает фоновое задание удаления всех активностей; ход выполнения - GET /api/activity/purge/jobs/{id}")
     @ApiResponses({
             @ApiResponse(
-                    responseCode = "200",
-                    description = "Активности успешно удалены",
-                    content = @Content),
+                    responseCode = "202",
+                    description = "Задание удаления поставлено в очередь",
+                    content = @Content(schema = @Schema(implementation = PurgeJobInfo.class))),
             @ApiResponse(
                     responseCode = "401",
                     description = "Недействительный или отсутствующий токен авторизации",
@@ -264,22 +572,433 @@ public class UserActivityController {
                         .body(createErrorResponse("Доступ запрещен", "Только администратор может удалить активности"));
             }
 
-            // Проверяем, есть ли активности для удаления
-            List<UserActivity> userActivities = userActivityService.getAllUserActivities();
-            if (userActivities.isEmpty()) {
+            // Проверяем, есть ли активности для удаления (без загрузки строк)
+            if (!activityPurgeService.hasActivities()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(createErrorResponse("Активности не найдены", "Активности отсутствуют"));
             }
 
-            // Удаляем все активности
-            userActivityService.deleteAllUserActivities();
-
-            // Возвращаем успешный ответ
-            return ResponseEntity.ok().build();
+            // Удаление выполняется в фоне одной командой TRUNCATE
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(activityPurgeService.purgeAll());
         } catch (Exception e) {
             // Обрабатываем ошибки
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("Внутренняя ошибка сервера", e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Удалить активности за период",
+            description = "Запускает фоновое задание: секции, целиком попадающие в период, удаляются сразу, остальное - пакетами")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Задание удаления поставлено в очередь",
+                    content = @Content(schema = @Schema(implementation = PurgeJobInfo.class))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Не задана ни одна граница периода или начало не раньше конца",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Недействительный или отсутствующий токен авторизации",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Доступ запрещен",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Внутренняя ошибка сервера",
+                    content = @Content)
+    })
+    @DeleteMapping("/purge")
+    public ResponseEntity<?> purgePeriod(
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Начало периода включительно, например 2026-10-01T00:00:00") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Конец периода, не включая") LocalDateTime to) {
+
+        try {
+            String token = authorizationHeader.substring(7);
+            String username = jwtUtil.getUsernameFromToken(token);
+
+            if (!"admin".equals(username)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(createErrorResponse("Доступ запрещен", "Только администратор может удалить активности"));
+            }
+
+            if (from == null && to == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(createErrorResponse("Не задан период",
+                                "Укажите from и/или to; для удаления всех активностей - DELETE /api/activity/user-activities"));
+            }
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(activityPurgeService.purgePeriod(ActivityPeriod.of(from, to)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(createErrorResponse("Некорректный период", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Внутренняя ошибка сервера", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Удалить активности посетителя по IP",
+            description = "Запускает фоновое задание удаления активностей IP, при необходимости только за период")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Задание удаления поставлено в очередь",
+                    content = @Content(schema = @Schema(implementation = PurgeJobInfo.class))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Начало периода не раньше конца",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Недействительный или отсутствующий токен авторизации",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Доступ запрещен",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Внутренняя ошибка сервера",
+                    content = @Content)
+    })
+    @DeleteMapping("/ip/{ip}")
+    public ResponseEntity<?> purgeIp(
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader,
+            @PathVariable String ip,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Начало периода включительно, например 2026-10-01T00:00:00") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Конец периода, не включая") LocalDateTime to) {
+
+        try {
+            String token = authorizationHeader.substring(7);
+            String username = jwtUtil.getUsernameFromToken(token);
+
+            if (!"admin".equals(username)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(createErrorResponse("Доступ запрещен", "Только администратор может удалить активности"));
+            }
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(activityPurgeService.purgeIp(ip, ActivityPeriod.of(from, to)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(createErrorResponse("Некорректный период", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Внутренняя ошибка сервера", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Задания удаления активностей", description = "Состояние и ход выполнения заданий, от новых к старым")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Успешный запрос",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = PurgeJobInfo.class)))),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Недействительный или отсутствующий токен авторизации",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Доступ запрещен",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Внутренняя ошибка сервера",
+                    content = @Content)
+    })
+    @GetMapping("/purge/jobs")
+    public ResponseEntity<?> getPurgeJobs(
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader) {
+
+        try {
+            String token = authorizationHeader.substring(7);
+            String username = jwtUtil.getUsernameFromToken(token);
+
+            if (!"admin".equals(username)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(createErrorResponse("Доступ запрещен", "Только администратор может получить данные"));
+            }
+
+            return ResponseEntity.ok(activityPurgeService.getJobs());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Внутренняя ошибка сервера", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Задание удаления активностей", description = "Состояние и ход выполнения одного задания")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Успешный запрос",
+                    content = @Content(schema = @Schema(implementation = PurgeJobInfo.class))),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Недействительный или отсутствующий токен авторизации",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Доступ запрещен",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Задание не найдено",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Внутренняя ошибка сервера",
+                    content = @Content)
+    })
+    @GetMapping("/purge/jobs/{id}")
+    public ResponseEntity<?> getPurgeJob(
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader,
+            @PathVariable String id) {
+
+        try {
+            String token = authorizationHeader.substring(7);
+            String username = jwtUtil.getUsernameFromToken(token);
+
+            if (!"admin".equals(username)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(createErrorResponse("Доступ запрещен", "Только администратор может получить данные"));
+            }
+
+            Optional<PurgeJobInfo> job = activityPurgeService.getJob(id);
+            if (job.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(createErrorResponse("Задание не найдено", "ID = " + id));
+            }
+            return ResponseEntity.ok(job.get());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Внутренняя ошибка сервера", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Загрузить прошлые просмотры из журнала nginx",
+            description = "Запускает фоновое задание загрузки журнала доступа (формат combined или main) из каталога " +
+                    "activity.backfill.directory; ход выполнения - GET /api/activity/backfill/jobs/{id}. Повторный запуск " +
+                    "для того же файла продолжает с последней контрольной точки")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Задание загрузки поставлено в очередь (или уже выполняется для этого файла)",
+                    content = @Content(schema = @Schema(implementation = BackfillJobInfo.class))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Файл не указан, не найден или находится вне каталога журналов",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Недействительный или отсутствующий токен авторизации",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Доступ запрещен",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Внутренняя ошибка сервера",
+                    content = @Content)
+    })
+    @PostMapping("/backfill")
+    public ResponseEntity<?> importAccessLog(
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader,
+            @RequestParam @Parameter(description = "Путь к файлу относительно каталога журналов, например access.log.1") String file) {
+
+        try {
+            String token = authorizationHeader.substring(7);
+            String username = jwtUtil.getUsernameFromToken(token);
+
+            if (!"admin".equals(username)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(createErrorResponse("Доступ запрещен", "Только администратор может загружать журналы"));
+            }
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(activityBackfillService.importFile(file));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(createErrorResponse("Некорректный файл журнала", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Внутренняя ошибка сервера", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Задания загрузки журналов", description = "Состояние, скорость и ход выполнения заданий, от новых к старым")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Успешный запрос",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = BackfillJobInfo.class)))),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Недействительный или отсутствующий токен авторизации",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Доступ запрещен",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Внутренняя ошибка сервера",
+                    content = @Content)
+    })
+    @GetMapping("/backfill/jobs")
+    public ResponseEntity<?> getBackfillJobs(
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader) {
+
+        try {
+            String token = authorizationHeader.substring(7);
+            String username = jwtUtil.getUsernameFromToken(token);
+
+            if (!"admin".equals(username)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(createErrorResponse("Доступ запрещен", "Только администратор может получить данные"));
+            }
+
+            return ResponseEntity.ok(activityBackfillService.getJobs());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Внутренняя ошибка сервера", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Задание загрузки журнала", description = "Состояние, скорость и ход выполнения одного задания")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Успешный запрос",
+                    content = @Content(schema = @Schema(implementation = BackfillJobInfo.class))),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Недействительный или отсутствующий токен авторизации",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Доступ запрещен",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Задание не найдено",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Внутренняя ошибка сервера",
+                    content = @Content)
+    })
+    @GetMapping("/backfill/jobs/{id}")
+    public ResponseEntity<?> getBackfillJob(
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader,
+            @PathVariable String id) {
+
+        try {
+            String token = authorizationHeader.substring(7);
+            String username = jwtUtil.getUsernameFromToken(token);
+
+            if (!"admin".equals(username)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(createErrorResponse("Доступ запрещен", "Только администратор может получить данные"));
+            }
+
+            Optional<BackfillJobInfo> job = activityBackfillService.getJob(id);
+            if (job.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(createErrorResponse("Задание не найдено", "ID = " + id));
+            }
+            return ResponseEntity.ok(job.get());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Внутренняя ошибка сервера", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Статистика приема активностей", description = "Глубина очереди, задержки записи и счетчики отброшенных событий")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Успешный запрос",
+                    content = @Content(schema = @Schema(implementation = IngestionStats.class))),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Недействительный или отсутствующий токен авторизации",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Доступ запрещен",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Внутренняя ошибка сервера",
+                    content = @Content)
+    })
+    @GetMapping("/ingestion/stats")
+    public ResponseEntity<?> getIngestionStats(
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader) {
+
+        try {
+            String token = authorizationHeader.substring(7);
+            String username = jwtUtil.getUsernameFromToken(token);
+
+            if (!"admin".equals(username)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(createErrorResponse("Доступ запрещен", "Только администратор может получить данные"));
+            }
+
+            return ResponseEntity.ok(activityIngestionService.getStats());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Внутренняя ошибка сервера", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Прореживание событий", description = "Действующая доля сохраняемых событий и счетчики по типам")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Успешный запрос",
+                    content = @Content(schema = @Schema(implementation = SamplingStats.class))),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Недействительный или отсутствующий токен авторизации",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Доступ запрещен",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Внутренняя ошибка сервера",
+                    content = @Content)
+    })
+    @GetMapping("/sampling")
+    public ResponseEntity<?> getSamplingStats(
+            @RequestHeader("Authorization") @Parameter(description = "Токен авторизации", required = true) String authorizationHeader) {
+
+        try {
+            String token = authorizationHeader.substring(7);
+            String username = jwtUtil.getUsernameFromToken(token);
+
+            if (!"admin".equals(username)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(createErrorResponse("Доступ запрещен", "Только администратор может получить данные"));
+            }
+
+            return ResponseEntity.ok(activitySampler.getStats());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Внутренняя ошибка сервера", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package backend.dto.analitics;
+
+public class CountryStats {
+
+    private String country; // Код страны ISO 3166-1, null - страна не определена
+    private long visitors; // Уникальных посетителей
+    private long visits; // Визитов (событий ENTER)
+
+    public CountryStats() {}
+
+    public CountryStats(String country, long visitors, long visits) {
+        this.country = country;
+        this.visitors = visitors;
+        this.visits = visits;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+    }
+
+    public long getVisitors() {
+        return visitors;
+    }
+
+    public void setVisitors(long visitors) {
+        this.visitors = visitors;
+    }
+
+    public long getVisits() {
+        return visits;
+    }
+
+    public void setVisits(long visits) {
+        this.visits = visits;
+    }
+}
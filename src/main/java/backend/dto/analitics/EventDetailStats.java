@@ -0,0 +1,40 @@
+package backend.dto.analitics;
+
+public class EventDetailStats {
+
+    private String value; // Значение ключа eventDetails (вложенный объект - текстом JSON)
+    private long events; // Сумма countEvent событий с этим значением
+    private long visitors; // Уникальных посетителей
+
+    public EventDetailStats() {}
+
+    public EventDetailStats(String value, long events, long visitors) {
+        this.value = value;
+        this.events = events;
+        this.visitors = visitors;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public void setEvents(long events) {
+        this.events = events;
+    }
+
+    public long getVisitors() {
+        return visitors;
+    }
+
+    public void setVisitors(long visitors) {
+        this.visitors = visitors;
+    }
+}
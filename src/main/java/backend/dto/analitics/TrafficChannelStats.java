@@ -0,0 +1,42 @@
+package backend.dto.analitics;
+
+import backend.model.TrafficChannel;
+
+public class TrafficChannelStats {
+
+    private TrafficChannel channel; // Канал трафика, null - событие записано до классификации
+    private long visitors; // Уникальных посетителей, пришедших по каналу
+    private long visits; // Визитов (событий ENTER)
+
+    public TrafficChannelStats() {}
+
+    public TrafficChannelStats(TrafficChannel channel, long visitors, long visits) {
+        this.channel = channel;
+        this.visitors = visitors;
+        this.visits = visits;
+    }
+
+    public TrafficChannel getChannel() {
+        return channel;
+    }
+
+    public void setChannel(TrafficChannel channel) {
+        this.channel = channel;
+    }
+
+    public long getVisitors() {
+        return visitors;
+    }
+
+    public void setVisitors(long visitors) {
+        this.visitors = visitors;
+    }
+
+    public long getVisits() {
+        return visits;
+    }
+
+    public void setVisits(long visits) {
+        this.visits = visits;
+    }
+}
@@ -0,0 +1,191 @@
+package backend.dto.backfill;
+
+import backend.model.BackfillJobState;
+
+import java.time.LocalDateTime;
+
+public class BackfillJobInfo {
+
+    private String id; // Идентификатор задания
+    private String file; // Путь к файлу журнала
+    private BackfillJobState state; // Состояние
+    private long fileBytes; // Размер файла при запуске
+    private long resumedFromBytes; // Смещение контрольной точки, с которого начата загрузка (0 - с начала файла)
+    private long committedBytes; // Байт файла, загруженных и отмеченных контрольной точкой
+    private double percent; // Доля загруженного файла, %
+    private long chunks; // Загружено частей файла
+    private long lines; // Прочитано строк
+    private long importedEvents; // Записано событий VIEW
+    private long skippedLines; // Пропущено строк: не GET, ошибки, статика, служебные пути
+    private long malformedLines; // Строк не в формате журнала
+    private long botLines; // Строк от ботов (по User-Agent), отброшенных фильтром
+    private double linesPerSecond; // Средняя скорость, строк в секунду
+    private double megabytesPerSecond; // Средняя скорость, МБ в секунду
+    private Long etaSeconds; // Оценка оставшегося времени при текущей скорости
+    private LocalDateTime createdAt; // Время постановки в очередь
+    private LocalDateTime startedAt; // Время начала
+    private LocalDateTime finishedAt; // Время завершения
+    private String error; // Текст ошибки для FAILED
+
+    public BackfillJobInfo() {}
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public BackfillJobState getState() {
+        return state;
+    }
+
+    public void setState(BackfillJobState state) {
+        this.state = state;
+    }
+
+    public long getFileBytes() {
+        return fileBytes;
+    }
+
+    public void setFileBytes(long fileBytes) {
+        this.fileBytes = fileBytes;
+    }
+
+    public long getResumedFromBytes() {
+        return resumedFromBytes;
+    }
+
+    public void setResumedFromBytes(long resumedFromBytes) {
+        this.resumedFromBytes = resumedFromBytes;
+    }
+
+    public long getCommittedBytes() {
+        return committedBytes;
+    }
+
+    public void setCommittedBytes(long committedBytes) {
+        this.committedBytes = committedBytes;
+    }
+
+    public double getPercent() {
+        return percent;
+    }
+
+    public void setPercent(double percent) {
+        this.percent = percent;
+    }
+
+    public long getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(long chunks) {
+        this.chunks = chunks;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public void setLines(long lines) {
+        this.lines = lines;
+    }
+
+    public long getImportedEvents() {
+        return importedEvents;
+    }
+
+    public void setImportedEvents(long importedEvents) {
+        this.importedEvents = importedEvents;
+    }
+
+    public long getSkippedLines() {
+        return skippedLines;
+    }
+
+    public void setSkippedLines(long skippedLines) {
+        this.skippedLines = skippedLines;
+    }
+
+    public long getMalformedLines() {
+        return malformedLines;
+    }
+
+    public void setMalformedLines(long malformedLines) {
+        this.malformedLines = malformedLines;
+    }
+
+    public long getBotLines() {
+        return botLines;
+    }
+
+    public void setBotLines(long botLines) {
+        this.botLines = botLines;
+    }
+
+    public double getLinesPerSecond() {
+        return linesPerSecond;
+    }
+
+    public void setLinesPerSecond(double linesPerSecond) {
+        this.linesPerSecond = linesPerSecond;
+    }
+
+    public double getMegabytesPerSecond() {
+        return megabytesPerSecond;
+    }
+
+    public void setMegabytesPerSecond(double megabytesPerSecond) {
+        this.megabytesPerSecond = megabytesPerSecond;
+    }
+
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public void setEtaSeconds(Long etaSeconds) {
+        this.etaSeconds = etaSeconds;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,30 @@
+package backend.dto.ingestion;
+
+import backend.model.UserActivity;
+
+import java.util.List;
+
+// Кадр потокового приема через WebSocket
+public class ActivityFrame {
+
+    private long seq; // Номер кадра, возрастает в пределах потока клиента
+    private List<UserActivity> events; // События кадра
+
+    public ActivityFrame() {}
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public List<UserActivity> getEvents() {
+        return events;
+    }
+
+    public void setEvents(List<UserActivity> events) {
+        this.events = events;
+    }
+}
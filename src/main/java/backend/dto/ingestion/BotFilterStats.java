@@ -0,0 +1,84 @@
+package backend.dto.ingestion;
+
+import backend.model.BotFilterAction;
+import backend.model.BotRule;
+
+import java.util.Map;
+
+public class BotFilterStats {
+
+    private boolean enabled; // Фильтр включен
+    private BotFilterAction action; // Отбрасывать или отмечать события ботов
+    private long checkedEvents; // Проверено событий
+    private long flaggedEvents; // Из них признано событиями ботов
+    private Map<BotRule, Long> ruleHits; // Срабатывания по правилам
+    private int flaggedIps; // Адресов, считающихся ботами из-за частоты событий
+    private int trackedSessions; // Сессий с известным ENTER
+    private double avgNanosPerEvent; // Среднее время проверки одного события
+
+    public BotFilterStats() {}
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public BotFilterAction getAction() {
+        return action;
+    }
+
+    public void setAction(BotFilterAction action) {
+        this.action = action;
+    }
+
+    public long getCheckedEvents() {
+        return checkedEvents;
+    }
+
+    public void setCheckedEvents(long checkedEvents) {
+        this.checkedEvents = checkedEvents;
+    }
+
+    public long getFlaggedEvents() {
+        return flaggedEvents;
+    }
+
+    public void setFlaggedEvents(long flaggedEvents) {
+        this.flaggedEvents = flaggedEvents;
+    }
+
+    public Map<BotRule, Long> getRuleHits() {
+        return ruleHits;
+    }
+
+    public void setRuleHits(Map<BotRule, Long> ruleHits) {
+        this.ruleHits = ruleHits;
+    }
+
+    public int getFlaggedIps() {
+        return flaggedIps;
+    }
+
+    public void setFlaggedIps(int flaggedIps) {
+        this.flaggedIps = flaggedIps;
+    }
+
+    public int getTrackedSessions() {
+        return trackedSessions;
+    }
+
+    public void setTrackedSessions(int trackedSessions) {
+        this.trackedSessions = trackedSessions;
+    }
+
+    public double getAvgNanosPerEvent() {
+        return avgNanosPerEvent;
+    }
+
+    public void setAvgNanosPerEvent(double avgNanosPerEvent) {
+        this.avgNanosPerEvent = avgNanosPerEvent;
+    }
+}
@@ -0,0 +1,79 @@
+package backend.dto.ingestion;
+
+public class ConcurrencyStats {
+
+    private boolean enabled; // Ограничение включено
+    private int limit; // Текущий предел одновременных запросов
+    private int inFlight; // Запросов выполняется сейчас
+    private double baselineRttMillis; // Базовая (долгосрочная) задержка запроса
+    private double windowRttMillis; // Средняя задержка в последнем окне
+    private long acceptedRequests; // Принято запросов
+    private long rejectedRequests; // Отклонено запросов с ответом 503
+    private long failedRequests; // Запросов, завершившихся ошибкой сервера
+
+    public ConcurrencyStats() {}
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    public double getBaselineRttMillis() {
+        return baselineRttMillis;
+    }
+
+    public void setBaselineRttMillis(double baselineRttMillis) {
+        this.baselineRttMillis = baselineRttMillis;
+    }
+
+    public double getWindowRttMillis() {
+        return windowRttMillis;
+    }
+
+    public void setWindowRttMillis(double windowRttMillis) {
+        this.windowRttMillis = windowRttMillis;
+    }
+
+    public long getAcceptedRequests() {
+        return acceptedRequests;
+    }
+
+    public void setAcceptedRequests(long acceptedRequests) {
+        this.acceptedRequests = acceptedRequests;
+    }
+
+    public long getRejectedRequests() {
+        return rejectedRequests;
+    }
+
+    public void setRejectedRequests(long rejectedRequests) {
+        this.rejectedRequests = rejectedRequests;
+    }
+
+    public long getFailedRequests() {
+        return failedRequests;
+    }
+
+    public void setFailedRequests(long failedRequests) {
+        this.failedRequests = failedRequests;
+    }
+}
@@ -0,0 +1,106 @@
+package backend.dto.ingestion;
+
+public class ConnectionPoolStats {
+
+    private String name; // Имя пула
+    private int maxConnections; // Максимальный размер пула
+    private int activeConnections; // Соединений выдано
+    private int idleConnections; // Свободных соединений
+    private int pendingThreads; // Потоков, ожидающих соединение (больше нуля - пул исчерпан)
+    private long acquisitions; // Выдано соединений за все время
+    private double avgAcquireMillis; // Среднее ожидание соединения
+    private double maxAcquireMillis; // Максимальное ожидание соединения
+    private double avgUsageMillis; // Среднее время удержания соединения
+    private double maxUsageMillis; // Максимальное время удержания соединения
+    private long timeouts; // Запросов, не дождавшихся соединения за connection-timeout
+
+    public ConnectionPoolStats() {}
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public void setActiveConnections(int activeConnections) {
+        this.activeConnections = activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public void setIdleConnections(int idleConnections) {
+        this.idleConnections = idleConnections;
+    }
+
+    public int getPendingThreads() {
+        return pendingThreads;
+    }
+
+    public void setPendingThreads(int pendingThreads) {
+        this.pendingThreads = pendingThreads;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    public void setAcquisitions(long acquisitions) {
+        this.acquisitions = acquisitions;
+    }
+
+    public double getAvgAcquireMillis() {
+        return avgAcquireMillis;
+    }
+
+    public void setAvgAcquireMillis(double avgAcquireMillis) {
+        this.avgAcquireMillis = avgAcquireMillis;
+    }
+
+    public double getMaxAcquireMillis() {
+        return maxAcquireMillis;
+    }
+
+    public void setMaxAcquireMillis(double maxAcquireMillis) {
+        this.maxAcquireMillis = maxAcquireMillis;
+    }
+
+    public double getAvgUsageMillis() {
+        return avgUsageMillis;
+    }
+
+    public void setAvgUsageMillis(double avgUsageMillis) {
+        this.avgUsageMillis = avgUsageMillis;
+    }
+
+    public double getMaxUsageMillis() {
+        return maxUsageMillis;
+    }
+
+    public void setMaxUsageMillis(double maxUsageMillis) {
+        this.maxUsageMillis = maxUsageMillis;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public void setTimeouts(long timeouts) {
+        this.timeouts = timeouts;
+    }
+}
@@ -0,0 +1,88 @@
+package backend.dto.ingestion;
+
+public class DeduplicationStats {
+
+    private long checkedBatches; // Проверено пакетов с идентификатором
+    private long duplicateBatches; // Отброшено повторных пакетов
+    private long bloomOnlyDuplicates; // Из них найдено только фильтром Блума (возможны ложные срабатывания)
+    private long inProgressBatches; // Повторов, пришедших до завершения первой попытки
+    private int exactEntries; // Идентификаторов в точном множестве
+    private int inFlightEntries; // Пакетов, обрабатываемых сейчас
+    private double bloomFillRatio; // Доля установленных битов в текущем поколении фильтра
+    private double estimatedFalsePositiveRate; // Оценка вероятности ложного срабатывания по заполненности
+    private long memoryBytes; // Оценка занимаемой памяти
+
+    public DeduplicationStats() {}
+
+    public long getCheckedBatches() {
+        return checkedBatches;
+    }
+
+    public void setCheckedBatches(long checkedBatches) {
+        this.checkedBatches = checkedBatches;
+    }
+
+    public long getDuplicateBatches() {
+        return duplicateBatches;
+    }
+
+    public void setDuplicateBatches(long duplicateBatches) {
+        this.duplicateBatches = duplicateBatches;
+    }
+
+    public long getBloomOnlyDuplicates() {
+        return bloomOnlyDuplicates;
+    }
+
+    public void setBloomOnlyDuplicates(long bloomOnlyDuplicates) {
+        this.bloomOnlyDuplicates = bloomOnlyDuplicates;
+    }
+
+    public long getInProgressBatches() {
+        return inProgressBatches;
+    }
+
+    public void setInProgressBatches(long inProgressBatches) {
+        this.inProgressBatches = inProgressBatches;
+    }
+
+    public int getExactEntries() {
+        return exactEntries;
+    }
+
+    public void setExactEntries(int exactEntries) {
+        this.exactEntries = exactEntries;
+    }
+
+    public int getInFlightEntries() {
+        return inFlightEntries;
+    }
+
+    public void setInFlightEntries(int inFlightEntries) {
+        this.inFlightEntries = inFlightEntries;
+    }
+
+    public double getBloomFillRatio() {
+        return bloomFillRatio;
+    }
+
+    public void setBloomFillRatio(double bloomFillRatio) {
+        this.bloomFillRatio = bloomFillRatio;
+    }
+
+    public double getEstimatedFalsePositiveRate() {
+        return estimatedFalsePositiveRate;
+    }
+
+    public void setEstimatedFalsePositiveRate(double estimatedFalsePositiveRate) {
+        this.estimatedFalsePositiveRate = estimatedFalsePositiveRate;
+    }
+
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public void setMemoryBytes(long memoryBytes) {
+        this.memoryBytes = memoryBytes;
+    }
+}
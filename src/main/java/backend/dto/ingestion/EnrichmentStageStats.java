@@ -0,0 +1,88 @@
+package backend.dto.ingestion;
+
+public class EnrichmentStageStats {
+
+    private String name; // Имя этапа
+    private int threads; // Потоков в пуле этапа
+    private int queuedChunks; // Частей пакетов, ожидающих свободного потока
+    private long events; // Обработано событий
+    private long chunks; // Обработано частей пакетов
+    private long errors; // Частей, на которых этап завершился ошибкой (они переданы дальше без изменений)
+    private double avgChunkMillis; // Среднее время обработки части
+    private double maxChunkMillis; // Максимальное время обработки части
+    private double eventsPerSecond; // Событий в секунду работы одного потока этапа
+
+    public EnrichmentStageStats() {}
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueuedChunks() {
+        return queuedChunks;
+    }
+
+    public void setQueuedChunks(int queuedChunks) {
+        this.queuedChunks = queuedChunks;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public void setEvents(long events) {
+        this.events = events;
+    }
+
+    public long getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(long chunks) {
+        this.chunks = chunks;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public void setErrors(long errors) {
+        this.errors = errors;
+    }
+
+    public double getAvgChunkMillis() {
+        return avgChunkMillis;
+    }
+
+    public void setAvgChunkMillis(double avgChunkMillis) {
+        this.avgChunkMillis = avgChunkMillis;
+    }
+
+    public double getMaxChunkMillis() {
+        return maxChunkMillis;
+    }
+
+    public void setMaxChunkMillis(double maxChunkMillis) {
+        this.maxChunkMillis = maxChunkMillis;
+    }
+
+    public double getEventsPerSecond() {
+        return eventsPerSecond;
+    }
+
+    public void setEventsPerSecond(double eventsPerSecond) {
+        this.eventsPerSecond = eventsPerSecond;
+    }
+}
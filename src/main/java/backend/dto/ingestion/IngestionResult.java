@@ -0,0 +1,86 @@
+package backend.dto.ingestion;
+
+public class IngestionResult {
+
+    private long accepted; // Принято событий
+    private long rejected; // Отклонено событий (не прошли разбор или проверку)
+    private long limited; // Отброшено лимитом событий на userIp; их можно прислать снова после retryAfterSeconds
+    private long retryAfterSeconds; // Через сколько секунд лимит примет отброшенные события (0 - ничего не отброшено)
+    private long lines; // Прочитано строк тела запроса
+    private boolean completed; // Тело прочитано до конца (false - прием остановлен, см. error)
+    private boolean duplicate; // Пакет с этим X-Batch-Id уже был принят, повтор пропущен
+    private String error; // Причина остановки приема: ошибка чтения или записи (null - переполнение очереди или успех)
+
+    public IngestionResult() {}
+
+    public static IngestionResult duplicate() {
+        IngestionResult result = new IngestionResult();
+        result.setCompleted(true);
+        result.setDuplicate(true);
+        return result;
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    public void setAccepted(long accepted) {
+        this.accepted = accepted;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public long getLimited() {
+        return limited;
+    }
+
+    public void setLimited(long limited) {
+        this.limited = limited;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public void setRetryAfterSeconds(long retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public void setLines(long lines) {
+        this.lines = lines;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    public void setDuplicate(boolean duplicate) {
+        this.duplicate = duplicate;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,207 @@
+package backend.dto.ingestion;
+
+import java.util.List;
+
+public class IngestionStats {
+
+    private String mode; // Текущий режим приема
+    private int queueDepthBatches; // Пакетов в очереди
+    private long queueDepthEvents; // Событий в очереди
+    private int queueCapacity; // Емкость очереди в пакетах
+    private long acceptedEvents; // Принято событий
+    private long droppedEvents; // Отброшено событий из-за переполнения очереди
+    private long droppedBatches; // Отброшено пакетов из-за переполнения очереди
+    private long coalescedEvents; // Событий, склеенных с другими перед записью
+    private long committedEvents; // Записано событий
+    private long commits; // Выполнено групповых транзакций
+    private long failedEvents; // Событий, которые не удалось записать
+    private double lastFlushMillis; // Длительность последней записи
+    private double avgFlushMillis; // Средняя длительность записи
+    private double maxFlushMillis; // Максимальная длительность записи
+    private DeduplicationStats deduplication; // Подавление повторных пакетов
+    private BotFilterStats botFilter; // Отсев ботов и шума
+    private RateLimitStats rateLimit; // Ограничение частоты запросов и событий
+    private SamplingStats sampling; // Прореживание событий по типам
+    private ConcurrencyStats concurrency; // Адаптивное ограничение одновременных запросов
+    private List<EnrichmentStageStats> enrichment; // Этапы обогащения событий перед записью
+    private List<ConnectionPoolStats> pools; // Пулы соединений записи и аналитики
+    private SpoolStats spool; // Локальный журнал (только в режиме SPOOL)
+
+    public IngestionStats() {}
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public int getQueueDepthBatches() {
+        return queueDepthBatches;
+    }
+
+    public void setQueueDepthBatches(int queueDepthBatches) {
+        this.queueDepthBatches = queueDepthBatches;
+    }
+
+    public long getQueueDepthEvents() {
+        return queueDepthEvents;
+    }
+
+    public void setQueueDepthEvents(long queueDepthEvents) {
+        this.queueDepthEvents = queueDepthEvents;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getAcceptedEvents() {
+        return acceptedEvents;
+    }
+
+    public void setAcceptedEvents(long acceptedEvents) {
+        this.acceptedEvents = acceptedEvents;
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    public void setDroppedEvents(long droppedEvents) {
+        this.droppedEvents = droppedEvents;
+    }
+
+    public long getDroppedBatches() {
+        return droppedBatches;
+    }
+
+    public void setDroppedBatches(long droppedBatches) {
+        this.droppedBatches = droppedBatches;
+    }
+
+    public long getCoalescedEvents() {
+        return coalescedEvents;
+    }
+
+    public void setCoalescedEvents(long coalescedEvents) {
+        this.coalescedEvents = coalescedEvents;
+    }
+
+    public long getCommittedEvents() {
+        return committedEvents;
+    }
+
+    public void setCommittedEvents(long committedEvents) {
+        this.committedEvents = committedEvents;
+    }
+
+    public long getCommits() {
+        return commits;
+    }
+
+    public void setCommits(long commits) {
+        this.commits = commits;
+    }
+
+    public long getFailedEvents() {
+        return failedEvents;
+    }
+
+    public void setFailedEvents(long failedEvents) {
+        this.failedEvents = failedEvents;
+    }
+
+    public double getLastFlushMillis() {
+        return lastFlushMillis;
+    }
+
+    public void setLastFlushMillis(double lastFlushMillis) {
+        this.lastFlushMillis = lastFlushMillis;
+    }
+
+    public double getAvgFlushMillis() {
+        return avgFlushMillis;
+    }
+
+    public void setAvgFlushMillis(double avgFlushMillis) {
+        this.avgFlushMillis = avgFlushMillis;
+    }
+
+    public double getMaxFlushMillis() {
+        return maxFlushMillis;
+    }
+
+    public void setMaxFlushMillis(double maxFlushMillis) {
+        this.maxFlushMillis = maxFlushMillis;
+    }
+
+    public DeduplicationStats getDeduplication() {
+        return deduplication;
+    }
+
+    public void setDeduplication(DeduplicationStats deduplication) {
+        this.deduplication = deduplication;
+    }
+
+    public RateLimitStats getRateLimit() {
+        return rateLimit;
+    }
+
+    public void setRateLimit(RateLimitStats rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    public SpoolStats getSpool() {
+        return spool;
+    }
+
+    public void setSpool(SpoolStats spool) {
+        this.spool = spool;
+    }
+
+    public SamplingStats getSampling() {
+        return sampling;
+    }
+
+    public void setSampling(SamplingStats sampling) {
+        this.sampling = sampling;
+    }
+
+    public ConcurrencyStats getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(ConcurrencyStats concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public List<EnrichmentStageStats> getEnrichment() {
+        return enrichment;
+    }
+
+    public void setEnrichment(List<EnrichmentStageStats> enrichment) {
+        this.enrichment = enrichment;
+    }
+
+    public List<ConnectionPoolStats> getPools() {
+        return pools;
+    }
+
+    public void setPools(List<ConnectionPoolStats> pools) {
+        this.pools = pools;
+    }
+
+    public BotFilterStats getBotFilter() {
+        return botFilter;
+    }
+
+    public void setBotFilter(BotFilterStats botFilter) {
+        this.botFilter = botFilter;
+    }
+}
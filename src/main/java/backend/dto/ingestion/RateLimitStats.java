@@ -0,0 +1,45 @@
+package backend.dto.ingestion;
+
+import java.util.Map;
+
+public class RateLimitStats {
+
+    private Map<String, Long> rejectedRequests; // Отклонено запросов по каждому правилу
+    private long limitedEvents; // Отброшено событий сверх лимита на userIp
+    private int trackedClients; // Ведер по IP клиента
+    private int trackedUserIps; // Ведер по userIp
+
+    public RateLimitStats() {}
+
+    public Map<String, Long> getRejectedRequests() {
+        return rejectedRequests;
+    }
+
+    public void setRejectedRequests(Map<String, Long> rejectedRequests) {
+        this.rejectedRequests = rejectedRequests;
+    }
+
+    public long getLimitedEvents() {
+        return limitedEvents;
+    }
+
+    public void setLimitedEvents(long limitedEvents) {
+        this.limitedEvents = limitedEvents;
+    }
+
+    public int getTrackedClients() {
+        return trackedClients;
+    }
+
+    public void setTrackedClients(int trackedClients) {
+        this.trackedClients = trackedClients;
+    }
+
+    public int getTrackedUserIps() {
+        return trackedUserIps;
+    }
+
+    public void setTrackedUserIps(int trackedUserIps) {
+        this.trackedUserIps = trackedUserIps;
+    }
+}
@@ -0,0 +1,47 @@
+package backend.dto.ingestion;
+
+import backend.model.EventType;
+
+import java.util.Map;
+
+public class SamplingStats {
+
+    private boolean enabled; // Прореживание включено
+    private Map<EventType, Double> rates; // Действующая доля сохраняемых событий по типам
+    private Map<EventType, Long> seenEvents; // Получено событий по типам
+    private Map<EventType, Long> keptEvents; // Из них сохранено
+
+    public SamplingStats() {}
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Map<EventType, Double> getRates() {
+        return rates;
+    }
+
+    public void setRates(Map<EventType, Double> rates) {
+        this.rates = rates;
+    }
+
+    public Map<EventType, Long> getSeenEvents() {
+        return seenEvents;
+    }
+
+    public void setSeenEvents(Map<EventType, Long> seenEvents) {
+        this.seenEvents = seenEvents;
+    }
+
+    public Map<EventType, Long> getKeptEvents() {
+        return keptEvents;
+    }
+
+    public void setKeptEvents(Map<EventType, Long> keptEvents) {
+        this.keptEvents = keptEvents;
+    }
+}
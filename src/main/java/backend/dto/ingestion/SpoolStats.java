@@ -0,0 +1,79 @@
+package backend.dto.ingestion;
+
+public class SpoolStats {
+
+    private long pendingRecords; // Записей журнала, еще не перенесенных в базу
+    private long pendingBytes; // Их объем
+    private long lagMillis; // Возраст самой старой неперенесенной записи
+    private int segments; // Число файлов-сегментов
+    private long diskBytes; // Место на диске под сегменты
+    private long replayedEvents; // Перенесено событий в базу
+    private long replayRetries; // Неудачных попыток записи в базу (запись повторяется)
+    private long corruptRecords; // Отброшено записей с неверной контрольной суммой
+
+    public SpoolStats() {}
+
+    public long getPendingRecords() {
+        return pendingRecords;
+    }
+
+    public void setPendingRecords(long pendingRecords) {
+        this.pendingRecords = pendingRecords;
+    }
+
+    public long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    public void setPendingBytes(long pendingBytes) {
+        this.pendingBytes = pendingBytes;
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public void setLagMillis(long lagMillis) {
+        this.lagMillis = lagMillis;
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    public void setSegments(int segments) {
+        this.segments = segments;
+    }
+
+    public long getDiskBytes() {
+        return diskBytes;
+    }
+
+    public void setDiskBytes(long diskBytes) {
+        this.diskBytes = diskBytes;
+    }
+
+    public long getReplayedEvents() {
+        return replayedEvents;
+    }
+
+    public void setReplayedEvents(long replayedEvents) {
+        this.replayedEvents = replayedEvents;
+    }
+
+    public long getReplayRetries() {
+        return replayRetries;
+    }
+
+    public void setReplayRetries(long replayRetries) {
+        this.replayRetries = replayRetries;
+    }
+
+    public long getCorruptRecords() {
+        return corruptRecords;
+    }
+
+    public void setCorruptRecords(long corruptRecords) {
+        this.corruptRecords = corruptRecords;
+    }
+}
@@ -0,0 +1,71 @@
+package backend.dto.ingestion;
+
+// Подтверждение пакета кадров, отправляемое клиенту после записи
+public class StreamAck {
+
+    private String type; // ack - кадры до seq включительно приняты, nack - не приняты и должны быть отправлены снова
+    private long seq; // Номер последнего кадра пакета
+    private int accepted; // Принято событий
+    private int rejected; // Отброшено некорректных событий
+    private int limited; // Отброшено лимитом событий на userIp (кадры все равно подтверждаются)
+    private int duplicateFrames; // Пропущено кадров, уже принятых ранее
+    private String error; // Причина для nack
+
+    public StreamAck() {}
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public int getAccepted() {
+        return accepted;
+    }
+
+    public void setAccepted(int accepted) {
+        this.accepted = accepted;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(int rejected) {
+        this.rejected = rejected;
+    }
+
+    public int getLimited() {
+        return limited;
+    }
+
+    public void setLimited(int limited) {
+        this.limited = limited;
+    }
+
+    public int getDuplicateFrames() {
+        return duplicateFrames;
+    }
+
+    public void setDuplicateFrames(int duplicateFrames) {
+        this.duplicateFrames = duplicateFrames;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,129 @@
+package backend.dto.purge;
+
+import backend.model.PurgeJobState;
+import backend.model.PurgeJobType;
+
+import java.time.LocalDateTime;
+
+public class PurgeJobInfo {
+
+    private String id; // Идентификатор задания
+    private PurgeJobType type; // Что удаляется
+    private String criteria; // Условие отбора в читаемом виде
+    private PurgeJobState state; // Состояние
+    private int totalPartitions; // Секций (таблиц) к обработке
+    private int processedPartitions; // Из них уже обработано
+    private int droppedPartitions; // Удалено секций целиком
+    private long deletedRows; // Удалено строк
+    private double rowsPerSecond; // Средняя скорость удаления
+    private LocalDateTime createdAt; // Время постановки в очередь
+    private LocalDateTime startedAt; // Время начала
+    private LocalDateTime finishedAt; // Время завершения
+    private String error; // Текст ошибки для FAILED
+
+    public PurgeJobInfo() {}
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public PurgeJobType getType() {
+        return type;
+    }
+
+    public void setType(PurgeJobType type) {
+        this.type = type;
+    }
+
+    public String getCriteria() {
+        return criteria;
+    }
+
+    public void setCriteria(String criteria) {
+        this.criteria = criteria;
+    }
+
+    public PurgeJobState getState() {
+        return state;
+    }
+
+    public void setState(PurgeJobState state) {
+        this.state = state;
+    }
+
+    public int getTotalPartitions() {
+        return totalPartitions;
+    }
+
+    public void setTotalPartitions(int totalPartitions) {
+        this.totalPartitions = totalPartitions;
+    }
+
+    public int getProcessedPartitions() {
+        return processedPartitions;
+    }
+
+    public void setProcessedPartitions(int processedPartitions) {
+        this.processedPartitions = processedPartitions;
+    }
+
+    public int getDroppedPartitions() {
+        return droppedPartitions;
+    }
+
+    public void setDroppedPartitions(int droppedPartitions) {
+        this.droppedPartitions = droppedPartitions;
+    }
+
+    public long getDeletedRows() {
+        return deletedRows;
+    }
+
+    public void setDeletedRows(long deletedRows) {
+        this.deletedRows = deletedRows;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
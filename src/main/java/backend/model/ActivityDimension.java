@@ -0,0 +1,45 @@
+package backend.model;
+
+import jakarta.persistence.*;
+
+// Словарь повторяющихся строк активности: в user_activity хранится только целочисленный ключ
+@Entity
+@Table(name = "activity_dimension", uniqueConstraints = @UniqueConstraint(columnNames = {"kind", "value"}))
+public class ActivityDimension {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "kind", nullable = false)
+    private DimensionKind kind; // Вид значения (URL страницы, источник)
+
+    @Column(name = "value", nullable = false)
+    private String value;
+
+    public ActivityDimension() {}
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public DimensionKind getKind() {
+        return kind;
+    }
+
+    public void setKind(DimensionKind kind) {
+        this.kind = kind;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+}
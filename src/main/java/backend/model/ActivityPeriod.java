@@ -0,0 +1,26 @@
+package backend.model;
+
+import java.time.LocalDateTime;
+
+// Полуинтервал [from, to) по времени события. Запросы к user_activity всегда получают обе границы
+// как условия на timestamp, чтобы PostgreSQL отбрасывал секции вне периода.
+public record ActivityPeriod(LocalDateTime from, LocalDateTime to) {
+    // Границы "за все время": вне диапазона любых реальных событий, но в пределах типа timestamp
+    public static final LocalDateTime MIN = LocalDateTime.of(1, 1, 1, 0, 0);
+    public static final LocalDateTime MAX = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    public ActivityPeriod {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Начало периода должно быть раньше конца: " + from + " - " + to);
+        }
+    }
+
+    // Период из необязательных параметров запроса: отсутствующая граница не ограничивает выборку
+    public static ActivityPeriod of(LocalDateTime from, LocalDateTime to) {
+        return new ActivityPeriod(from != null ? from : MIN, to != null ? to : MAX);
+    }
+
+    public static ActivityPeriod allTime() {
+        return new ActivityPeriod(MIN, MAX);
+    }
+}
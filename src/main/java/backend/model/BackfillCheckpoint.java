@@ -0,0 +1,81 @@
+package backend.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Контрольная точка загрузки журнала доступа: до какого смещения файл уже записан в user_activity.
+// Обновляется в одной транзакции с загруженной частью файла, поэтому повторный запуск не теряет и не дублирует строк.
+@Entity
+@Table(name = "activity_backfill_checkpoint")
+public class BackfillCheckpoint {
+
+    @Id
+    @Column(name = "path", length = 1024)
+    private String path; // Абсолютный путь к файлу
+
+    @Column(name = "fingerprint", nullable = false)
+    private String fingerprint; // Контрольная сумма начала файла: другая - файл заменен (ротация), загрузка с начала
+
+    @Column(name = "committed_offset", nullable = false)
+    private long committedOffset; // Байт файла, загруженных полностью (всегда граница строки)
+
+    @Column(name = "lines", nullable = false)
+    private long lines; // Прочитано строк до committedOffset
+
+    @Column(name = "imported_events", nullable = false)
+    private long importedEvents; // Записано событий до committedOffset
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public BackfillCheckpoint() {}
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public long getCommittedOffset() {
+        return committedOffset;
+    }
+
+    public void setCommittedOffset(long committedOffset) {
+        this.committedOffset = committedOffset;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public void setLines(long lines) {
+        this.lines = lines;
+    }
+
+    public long getImportedEvents() {
+        return importedEvents;
+    }
+
+    public void setImportedEvents(long importedEvents) {
+        this.importedEvents = importedEvents;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,8 @@
+package backend.model;
+
+public enum BackfillJobState {
+    QUEUED, // Ждет завершения предыдущих заданий
+    RUNNING, // Выполняется
+    COMPLETED, // Файл загружен до последней полной строки
+    FAILED // Прервано ошибкой; повторный запуск продолжит с последней контрольной точки
+}
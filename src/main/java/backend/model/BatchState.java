@@ -0,0 +1,7 @@
+package backend.model;
+
+public enum BatchState {
+    NEW, // Пакет с этим идентификатором еще не принимался, его нужно обработать
+    IN_PROGRESS, // Первая попытка еще обрабатывается и может не удаться: клиенту нужно повторить позже
+    DUPLICATE // Пакет уже принят, повтор пропускается
+}
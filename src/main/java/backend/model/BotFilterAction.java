@@ -0,0 +1,6 @@
+package backend.model;
+
+public enum BotFilterAction {
+    DROP, // Не сохранять события ботов
+    TAG // Сохранять с отметкой правила (bot_rule), аналитика их не учитывает
+}
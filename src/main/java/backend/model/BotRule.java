@@ -0,0 +1,9 @@
+package backend.model;
+
+// Правило, по которому событие признано ботом; хранится порядковым номером, новые значения - только в конец
+public enum BotRule {
+    USER_AGENT, // User-Agent запроса похож на робота, скрипт или сервис мониторинга
+    IP_RANGE, // Адрес из заданных диапазонов
+    EVENT_RATE, // С адреса приходит больше событий, чем может породить человек
+    EXIT_WITHOUT_ENTER // Выход из сессии, вход в которую не поступал
+}
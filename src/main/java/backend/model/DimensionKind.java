@@ -0,0 +1,7 @@
+package backend.model;
+
+public enum DimensionKind {
+    PAGE_URL, // URL страницы
+    REFERER, // Источник перехода
+    REFERER_HOST // Хост источника перехода
+}
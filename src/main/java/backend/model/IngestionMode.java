@@ -0,0 +1,7 @@
+package backend.model;
+
+public enum IngestionMode {
+    SYNC, // Сохранение в потоке запроса
+    ASYNC, // Постановка в очередь и групповая запись фоновым потоком
+    SPOOL // Запись в локальный журнал на диске и последующая переигровка в базу
+}
@@ -0,0 +1,30 @@
+package backend.model;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+public enum PartitionInterval {
+    DAY(DateTimeFormatter.ofPattern("yyyy_MM_dd")), // Секция на сутки
+    MONTH(DateTimeFormatter.ofPattern("yyyy_MM")); // Секция на календарный месяц
+
+    private final DateTimeFormatter suffixFormat;
+
+    PartitionInterval(DateTimeFormatter suffixFormat) {
+        this.suffixFormat = suffixFormat;
+    }
+
+    // Начало периода, в который попадает дата
+    public LocalDate floor(LocalDate date) {
+        return this == DAY ? date : date.withDayOfMonth(1);
+    }
+
+    // Начало следующего периода
+    public LocalDate next(LocalDate start) {
+        return this == DAY ? start.plusDays(1) : start.plusMonths(1);
+    }
+
+    // Суффикс имени секции для периода, например 2026_10
+    public String suffix(LocalDate start) {
+        return suffixFormat.format(start);
+    }
+}
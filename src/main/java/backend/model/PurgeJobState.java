@@ -0,0 +1,8 @@
+package backend.model;
+
+public enum PurgeJobState {
+    QUEUED, // Ждет завершения предыдущих заданий
+    RUNNING, // Выполняется
+    COMPLETED, // Завершено
+    FAILED // Прервано ошибкой, удаленные до нее строки не восстанавливаются
+}
@@ -0,0 +1,8 @@
+package backend.model;
+
+public enum PurgeJobType {
+    ALL, // Все активности
+    PERIOD, // Активности за период
+    IP, // Активности посетителя (при необходимости за период)
+    RETENTION // Активности старше срока хранения, по расписанию
+}
@@ -0,0 +1,11 @@
+package backend.model;
+
+// Канал трафика; хранится порядковым номером, новые значения добавляются только в конец
+public enum TrafficChannel {
+    DIRECT, // Прямой заход, источник не передан
+    INTERNAL, // Переход с другой страницы сайта
+    SEARCH, // Поисковая система
+    SOCIAL, // Социальная сеть или мессенджер
+    CAMPAIGN, // Рекламная кампания: в URL страницы есть метки (utm_* и т.п.)
+    REFERRAL // Прочие сайты
+}
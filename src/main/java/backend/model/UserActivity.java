@@ -1,44 +1,112 @@
 package backend.model;
 
+import backend.repository.ActivityDictionaryListener;
+import backend.utils.EventDetailsJson;
+import backend.utils.IpAddresses;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnTransformer;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "user_activity")
+@EntityListeners(ActivityDictionaryListener.class)
 public class UserActivity {
+    public static final String ID_SEQUENCE = "user_activity_seq";
+    public static final int ID_ALLOCATION_SIZE = 50; // Сколько идентификаторов резервируется за одно обращение к последовательности
+    public static final int MAX_TEXT_LENGTH = 255; // Строковые столбцы user_activity и activity_dimension - varchar(255)
+    // Допустимое время события: годы 1-9999 - за их пределами LocalDateTime записывается со знаком года,
+    // и ни COPY, ни драйвер не передадут такое значение в столбец timestamp
+    public static final LocalDateTime MIN_TIMESTAMP = LocalDateTime.of(1, 1, 1, 0, 0);
+    public static final LocalDateTime MAX_TIMESTAMP = LocalDateTime.of(9999, 12, 31, 23, 59, 59, 999_999_999);
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
-    @Column(name = "user_ip", nullable = false)
+    @Transient
     private String userIp; // IP-адрес пользователя
 
+    @JsonIgnore
+    @Column(name = "user_ip", nullable = true)
+    private String storedUserIp; // IP строкой, только если он не разобран как адрес
+
+    @JsonIgnore
+    @Column(name = "user_ip_bin", nullable = true, length = IpAddresses.LENGTH)
+    private byte[] userIpBin; // Адрес в двоичном виде: 4 байта IPv4 или 16 байт IPv6
+
     @Column(name = "session_id", nullable = true)
     private String sessionId; // Идентификатор сессии
 
-    @Column(name = "page_url", nullable = true)
+    @Transient
     private String pageUrl; // URL страницы
 
+    @JsonIgnore
+    @Column(name = "page_url", nullable = true)
+    private String storedPageUrl; // URL строкой, если он не закодирован ключом словаря
+
+    @JsonIgnore
+    @Column(name = "page_url_id", nullable = true)
+    private Integer pageUrlId; // Ключ URL в activity_dimension
+
     @Column(name = "event_type", nullable = false)
     private EventType eventType; // Тип события (например, "enter", "click", "exit")
 
-    @Column(name = "event_details", nullable = true)
-    private String eventDetails; // Дополнительные данные о событии
+    @Transient
+    private String eventDetails; // Дополнительные данные о событии: объект JSON или произвольный текст
 
-    @Column(name = "referer", nullable = true)
+    @JsonIgnore
+    @ColumnTransformer(write = "?::jsonb")
+    @Column(name = "event_details", nullable = true, columnDefinition = "jsonb")
+    private String storedEventDetails; // eventDetails в виде JSON (EventDetailsJson)
+
+    @Transient
     private String referer; // Источник трафика (откуда пользователь перешел)
 
+    @JsonIgnore
+    @Column(name = "referer", nullable = true)
+    private String storedReferer; // Источник строкой, если он не закодирован ключом словаря
+
+    @JsonIgnore
+    @Column(name = "referer_id", nullable = true)
+    private Integer refererId; // Ключ источника в activity_dimension
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Transient
+    private String refererHost; // Хост источника без "www.", определяется при приеме
+
+    @JsonIgnore
+    @Column(name = "referer_host", nullable = true)
+    private String storedRefererHost; // Хост строкой, если он не закодирован ключом словаря
+
+    @JsonIgnore
+    @Column(name = "referer_host_id", nullable = true)
+    private Integer refererHostId; // Ключ хоста в activity_dimension
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "traffic_channel", nullable = true)
+    private TrafficChannel trafficChannel; // Канал трафика, определяется при приеме
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "bot_rule", nullable = true)
+    private BotRule botRule; // Правило фильтра ботов, отметившее событие (режим TAG); null - событие человека
+
     @Column(name = "timestamp", nullable = false)
     private LocalDateTime timestamp; // Время события
 
     @Column(name = "count_event", nullable = false)
     private Long countEvent;
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "country", nullable = true, length = 2)
+    private String country; // Код страны ISO 3166-1 по IP, определяется при приеме
+
     public UserActivity() {}
 
     public UserActivity(String userIp, String sessionId, String pageUrl, EventType eventType, String eventDetails, String referer, LocalDateTime timestamp, Long countEvent) {
-        this.userIp = userIp;
+        setUserIp(userIp);
         this.sessionId = sessionId;
         this.pageUrl = pageUrl;
         this.eventType = eventType;
@@ -48,6 +116,31 @@ public class UserActivity {
         this.countEvent = countEvent;
     }
 
+    // Закодированная ключом словаря строка в своем столбце не хранится
+    @PrePersist
+    private void prepareStoredValues() {
+        storedUserIp = userIpBin != null ? null : userIp;
+        storedPageUrl = pageUrlId != null ? null : pageUrl;
+        storedReferer = refererId != null ? null : referer;
+        storedRefererHost = refererHostId != null ? null : refererHost;
+        storedEventDetails = EventDetailsJson.toJson(eventDetails);
+    }
+
+    // Строки из словаря подставляет ActivityDictionaryListener, здесь - хранившиеся как есть
+    @PostLoad
+    private void restoreStoredValues() {
+        userIp = storedUserIp != null ? storedUserIp : IpAddresses.format(userIpBin);
+        if (storedPageUrl != null) {
+            pageUrl = storedPageUrl;
+        }
+        if (storedReferer != null) {
+            referer = storedReferer;
+        }
+        if (storedRefererHost != null) {
+            refererHost = storedRefererHost;
+        }
+        eventDetails = EventDetailsJson.fromJson(storedEventDetails);
+    }
 
     public Long getId() {
         return id;
@@ -61,8 +154,14 @@ public class UserActivity {
         return userIp;
     }
 
+    // Адрес разбирается один раз, при приеме события
     public void setUserIp(String userIp) {
         this.userIp = userIp;
+        this.userIpBin = IpAddresses.parse(userIp);
+    }
+
+    public byte[] getUserIpBin() {
+        return userIpBin;
     }
 
     public String getSessionId() {
@@ -81,6 +180,14 @@ public class UserActivity {
         this.pageUrl = pageUrl;
     }
 
+    public Integer getPageUrlId() {
+        return pageUrlId;
+    }
+
+    public void setPageUrlId(Integer pageUrlId) {
+        this.pageUrlId = pageUrlId;
+    }
+
     public EventType getEventType() {
         return eventType;
     }
@@ -105,6 +212,46 @@ public class UserActivity {
         this.referer = referer;
     }
 
+    public Integer getRefererId() {
+        return refererId;
+    }
+
+    public void setRefererId(Integer refererId) {
+        this.refererId = refererId;
+    }
+
+    public String getRefererHost() {
+        return refererHost;
+    }
+
+    public void setRefererHost(String refererHost) {
+        this.refererHost = refererHost;
+    }
+
+    public Integer getRefererHostId() {
+        return refererHostId;
+    }
+
+    public void setRefererHostId(Integer refererHostId) {
+        this.refererHostId = refererHostId;
+    }
+
+    public TrafficChannel getTrafficChannel() {
+        return trafficChannel;
+    }
+
+    public void setTrafficChannel(TrafficChannel trafficChannel) {
+        this.trafficChannel = trafficChannel;
+    }
+
+    public BotRule getBotRule() {
+        return botRule;
+    }
+
+    public void setBotRule(BotRule botRule) {
+        this.botRule = botRule;
+    }
+
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
@@ -120,4 +267,12 @@ public class UserActivity {
     public void setCountEvent(Long countEvent) {
         this.countEvent = countEvent;
     }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+    }
 }
@@ -0,0 +1,44 @@
+package backend.repository;
+
+import backend.model.BackfillCheckpoint;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Контрольные точки загрузки журналов доступа (таблицу создает ddl-auto по сущности BackfillCheckpoint).
+// Запись идет через JdbcTemplate, чтобы участвовать в транзакции, в которой часть файла загружается через COPY.
+@Repository
+public class ActivityBackfillRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public ActivityBackfillRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<BackfillCheckpoint> find(String path) {
+        List<BackfillCheckpoint> checkpoints = jdbcTemplate.query("SELECT path, fingerprint, committed_offset, lines, " +
+                "imported_events, updated_at FROM activity_backfill_checkpoint WHERE path = ?", (resultSet, rowNum) -> {
+            BackfillCheckpoint checkpoint = new BackfillCheckpoint();
+            checkpoint.setPath(resultSet.getString(1));
+            checkpoint.setFingerprint(resultSet.getString(2));
+            checkpoint.setCommittedOffset(resultSet.getLong(3));
+            checkpoint.setLines(resultSet.getLong(4));
+            checkpoint.setImportedEvents(resultSet.getLong(5));
+            checkpoint.setUpdatedAt(resultSet.getObject(6, LocalDateTime.class));
+            return checkpoint;
+        }, path);
+        return checkpoints.stream().findFirst();
+    }
+
+    public void save(BackfillCheckpoint checkpoint) {
+        jdbcTemplate.update("INSERT INTO activity_backfill_checkpoint (path, fingerprint, committed_offset, lines, " +
+                        "imported_events, updated_at) VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (path) DO UPDATE SET " +
+                        "fingerprint = EXCLUDED.fingerprint, committed_offset = EXCLUDED.committed_offset, lines = EXCLUDED.lines, " +
+                        "imported_events = EXCLUDED.imported_events, updated_at = EXCLUDED.updated_at",
+                checkpoint.getPath(), checkpoint.getFingerprint(), checkpoint.getCommittedOffset(), checkpoint.getLines(),
+                checkpoint.getImportedEvents(), checkpoint.getUpdatedAt());
+    }
+}
@@ -0,0 +1,172 @@
+package backend.repository;
+
+import backend.model.UserActivity;
+import backend.utils.EventDetailsJson;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+
+// Потоковая загрузка активностей в user_activity через протокол COPY драйвера PostgreSQL
+@Repository
+public class ActivityCopyWriter {
+    private static final String COPY_SQL = "COPY user_activity (id, user_ip, user_ip_bin, session_id, page_url, page_url_id, event_type, " +
+            "event_details, referer, referer_id, timestamp, count_event, country, referer_host, referer_host_id, traffic_channel, bot_rule) FROM STDIN WITH (FORMAT csv)";
+    private static final String NEXT_IDS_SQL = "SELECT nextval('" + UserActivity.ID_SEQUENCE + "') FROM generate_series(1, ?)";
+    private static final int BUFFER_SIZE = 64 * 1024; // Размер буфера перед отправкой на сервер
+
+    private final DataSource dataSource;
+    // Ошибки COPY переводятся в исключения Spring так же, как у JdbcTemplate: данные, которые база
+    // не принимает (классы SQLSTATE 22 и 23), - DataIntegrityViolationException, а не сбой соединения
+    private final SQLExceptionTranslator exceptionTranslator = new SQLStateSQLExceptionTranslator();
+
+    public ActivityCopyWriter(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    // Записывает активности одной командой COPY, используя соединение текущей транзакции
+    public List<UserActivity> copy(List<UserActivity> userActivities) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            List<UserActivity> activities = userActivities.stream().filter(Objects::nonNull).toList();
+            long[] ids = allocateIds(connection, activities.size());
+
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+            try {
+                StringBuilder buffer = new StringBuilder(BUFFER_SIZE + 1024);
+                for (int i = 0; i < activities.size(); i++) {
+                    UserActivity activity = activities.get(i);
+                    activity.setId(ids[i]);
+                    appendRow(buffer, activity);
+                    if (buffer.length() >= BUFFER_SIZE) {
+                        write(copyIn, buffer);
+                    }
+                }
+                write(copyIn, buffer);
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+            return activities;
+        } catch (SQLException e) {
+            DataAccessException translated = exceptionTranslator.translate("COPY user_activity", COPY_SQL, e);
+            throw translated != null ? translated : new UncategorizedSQLException("COPY user_activity", COPY_SQL, e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    // Резервирует идентификаторы той же последовательностью и тем же шагом, что и Hibernate (pooled):
+    // значение v из последовательности принадлежит диапазону (v - шаг, v]
+    private long[] allocateIds(Connection connection, int count) throws SQLException {
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            int blocks = (count - filled + UserActivity.ID_ALLOCATION_SIZE - 1) / UserActivity.ID_ALLOCATION_SIZE;
+            try (PreparedStatement statement = connection.prepareStatement(NEXT_IDS_SQL)) {
+                statement.setInt(1, blocks);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next() && filled < count) {
+                        long hi = resultSet.getLong(1);
+                        for (long id = Math.max(1, hi - UserActivity.ID_ALLOCATION_SIZE + 1); id <= hi && filled < count; id++) {
+                            ids[filled++] = id;
+                        }
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void write(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    // Строка CSV: пустое поле без кавычек - NULL, пустая строка в кавычках - ''
+    private void appendRow(StringBuilder buffer, UserActivity activity) {
+        buffer.append(activity.getId()).append(',');
+        appendText(buffer, activity.getUserIpBin() != null ? null : activity.getUserIp()).append(',');
+        appendBytes(buffer, activity.getUserIpBin()).append(',');
+        appendText(buffer, activity.getSessionId()).append(',');
+        // Как и при записи через JPA: строка, закодированная ключом словаря, в свой столбец не пишется
+        appendText(buffer, activity.getPageUrlId() != null ? null : activity.getPageUrl()).append(',');
+        appendId(buffer, activity.getPageUrlId()).append(',');
+        if (activity.getEventType() != null) {
+            buffer.append(activity.getEventType().ordinal()); // Тип события хранится как порядковый номер
+        }
+        buffer.append(',');
+        appendText(buffer, EventDetailsJson.toJson(activity.getEventDetails())).append(',');
+        appendText(buffer, activity.getRefererId() != null ? null : activity.getReferer()).append(',');
+        appendId(buffer, activity.getRefererId()).append(',');
+        if (activity.getTimestamp() != null) {
+            buffer.append(activity.getTimestamp());
+        }
+        buffer.append(',');
+        if (activity.getCountEvent() != null) {
+            buffer.append(activity.getCountEvent().longValue());
+        }
+        buffer.append(',');
+        appendText(buffer, activity.getCountry()).append(',');
+        appendText(buffer, activity.getRefererHostId() != null ? null : activity.getRefererHost()).append(',');
+        appendId(buffer, activity.getRefererHostId()).append(',');
+        if (activity.getTrafficChannel() != null) {
+            buffer.append(activity.getTrafficChannel().ordinal());
+        }
+        buffer.append(',');
+        if (activity.getBotRule() != null) {
+            buffer.append(activity.getBotRule().ordinal());
+        }
+        buffer.append('\n');
+    }
+
+    // bytea в шестнадцатеричном виде \x...
+    private StringBuilder appendBytes(StringBuilder buffer, byte[] value) {
+        if (value == null) {
+            return buffer;
+        }
+        buffer.append("\\x");
+        for (byte b : value) {
+            buffer.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return buffer;
+    }
+
+    private StringBuilder appendId(StringBuilder buffer, Integer id) {
+        return id != null ? buffer.append(id.intValue()) : buffer;
+    }
+
+    private StringBuilder appendText(StringBuilder buffer, String value) {
+        if (value == null) {
+            return buffer;
+        }
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer.append('"');
+            }
+            buffer.append(c);
+        }
+        return buffer.append('"');
+    }
+}
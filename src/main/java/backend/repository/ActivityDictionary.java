@@ -0,0 +1,191 @@
+package backend.repository;
+
+import backend.config.ActivityProperties;
+import backend.model.DimensionKind;
+import backend.model.UserActivity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// Словарь URL страниц, источников и их хостов (таблица activity_dimension) с кешем в памяти в обе стороны.
+// Пакет кодируется не более чем одним запросом на вид значения, и только если в нем есть новые строки.
+// Кеш ограничен activity.dictionary.cache-capacity и вытесняет давно не использованные значения,
+// поэтому новые URL попадают в него и после заполнения.
+@Repository
+public class ActivityDictionary {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityDictionary.class);
+
+    // Незнакомые значения добавляются, уже существующие читаются тем же запросом
+    private static final String RESOLVE_SQL = "WITH input AS (SELECT DISTINCT unnest(?::text[]) AS value), " +
+            "inserted AS (INSERT INTO activity_dimension (kind, value) SELECT ?, value FROM input " +
+            "ON CONFLICT (kind, value) DO NOTHING RETURNING id, value) " +
+            "SELECT id, value FROM inserted " +
+            "UNION ALL SELECT d.id, d.value FROM activity_dimension d JOIN input i ON d.value = i.value WHERE d.kind = ?";
+    private static final String SELECT_SQL = "SELECT id, value FROM activity_dimension WHERE kind = ? AND value = ANY (?::text[])";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ActivityProperties.Dictionary settings;
+    private final LruCache<Key, Integer> ids;
+    private final LruCache<Integer, String> values;
+
+    public ActivityDictionary(JdbcTemplate jdbcTemplate, ActivityProperties activityProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.settings = activityProperties.getDictionary();
+        int capacity = Math.max(1, settings.getCacheCapacity());
+        this.ids = new LruCache<>(capacity);
+        this.values = new LruCache<>(capacity);
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    // Проставляет ключи словаря; вызывается вне транзакции записи, чтобы в кеш попадали только сохраненные ключи
+    public void encode(List<UserActivity> activities) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        encode(activities, DimensionKind.PAGE_URL, UserActivity::getPageUrl, UserActivity::setPageUrlId);
+        encode(activities, DimensionKind.REFERER, UserActivity::getReferer, UserActivity::setRefererId);
+        encode(activities, DimensionKind.REFERER_HOST, UserActivity::getRefererHost, UserActivity::setRefererHostId);
+    }
+
+    // Строка по ключу словаря
+    public String value(int id) {
+        String value = values.get(id);
+        if (value == null) {
+            List<String> found = jdbcTemplate.queryForList("SELECT value FROM activity_dimension WHERE id = ?", String.class, id);
+            if (found.isEmpty()) {
+                return null;
+            }
+            value = found.get(0);
+            values.put(id, value);
+        }
+        return value;
+    }
+
+    // Прогрев кеша при запуске
+    public void preload() {
+        int[] loaded = {0};
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("SELECT id, kind, value FROM activity_dimension ORDER BY id LIMIT ?");
+            statement.setInt(1, settings.getCacheCapacity());
+            return statement;
+        }, resultSet -> {
+            remember(DimensionKind.values()[resultSet.getInt(2)], resultSet.getString(3), resultSet.getInt(1));
+            loaded[0]++;
+        });
+        logger.info("В кеш словаря активностей загружено {} значений", loaded[0]);
+    }
+
+    public int cachedValues() {
+        return values.size();
+    }
+
+    private void encode(List<UserActivity> activities, DimensionKind kind,
+                        Function<UserActivity, String> getter, BiConsumer<UserActivity, Integer> setter) {
+        // Ключи пакета собираются заранее: значение может быть вытеснено из кеша, пока пакет кодируется
+        Map<String, Integer> known = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (UserActivity activity : activities) {
+            String value = getter.apply(activity);
+            if (value != null && !value.isEmpty() && !known.containsKey(value) && !missing.contains(value)) {
+                Integer id = ids.get(new Key(kind, value));
+                if (id != null) {
+                    known.put(value, id);
+                } else {
+                    missing.add(value);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            known.putAll(resolve(kind, missing));
+        }
+        for (UserActivity activity : activities) {
+            String value = getter.apply(activity);
+            if (value != null && !value.isEmpty()) {
+                setter.accept(activity, known.get(value));
+            }
+        }
+    }
+
+    private Map<String, Integer> resolve(DimensionKind kind, Set<String> missing) {
+        Map<String, Integer> resolved = new HashMap<>();
+        query(RESOLVE_SQL, kind, missing, resolved, true);
+        if (resolved.size() < missing.size()) {
+            // Значение одновременно добавил другой поток: оно не видно в снимке первого запроса
+            Set<String> rest = new HashSet<>(missing);
+            rest.removeAll(resolved.keySet());
+            query(SELECT_SQL, kind, rest, resolved, false);
+        }
+        return resolved;
+    }
+
+    private void query(String sql, DimensionKind kind, Set<String> input, Map<String, Integer> resolved, boolean insert) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            Array array = connection.createArrayOf("text", input.toArray());
+            if (insert) {
+                statement.setArray(1, array);
+                statement.setInt(2, kind.ordinal());
+                statement.setInt(3, kind.ordinal());
+            } else {
+                statement.setInt(1, kind.ordinal());
+                statement.setArray(2, array);
+            }
+            return statement;
+        }, resultSet -> {
+            int id = resultSet.getInt(1);
+            String value = resultSet.getString(2);
+            resolved.put(value, id);
+            remember(kind, value, id);
+        });
+    }
+
+    private void remember(DimensionKind kind, String value, int id) {
+        ids.put(new Key(kind, value), id);
+        values.put(id, value);
+    }
+
+    private record Key(DimensionKind kind, String value) {
+    }
+
+    // Кеш с вытеснением давно не использованных записей; LinkedHashMap в порядке доступа меняется и при чтении,
+    // поэтому все обращения идут под блокировкой
+    private static class LruCache<K, V> {
+        private final Map<K, V> map;
+
+        LruCache(int capacity) {
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized V get(K key) {
+            return map.get(key);
+        }
+
+        synchronized void put(K key, V value) {
+            map.put(key, value);
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+    }
+}
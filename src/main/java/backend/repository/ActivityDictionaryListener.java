@@ -0,0 +1,26 @@
+package backend.repository;
+
+import backend.model.UserActivity;
+import jakarta.persistence.PostLoad;
+
+// Подставляет строки из словаря в загруженные активности; создается Hibernate через контейнер бинов Spring
+public class ActivityDictionaryListener {
+    private final ActivityDictionary activityDictionary;
+
+    public ActivityDictionaryListener(ActivityDictionary activityDictionary) {
+        this.activityDictionary = activityDictionary;
+    }
+
+    @PostLoad
+    public void restoreDimensions(UserActivity activity) {
+        if (activity.getPageUrlId() != null) {
+            activity.setPageUrl(activityDictionary.value(activity.getPageUrlId()));
+        }
+        if (activity.getRefererId() != null) {
+            activity.setReferer(activityDictionary.value(activity.getRefererId()));
+        }
+        if (activity.getRefererHostId() != null) {
+            activity.setRefererHost(activityDictionary.value(activity.getRefererHostId()));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package backend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Групповое удаление строк user_activity командами SQL, без загрузки сущностей.
+// Каждый вызов выполняется отдельной короткой транзакцией (автофиксация JdbcTemplate).
+@Repository
+public class ActivityPurgeRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public ActivityPurgeRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Результат удаления пакета: сколько строк отобрано и удалено, последний отобранный id
+    public record Batch(long selected, long deleted, long lastId) {
+    }
+
+    public boolean exists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM user_activity)", Boolean.class));
+    }
+
+    public long count(String table, String condition, Object... args) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE " + condition, Long.class, args);
+        return count != null ? count : 0;
+    }
+
+    // Удаляет все строки, включая все секции, без построчного удаления
+    public void truncate() {
+        jdbcTemplate.execute("TRUNCATE TABLE user_activity");
+    }
+
+    // Удаляет следующий пакет подходящих строк после afterId. Проход идет по возрастанию id (по индексу
+    // первичного ключа), поэтому каждый пакет начинает с места, где остановился предыдущий,
+    // а не просматривает заново уже очищенную часть таблицы.
+    public Batch deleteBatch(String table, String condition, long afterId, int limit, Object... args) {
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(afterId);
+        parameters.addAll(List.of(args));
+        parameters.add(limit);
+        parameters.addAll(List.of(args));
+        return jdbcTemplate.queryForObject("WITH batch AS (SELECT id FROM " + table + " WHERE id > ? AND " + condition +
+                        " ORDER BY id LIMIT ?), deleted AS (DELETE FROM " + table + " WHERE id IN (SELECT id FROM batch) AND " +
+                        condition + " RETURNING 1) " +
+                        "SELECT (SELECT COUNT(*) FROM batch), (SELECT COUNT(*) FROM deleted), (SELECT MAX(id) FROM batch)",
+                (resultSet, rowNum) -> new Batch(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3)),
+                parameters.toArray());
+    }
+}
@@ -0,0 +1,46 @@
+package backend.repository;
+
+import backend.config.AnalyticsDataSource;
+import backend.dto.analitics.EventDetailStats;
+import backend.model.EventType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Запросы по ключам eventDetails (jsonb). Идут через JdbcTemplate, а не через @Query: оператор наличия ключа
+// "?" записывается для драйвера как "??", а парсер запросов Hibernate принял бы его за параметр.
+// Оба условия - "??" (ключ есть) и "@>" (вхождение) - обслуживает GIN-индекс user_activity_event_details_idx.
+// Это отчетные запросы, поэтому они выполняются через пул аналитики.
+@Repository
+@AnalyticsDataSource
+public class EventDetailsRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public EventDetailsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Группировка событий с ключом key по его значению; eventType и filter (объект JSON) необязательны
+    public List<EventDetailStats> sumByValue(String key, EventType eventType, String filter,
+                                             LocalDateTime from, LocalDateTime to, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT event_details ->> ? AS value, SUM(count_event) AS events, " +
+                "COUNT(DISTINCT " + UserActivityRepository.VISITOR_KEY + ") AS visitors FROM user_activity " +
+                "WHERE event_details ?? ? AND timestamp >= ? AND timestamp < ? AND " + UserActivityRepository.HUMAN);
+        List<Object> args = new ArrayList<>(List.of(key, key, from, to));
+        if (eventType != null) {
+            sql.append(" AND event_type = ?");
+            args.add(eventType.ordinal());
+        }
+        if (filter != null) {
+            sql.append(" AND event_details @> ?::jsonb");
+            args.add(filter);
+        }
+        sql.append(" GROUP BY 1 ORDER BY events DESC LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), (resultSet, row) -> new EventDetailStats(
+                resultSet.getString(1), resultSet.getLong(2), resultSet.getLong(3)), args.toArray());
+    }
+}
@@ -7,20 +7,98 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface UserActivityRepository extends JpaRepository<UserActivity, Long> {
 
-    List<UserActivity> findByUserIp(String userIp);
+    // Поиск по IP в пределах периода: разобранные адреса сравниваются в двоичном виде, прочие строки - как есть.
+    // Условие на timestamp позволяет не просматривать секции вне периода.
+    @Query("SELECT u FROM UserActivity u WHERE u.userIpBin = :userIpBin " +
+            "AND u.timestamp >= :from AND u.timestamp < :to")
+    List<UserActivity> findByUserIpBin(@Param("userIpBin") byte[] userIpBin,
+                                       @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT u FROM UserActivity u WHERE u.storedUserIp = :storedUserIp " +
+            "AND u.timestamp >= :from AND u.timestamp < :to")
+    List<UserActivity> findByStoredUserIp(@Param("storedUserIp") String storedUserIp,
+                                          @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 
     // JPQL запрос для группировки и суммирования
     @Query("SELECT u.eventType, SUM(u.countEvent) " +
             "FROM UserActivity u " +
-            "WHERE u.eventType IN :eventTypes " +
+            "WHERE u.eventType IN :eventTypes AND u.timestamp >= :from AND u.timestamp < :to AND u.botRule IS NULL " +
             "GROUP BY u.eventType")
-    List<Object[]> findInteractiveElementStats(@Param("eventTypes") List<EventType> eventTypes);
+    List<Object[]> findInteractiveElementStats(@Param("eventTypes") List<EventType> eventTypes,
+                                               @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 
     // Найти все события с типом MAIN_SHOP
     List<UserActivity> findByEventType(EventType eventType);
+
+    // Ключ посетителя: двоичный адрес или байты строки, если адрес не разобран
+    String VISITOR_KEY = "COALESCE(user_ip_bin, convert_to(user_ip, 'UTF8'))";
+
+    // Все запросы аналитики ограничены периодом [from, to) по timestamp - ключу секционирования
+    String IN_PERIOD = "timestamp >= :from AND timestamp < :to";
+
+    // События, отмеченные фильтром ботов (activity.bot-filter.action=TAG), аналитика не учитывает
+    String HUMAN = "bot_rule IS NULL";
+
+    @Query(value = "SELECT COUNT(DISTINCT " + VISITOR_KEY + ") FROM user_activity WHERE " + IN_PERIOD + " AND " + HUMAN, nativeQuery = true)
+    long countDistinctVisitors(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Число посетителей и суммарное время на сайте в мс: от первого ENTER до последнего EXIT
+    // (без EXIT - до :now, без ENTER или при EXIT раньше ENTER - 0)
+    @Query(value = "SELECT COUNT(*), COALESCE(SUM(CASE " +
+            "WHEN first_enter IS NULL OR COALESCE(last_exit, :now) < first_enter THEN 0 " +
+            "ELSE FLOOR(EXTRACT(EPOCH FROM (COALESCE(last_exit, :now) - first_enter)) * 1000) END), 0) FROM (" +
+            "SELECT MIN(timestamp) FILTER (WHERE event_type = :enter) AS first_enter, " +
+            "MAX(timestamp) FILTER (WHERE event_type = :exit) AS last_exit " +
+            "FROM user_activity WHERE " + IN_PERIOD + " AND " + HUMAN + " GROUP BY " + VISITOR_KEY + ") visitors", nativeQuery = true)
+    List<Object[]> sumTimeOnSite(@Param("now") LocalDateTime now, @Param("enter") int enter, @Param("exit") int exit,
+                                 @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Сумма countEvent по страницам для типа события (порядковый номер EventType).
+    // Группировка идет по целочисленному ключу словаря, URL подставляется уже для готовых групп;
+    // строки, записанные без словаря, группируются по самому URL.
+    @Query(value = "SELECT COALESCE(d.value, t.page_url) AS page_url, SUM(t.total) AS total FROM (" +
+            "SELECT page_url_id, page_url, SUM(count_event) AS total FROM user_activity " +
+            "WHERE event_type = :eventType AND (page_url_id IS NOT NULL OR page_url IS NOT NULL) AND " + IN_PERIOD + " AND " + HUMAN + " " +
+            "GROUP BY page_url_id, page_url) t " +
+            "LEFT JOIN activity_dimension d ON d.id = t.page_url_id " +
+            "GROUP BY 1 ORDER BY total DESC", nativeQuery = true)
+    List<Object[]> sumCountEventByPage(@Param("eventType") int eventType,
+                                       @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Сумма countEvent по хостам источников перехода: группировка по ключу словаря хоста или короткой строке хоста,
+    // а не по полному URL. Полный источник используется только для строк без хоста (записанных до появления
+    // столбца или с источником, не являющимся URL).
+    @Query(value = "SELECT COALESCE(h.value, t.referer_host, d.value, t.referer) AS referer, SUM(t.total) AS total FROM (" +
+            "SELECT referer_host_id, referer_host, " +
+            "CASE WHEN referer_host_id IS NULL AND referer_host IS NULL THEN referer_id END AS referer_id, " +
+            "CASE WHEN referer_host_id IS NULL AND referer_host IS NULL THEN referer END AS referer, " +
+            "SUM(count_event) AS total FROM user_activity " +
+            "WHERE (referer_host_id IS NOT NULL OR referer_host IS NOT NULL OR referer_id IS NOT NULL OR referer <> '') " +
+            "AND " + IN_PERIOD + " AND " + HUMAN + " GROUP BY 1, 2, 3, 4) t " +
+            "LEFT JOIN activity_dimension h ON h.id = t.referer_host_id " +
+            "LEFT JOIN activity_dimension d ON d.id = t.referer_id " +
+            "GROUP BY 1 ORDER BY total DESC", nativeQuery = true)
+    List<Object[]> sumCountEventByReferer(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Посетители (различные адреса) и визиты (сумма countEvent событий ENTER) по странам;
+    // строки без определенной страны собираются в группу с country = NULL
+    @Query(value = "SELECT country, COUNT(DISTINCT " + VISITOR_KEY + ") AS visitors, " +
+            "COALESCE(SUM(count_event) FILTER (WHERE event_type = :enter), 0) AS visits " +
+            "FROM user_activity WHERE " + IN_PERIOD + " AND " + HUMAN + " GROUP BY country ORDER BY visitors DESC", nativeQuery = true)
+    List<Object[]> countVisitsByCountry(@Param("enter") int enter,
+                                        @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Посетители и визиты (события ENTER) по каналам трафика; строки, записанные до классификации,
+    // собираются в группу с traffic_channel = NULL
+    @Query(value = "SELECT traffic_channel, COUNT(DISTINCT " + VISITOR_KEY + ") FILTER (WHERE event_type = :enter) AS visitors, " +
+            "COALESCE(SUM(count_event) FILTER (WHERE event_type = :enter), 0) AS visits " +
+            "FROM user_activity WHERE " + IN_PERIOD + " AND " + HUMAN + " GROUP BY traffic_channel ORDER BY visits DESC", nativeQuery = true)
+    List<Object[]> countVisitsByChannel(@Param("enter") int enter,
+                                        @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
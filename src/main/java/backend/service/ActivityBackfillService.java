@@ -0,0 +1,485 @@
+package backend.service;
+
+import backend.config.ActivityPartitionManager;
+import backend.config.ActivityProperties;
+import backend.dto.backfill.BackfillJobInfo;
+import backend.model.BackfillCheckpoint;
+import backend.model.BackfillJobState;
+import backend.model.BotFilterAction;
+import backend.model.BotRule;
+import backend.model.EventType;
+import backend.model.UserActivity;
+import backend.repository.ActivityBackfillRepository;
+import backend.repository.ActivityCopyWriter;
+import backend.repository.ActivityDictionary;
+import backend.utils.AccessLogParser;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+// Загрузка прошлых просмотров из журналов доступа nginx фоновыми заданиями (по одному за раз).
+// Файл отображается в память частями по chunk-size байт, границы частей выравниваются по концу строки.
+// Части разбираются параллельно, а записываются по порядку: обогащение, словарь и COPY, в той же транзакции
+// контрольная точка переносится на конец части. Прерванное задание при повторном запуске продолжает
+// с контрольной точки; незавершенная последняя строка (файл еще пишется) остается до следующего запуска.
+@Service
+public class ActivityBackfillService {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityBackfillService.class);
+
+    private static final int FINGERPRINT_BYTES = 64 * 1024; // Сколько байт начала файла входит в контрольную сумму
+    private static final String EVENT_DETAILS = "{\"source\":\"access-log\"}"; // Отметка загруженных событий
+
+    private final ActivityEnrichmentPipeline activityEnrichmentPipeline;
+    private final ActivityDictionary activityDictionary;
+    private final ActivityCopyWriter activityCopyWriter;
+    private final ActivityBotFilter activityBotFilter;
+    private final ActivityPartitionManager activityPartitionManager;
+    private final ActivityBackfillRepository activityBackfillRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ActivityProperties.Backfill settings;
+    private final ActivityProperties.BotFilter botFilterSettings;
+    private final ActivityProperties.Partitioning partitioningSettings;
+    private final Path directory;
+    private final String siteUrl;
+    private final Set<String> assetExtensions = new HashSet<>();
+    private final int threads;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "activity-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService parsers;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public ActivityBackfillService(ActivityEnrichmentPipeline activityEnrichmentPipeline, ActivityDictionary activityDictionary,
+                                   ActivityCopyWriter activityCopyWriter, ActivityBotFilter activityBotFilter,
+                                   ActivityPartitionManager activityPartitionManager,
+                                   ActivityBackfillRepository activityBackfillRepository,
+                                   TransactionTemplate transactionTemplate, ActivityProperties activityProperties) {
+        this.activityEnrichmentPipeline = activityEnrichmentPipeline;
+        this.activityDictionary = activityDictionary;
+        this.activityCopyWriter = activityCopyWriter;
+        this.activityBotFilter = activityBotFilter;
+        this.activityPartitionManager = activityPartitionManager;
+        this.activityBackfillRepository = activityBackfillRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.settings = activityProperties.getBackfill();
+        this.botFilterSettings = activityProperties.getBotFilter();
+        this.partitioningSettings = activityProperties.getPartitioning();
+        this.directory = Path.of(settings.getDirectory()).toAbsolutePath().normalize();
+        this.siteUrl = settings.getSiteUrl().endsWith("/")
+                ? settings.getSiteUrl().substring(0, settings.getSiteUrl().length() - 1) : settings.getSiteUrl();
+        settings.getAssetExtensions().forEach(extension -> assetExtensions.add(extension.trim().toLowerCase(Locale.ROOT)));
+        this.threads = settings.getThreads() > 0 ? settings.getThreads() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger number = new AtomicInteger();
+        this.parsers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "activity-backfill-parse-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Ставит загрузку файла в очередь; для файла, который уже загружается, возвращает текущее задание.
+    // file - путь относительно activity.backfill.directory
+    public BackfillJobInfo importFile(String file) {
+        if (file == null || file.isBlank()) {
+            throw new IllegalArgumentException("Не указан файл журнала");
+        }
+        Path path = directory.resolve(file.trim()).normalize();
+        if (!path.startsWith(directory)) {
+            throw new IllegalArgumentException("Файл должен находиться в каталоге журналов " + directory);
+        }
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Файл не найден: " + path);
+        }
+        if (path.getFileName().toString().endsWith(".gz")) {
+            // Сжатый файл нельзя отобразить в память и продолжить с произвольного смещения
+            throw new IllegalArgumentException("Сжатые журналы не поддерживаются, распакуйте файл: " + path);
+        }
+        synchronized (jobs) {
+            Optional<Job> active = jobs.values().stream()
+                    .filter(job -> job.path.equals(path) && (job.state == BackfillJobState.QUEUED || job.state == BackfillJobState.RUNNING))
+                    .findFirst();
+            if (active.isPresent()) {
+                return active.get().toInfo();
+            }
+            forgetFinishedJobs();
+            Job job = new Job(path);
+            jobs.put(job.id, job);
+            executor.execute(() -> run(job));
+            logger.info("Задание загрузки журнала {} поставлено в очередь: {}", job.id, path);
+            return job.toInfo();
+        }
+    }
+
+    public Optional<BackfillJobInfo> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(Job::toInfo);
+    }
+
+    // Задания от новых к старым
+    public List<BackfillJobInfo> getJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing((Job job) -> job.createdAt).reversed())
+                .map(Job::toInfo)
+                .toList();
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        parsers.shutdownNow();
+    }
+
+    private void run(Job job) {
+        job.startedAt = LocalDateTime.now();
+        job.state = BackfillJobState.RUNNING;
+        ArrayDeque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(job.path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            String fingerprint = fingerprint(channel, size);
+            BackfillCheckpoint checkpoint = activityBackfillRepository.find(job.path.toString())
+                    .filter(saved -> saved.getFingerprint().equals(fingerprint) && saved.getCommittedOffset() <= size)
+                    .orElseGet(() -> newCheckpoint(job.path, fingerprint));
+            job.fileBytes = size;
+            job.resumedFrom = checkpoint.getCommittedOffset();
+            job.committedBytes = checkpoint.getCommittedOffset();
+            if (job.resumedFrom > 0) {
+                logger.info("Загрузка журнала {} продолжается с байта {} из {}", job.path, job.resumedFrom, size);
+            }
+
+            // Разбор идет впереди записи не больше чем на две части на поток, чтобы не держать в памяти весь файл
+            long position = checkpoint.getCommittedOffset();
+            long nextProgressLog = System.nanoTime() + settings.getProgressLogSeconds() * 1_000_000_000L;
+            while (true) {
+                while (position < size && inFlight.size() < threads * 2) {
+                    Chunk chunk = nextChunk(channel, position, size);
+                    if (chunk == null) {
+                        break; // Дальше только незавершенная строка
+                    }
+                    position = chunk.end;
+                    inFlight.add(parsers.submit(() -> parse(chunk)));
+                }
+                if (inFlight.isEmpty()) {
+                    break;
+                }
+                ParsedChunk parsed = inFlight.poll().get();
+                write(job, checkpoint, parsed);
+                if (System.nanoTime() - nextProgressLog >= 0) {
+                    BackfillJobInfo info = job.toInfo();
+                    logger.info("Загрузка журнала {}: {}%, {} строк, записано {} событий, {} строк/с",
+                            job.path.getFileName(), String.format(Locale.ROOT, "%.1f", info.getPercent()), info.getLines(),
+                            info.getImportedEvents(), Math.round(info.getLinesPerSecond()));
+                    nextProgressLog = System.nanoTime() + settings.getProgressLogSeconds() * 1_000_000_000L;
+                }
+            }
+            job.state = BackfillJobState.COMPLETED;
+            logger.info("Задание загрузки журнала {} завершено: {} строк, записано {} событий, пропущено {}, ботов {}, ошибок формата {}",
+                    job.id, job.lines.get(), job.importedEvents.get(), job.skippedLines.get(), job.botLines.get(), job.malformedLines.get());
+        } catch (Exception e) {
+            inFlight.forEach(future -> future.cancel(true));
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            job.error = cause.getMessage();
+            job.state = BackfillJobState.FAILED;
+            logger.error("Задание загрузки журнала {} прервано на байте {}: {}", job.id, job.committedBytes, cause.getMessage(), cause);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    // Часть файла от position до конца последней полной строки в пределах chunk-size; строка длиннее части
+    // целиком попадает в увеличенную часть. null - после position нет ни одной полной строки
+    private Chunk nextChunk(FileChannel channel, long position, long size) throws IOException {
+        long length = Math.min(Math.max(1, settings.getChunkBytes()), size - position);
+        while (true) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int last = (int) length - 1;
+            while (last >= 0 && buffer.get(last) != '\n') {
+                last--;
+            }
+            if (last >= 0) {
+                return new Chunk(buffer, last + 1, position + last + 1);
+            }
+            if (position + length >= size || length >= Integer.MAX_VALUE) {
+                return null;
+            }
+            length = Math.min(Math.min(length * 2, Integer.MAX_VALUE), size - position);
+        }
+    }
+
+    // Выполняется в потоках разбора; счетчики части собираются без общих переменных
+    private ParsedChunk parse(Chunk chunk) {
+        AccessLogParser parser = new AccessLogParser(ZoneId.systemDefault());
+        Map<String, Boolean> botAgents = new HashMap<>(); // В части файла обычно немного разных User-Agent
+        ParsedChunk parsed = new ParsedChunk(chunk.end);
+        ByteBuffer buffer = chunk.buffer;
+        int lineStart = 0;
+        for (int i = 0; i < chunk.length; i++) {
+            if (buffer.get(i) != '\n') {
+                continue;
+            }
+            int lineEnd = i > lineStart && buffer.get(i - 1) == '\r' ? i - 1 : i;
+            if (lineEnd > lineStart) {
+                parsed.lines++;
+                AccessLogParser.Entry entry = parser.parse(buffer, lineStart, lineEnd);
+                if (entry == null) {
+                    parsed.malformed++;
+                } else if (isPageView(entry)) {
+                    boolean bot = botFilterSettings.isEnabled() && entry.userAgent() != null
+                            && botAgents.computeIfAbsent(entry.userAgent(), activityBotFilter::isBotUserAgent);
+                    if (bot && botFilterSettings.getAction() == BotFilterAction.DROP) {
+                        parsed.bots++;
+                    } else {
+                        UserActivity activity = toActivity(entry);
+                        if (bot) {
+                            activity.setBotRule(BotRule.USER_AGENT);
+                        }
+                        parsed.events.add(activity);
+                    }
+                } else {
+                    parsed.skipped++;
+                }
+            }
+            lineStart = i + 1;
+        }
+        return parsed;
+    }
+
+    // Успешный или закешированный (304) GET страницы, а не статики и не служебного пути
+    private boolean isPageView(AccessLogParser.Entry entry) {
+        if (!"GET".equals(entry.method()) || entry.target() == null || !entry.target().startsWith("/")
+                || !((entry.status() >= 200 && entry.status() < 300) || entry.status() == 304)) {
+            return false;
+        }
+        String target = entry.target();
+        int query = target.indexOf('?');
+        String path = query >= 0 ? target.substring(0, query) : target;
+        for (String prefix : settings.getSkipPaths()) {
+            if (!prefix.isEmpty() && path.startsWith(prefix)) {
+                return false;
+            }
+        }
+        int dot = path.lastIndexOf('.');
+        return dot <= path.lastIndexOf('/') || !assetExtensions.contains(path.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    // Сессий в журнале нет: один посетитель (адрес и User-Agent) за сутки считается одной сессией
+    private UserActivity toActivity(AccessLogParser.Entry entry) {
+        String ip = entry.remoteAddress();
+        if (settings.isTrustForwardedFor() && entry.forwardedFor() != null) {
+            int comma = entry.forwardedFor().indexOf(',');
+            ip = (comma >= 0 ? entry.forwardedFor().substring(0, comma) : entry.forwardedFor()).trim();
+        }
+        String userAgent = entry.userAgent() != null ? entry.userAgent() : "";
+        UserActivity activity = new UserActivity();
+        activity.setUserIp(ip);
+        activity.setSessionId("log-" + entry.time().toLocalDate() + "-" + Integer.toHexString(ip.hashCode())
+                + Integer.toHexString(userAgent.hashCode()));
+        activity.setPageUrl(siteUrl + entry.target());
+        activity.setEventType(EventType.VIEW);
+        activity.setEventDetails(EVENT_DETAILS);
+        activity.setReferer(entry.referer());
+        activity.setTimestamp(entry.time());
+        activity.setCountEvent(1L);
+        return activity;
+    }
+
+    // Запись части и перенос контрольной точки на ее конец - одна транзакция
+    private void write(Job job, BackfillCheckpoint checkpoint, ParsedChunk parsed) {
+        List<UserActivity> events = parsed.events;
+        if (!events.isEmpty()) {
+            ensurePartitions(job, events);
+            events = fitColumns(activityEnrichmentPipeline.process(events), parsed);
+            activityDictionary.encode(events);
+        }
+        List<UserActivity> rows = events;
+        checkpoint.setCommittedOffset(parsed.end);
+        checkpoint.setLines(checkpoint.getLines() + parsed.lines);
+        checkpoint.setImportedEvents(checkpoint.getImportedEvents() + rows.size());
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!rows.isEmpty()) {
+                activityCopyWriter.copy(rows);
+            }
+            activityBackfillRepository.save(checkpoint);
+        });
+        job.chunks.incrementAndGet();
+        job.lines.addAndGet(parsed.lines);
+        job.importedEvents.addAndGet(rows.size());
+        job.skippedLines.addAndGet(parsed.skipped);
+        job.malformedLines.addAndGet(parsed.malformed);
+        job.botLines.addAndGet(parsed.bots);
+        job.committedBytes = parsed.end;
+    }
+
+    // Значение длиннее строкового столбца база не примет, и задание падало бы на той же части при каждом
+    // продолжении. Проверка идет после обогащения: нормализация часто укорачивает URL (метки кампаний).
+    // Событие со слишком длинным URL или адресом пропускается (считается пропущенной строкой),
+    // у слишком длинного источника остаются только хост и канал.
+    private List<UserActivity> fitColumns(List<UserActivity> events, ParsedChunk parsed) {
+        List<UserActivity> fitting = new ArrayList<>(events.size());
+        for (UserActivity activity : events) {
+            if (isTooLong(activity.getPageUrl()) || isTooLong(activity.getUserIp())) {
+                parsed.skipped++;
+                continue;
+            }
+            if (isTooLong(activity.getReferer())) {
+                activity.setReferer(null);
+            }
+            if (isTooLong(activity.getRefererHost())) {
+                activity.setRefererHost(null);
+            }
+            fitting.add(activity);
+        }
+        return fitting;
+    }
+
+    private static boolean isTooLong(String value) {
+        return value != null && value.length() > UserActivity.MAX_TEXT_LENGTH;
+    }
+
+    // Секции под прошлые периоды создаются до записи, каждая проверяется один раз за задание
+    private void ensurePartitions(Job job, List<UserActivity> events) {
+        if (!partitioningSettings.isEnabled()) {
+            return;
+        }
+        for (UserActivity activity : events) {
+            LocalDate period = partitioningSettings.getInterval().floor(activity.getTimestamp().toLocalDate());
+            if (job.partitions.add(period)) {
+                activityPartitionManager.ensurePartition(activity.getTimestamp());
+            }
+        }
+    }
+
+    private static String fingerprint(FileChannel channel, long size) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, FINGERPRINT_BYTES)));
+        return Long.toHexString(crc.getValue()) + "-" + Math.min(size, FINGERPRINT_BYTES);
+    }
+
+    private static BackfillCheckpoint newCheckpoint(Path path, String fingerprint) {
+        BackfillCheckpoint checkpoint = new BackfillCheckpoint();
+        checkpoint.setPath(path.toString());
+        checkpoint.setFingerprint(fingerprint);
+        return checkpoint;
+    }
+
+    // Список заданий ограничен: самые старые завершенные забываются
+    private void forgetFinishedJobs() {
+        List<Job> finished = jobs.values().stream()
+                .filter(job -> job.finishedAt != null)
+                .sorted(Comparator.comparing((Job job) -> job.finishedAt))
+                .toList();
+        for (int i = 0; i < finished.size() - Math.max(0, settings.getKeepJobs() - 1); i++) {
+            jobs.remove(finished.get(i).id);
+        }
+    }
+
+    // Часть файла [начало, end), отображенная в память; length - длина в буфере
+    private record Chunk(MappedByteBuffer buffer, int length, long end) {
+    }
+
+    private static class ParsedChunk {
+        private final long end; // Смещение в файле после последней строки части
+        private final List<UserActivity> events = new ArrayList<>();
+        private long lines;
+        private long skipped;
+        private long malformed;
+        private long bots;
+
+        ParsedChunk(long end) {
+            this.end = end;
+        }
+    }
+
+    // Состояние задания меняет только поток загрузки, чтение идет из потоков запросов
+    private static class Job {
+        private final String id = UUID.randomUUID().toString();
+        private final Path path;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final Set<LocalDate> partitions = new HashSet<>(); // Периоды, секции которых уже проверены
+        private final AtomicLong chunks = new AtomicLong();
+        private final AtomicLong lines = new AtomicLong();
+        private final AtomicLong importedEvents = new AtomicLong();
+        private final AtomicLong skippedLines = new AtomicLong();
+        private final AtomicLong malformedLines = new AtomicLong();
+        private final AtomicLong botLines = new AtomicLong();
+        private volatile BackfillJobState state = BackfillJobState.QUEUED;
+        private volatile long fileBytes;
+        private volatile long resumedFrom;
+        private volatile long committedBytes;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        Job(Path path) {
+            this.path = path;
+        }
+
+        BackfillJobInfo toInfo() {
+            BackfillJobInfo info = new BackfillJobInfo();
+            info.setId(id);
+            info.setFile(path.toString());
+            info.setState(state);
+            info.setFileBytes(fileBytes);
+            info.setResumedFromBytes(resumedFrom);
+            info.setCommittedBytes(committedBytes);
+            info.setPercent(fileBytes > 0 ? committedBytes * 100.0 / fileBytes : 0);
+            info.setChunks(chunks.get());
+            info.setLines(lines.get());
+            info.setImportedEvents(importedEvents.get());
+            info.setSkippedLines(skippedLines.get());
+            info.setMalformedLines(malformedLines.get());
+            info.setBotLines(botLines.get());
+            info.setCreatedAt(createdAt);
+            info.setStartedAt(startedAt);
+            info.setFinishedAt(finishedAt);
+            info.setError(error);
+            LocalDateTime started = startedAt;
+            if (started != null) {
+                LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+                double seconds = Duration.between(started, end).toMillis() / 1000.0;
+                long bytes = committedBytes - resumedFrom;
+                info.setLinesPerSecond(seconds > 0 ? lines.get() / seconds : 0);
+                info.setMegabytesPerSecond(seconds > 0 ? bytes / 1_048_576.0 / seconds : 0);
+                if (state == BackfillJobState.RUNNING && bytes > 0) {
+                    info.setEtaSeconds(Math.round((fileBytes - committedBytes) * seconds / bytes));
+                }
+            }
+            return info;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package backend.service;
+
+import backend.config.ActivityProperties;
+import backend.dto.ingestion.BotFilterStats;
+import backend.model.BotFilterAction;
+import backend.model.BotRule;
+import backend.model.EventType;
+import backend.model.UserActivity;
+import backend.utils.AhoCorasickMatcher;
+import backend.utils.ExpiringKeySet;
+import backend.utils.IpAddresses;
+import backend.utils.StripedRateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Отсев ботов и шума до записи. Правила проверяются по порядку BotRule, событие засчитывается первому сработавшему.
+// User-Agent относится ко всему запросу и проверяется один раз на пакет (автомат Ахо-Корасик по всем образцам),
+// остальные правила - на каждое событие: сравнение с диапазонами, одна операция CAS ведра частоты и поиск в хеш-таблице.
+@Component
+public class ActivityBotFilter {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityBotFilter.class);
+
+    private final ActivityProperties.BotFilter settings;
+    private final AhoCorasickMatcher userAgentMatcher;
+    private final List<IpRange> ipRanges = new ArrayList<>();
+    private final StripedRateLimiter eventRate; // Частота событий по userIp
+    private final ExpiringKeySet flaggedIps; // Адреса, превысившие частоту
+    private final ExpiringKeySet enteredSessions; // Сессии, для которых был ENTER
+    private final long exitCheckFrom; // С этого момента (System.nanoTime) проверяется EXIT без ENTER
+
+    private final AtomicLong checkedEvents = new AtomicLong();
+    private final AtomicLong flaggedEvents = new AtomicLong();
+    private final AtomicLongArray ruleHits = new AtomicLongArray(BotRule.values().length);
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    public ActivityBotFilter(ActivityProperties activityProperties) {
+        this.settings = activityProperties.getBotFilter();
+        this.userAgentMatcher = new AhoCorasickMatcher(settings.getUserAgentPatterns().stream()
+                .map(pattern -> pattern.trim().toLowerCase(Locale.ROOT))
+                .filter(pattern -> !pattern.isEmpty())
+                .toList());
+        for (String range : settings.getIpRanges()) {
+            IpRange parsed = IpRange.parse(range.trim());
+            if (parsed != null) {
+                ipRanges.add(parsed);
+            } else if (!range.isBlank()) {
+                logger.warn("Диапазон адресов фильтра ботов {} не разобран и пропущен", range);
+            }
+        }
+        this.eventRate = new StripedRateLimiter(settings.getMaxEventsPerSecond(), settings.getEventBurst(),
+                Math.max(1, (long) Math.ceil(settings.getEventBurst() / settings.getMaxEventsPerSecond())), settings.getStripes());
+        this.flaggedIps = new ExpiringKeySet(settings.getFlagSeconds(), settings.getStripes());
+        this.enteredSessions = new ExpiringKeySet(settings.getSessionTtlSeconds(), settings.getStripes());
+        this.exitCheckFrom = System.nanoTime() + settings.getSessionTtlSeconds() * 1_000_000_000L;
+    }
+
+    // События людей; в режиме TAG - все события, у ботов заполнено botRule. userAgent - заголовок запроса, может быть null
+    public List<UserActivity> filter(List<UserActivity> batch, String userAgent) {
+        if (!settings.isEnabled() || batch.isEmpty()) {
+            return batch;
+        }
+        long start = System.nanoTime();
+        BotRule batchRule = isBotUserAgent(userAgent) ? BotRule.USER_AGENT : null;
+        boolean checkExits = settings.isExitWithoutEnter() && start - exitCheckFrom >= 0;
+        if (settings.isExitWithoutEnter() && batchRule == null) {
+            // Сначала входы всего пакета: EXIT может стоять в пакете раньше своего ENTER
+            for (UserActivity activity : batch) {
+                if (activity != null && activity.getEventType() == EventType.ENTER) {
+                    enteredSessions.add(sessionKey(activity));
+                }
+            }
+        }
+
+        boolean drop = settings.getAction() == BotFilterAction.DROP;
+        List<UserActivity> kept = null; // Создается только если что-то отброшено
+        long flagged = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            UserActivity activity = batch.get(i);
+            BotRule rule = activity == null ? null : batchRule != null ? batchRule : check(activity, checkExits);
+            if (rule != null) {
+                ruleHits.incrementAndGet(rule.ordinal());
+                flagged++;
+                if (drop) {
+                    if (kept == null) {
+                        kept = new ArrayList<>(batch.subList(0, i));
+                    }
+                    continue;
+                }
+                activity.setBotRule(rule);
+            }
+            if (kept != null) {
+                kept.add(activity);
+            }
+        }
+        checkedEvents.addAndGet(batch.size());
+        flaggedEvents.addAndGet(flagged);
+        totalNanos.addAndGet(System.nanoTime() - start);
+        return kept != null ? kept : batch;
+    }
+
+    // Совпадает ли User-Agent с образцами ботов; null и пустая строка - нет
+    public boolean isBotUserAgent(String userAgent) {
+        if (userAgent == null || userAgent.isEmpty()) {
+            return false; // Серверные отправители (импорт, журналы) заголовка браузера не передают
+        }
+        boolean[] found = {false};
+        userAgentMatcher.forEachMatch(userAgent.toLowerCase(Locale.ROOT), (pattern, end) -> found[0] = true);
+        return found[0];
+    }
+
+    private BotRule check(UserActivity activity, boolean checkExits) {
+        byte[] address = activity.getUserIpBin();
+        if (address != null) {
+            for (IpRange range : ipRanges) {
+                if (range.contains(address)) {
+                    return BotRule.IP_RANGE;
+                }
+            }
+        }
+        String ip = activity.getUserIp();
+        if (flaggedIps.contains(ip)) {
+            return BotRule.EVENT_RATE;
+        }
+        if (eventRate.tryAcquire(ip, 1) > 0) {
+            flaggedIps.add(ip);
+            return BotRule.EVENT_RATE;
+        }
+        if (checkExits && activity.getEventType() == EventType.EXIT && !enteredSessions.contains(sessionKey(activity))) {
+            return BotRule.EXIT_WITHOUT_ENTER;
+        }
+        return null;
+    }
+
+    // Сессия - sessionId, а без него - адрес посетителя
+    private static String sessionKey(UserActivity activity) {
+        return activity.getSessionId() != null ? activity.getSessionId() : activity.getUserIp();
+    }
+
+    public BotFilterStats getStats() {
+        Map<BotRule, Long> hits = new EnumMap<>(BotRule.class);
+        for (BotRule rule : BotRule.values()) {
+            hits.put(rule, ruleHits.get(rule.ordinal()));
+        }
+        long checked = checkedEvents.get();
+        BotFilterStats stats = new BotFilterStats();
+        stats.setEnabled(settings.isEnabled());
+        stats.setAction(settings.getAction());
+        stats.setCheckedEvents(checked);
+        stats.setFlaggedEvents(flaggedEvents.get());
+        stats.setRuleHits(hits);
+        stats.setFlaggedIps(flaggedIps.size());
+        stats.setTrackedSessions(enteredSessions.size());
+        stats.setAvgNanosPerEvent(checked > 0 ? (double) totalNanos.get() / checked : 0);
+        return stats;
+    }
+
+    // Диапазон CIDR: адрес сети в каноническом виде и длина префикса, например 66.249.64.0/19 или 2a03:2880::/32
+    private record IpRange(byte[] network, int prefix) {
+        static IpRange parse(String value) {
+            int slash = value.indexOf('/');
+            byte[] network = IpAddresses.parse(slash >= 0 ? value.substring(0, slash) : value);
+            if (network == null) {
+                return null;
+            }
+            int prefix;
+            try {
+                prefix = slash >= 0 ? Integer.parseInt(value.substring(slash + 1)) : network.length * 8;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            return prefix >= 0 && prefix <= network.length * 8 ? new IpRange(network, prefix) : null;
+        }
+
+        boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int bytes = prefix >>> 3;
+            for (int i = 0; i < bytes; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int bits = prefix & 7;
+            return bits == 0 || ((address[bytes] ^ network[bytes]) & (0xFF << (8 - bits))) == 0;
+        }
+    }
+}
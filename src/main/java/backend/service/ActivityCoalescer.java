@@ -0,0 +1,75 @@
+package backend.service;
+
+import backend.config.ActivityProperties;
+import backend.model.BotRule;
+import backend.model.EventType;
+import backend.model.TrafficChannel;
+import backend.model.UserActivity;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Склеивает одинаковые события (IP, сессия, страница, тип, источник и канал, детали, временное окно)
+// в одну строку с суммой countEvent, чтобы частые клики не превращались в тысячи строк
+@Component
+public class ActivityCoalescer {
+    private final ActivityProperties.Coalescing settings;
+
+    public ActivityCoalescer(ActivityProperties activityProperties) {
+        this.settings = activityProperties.getCoalescing();
+    }
+
+    public List<UserActivity> coalesce(List<UserActivity> userActivities) {
+        if (!settings.isEnabled() || userActivities.size() < 2) {
+            return userActivities;
+        }
+
+        long bucketSeconds = Math.max(1, settings.getBucketSeconds());
+        Map<Key, UserActivity> merged = new LinkedHashMap<>();
+        List<UserActivity> result = new ArrayList<>(userActivities.size());
+
+        for (UserActivity activity : userActivities) {
+            if (activity == null) {
+                continue;
+            }
+            // Несклеиваемые события пишем как есть
+            if (!settings.getEventTypes().contains(activity.getEventType())) {
+                result.add(activity);
+                continue;
+            }
+
+            long bucket = activity.getTimestamp().toEpochSecond(ZoneOffset.UTC) / bucketSeconds;
+            Key key = new Key(activity.getUserIp(), activity.getSessionId(), activity.getPageUrl(), activity.getEventType(),
+                    activity.getReferer(), activity.getTrafficChannel(), activity.getBotRule(), activity.getEventDetails(), bucket);
+
+            UserActivity target = merged.get(key);
+            if (target == null) {
+                activity.setCountEvent(countOf(activity));
+                merged.put(key, activity);
+                result.add(activity);
+            } else {
+                // Суммируем счетчики, время строки - самое раннее событие в окне
+                target.setCountEvent(target.getCountEvent() + countOf(activity));
+                LocalDateTime timestamp = activity.getTimestamp();
+                if (timestamp.isBefore(target.getTimestamp())) {
+                    target.setTimestamp(timestamp);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Событие без счетчика считается одним событием
+    private long countOf(UserActivity activity) {
+        return activity.getCountEvent() != null ? activity.getCountEvent() : 1L;
+    }
+
+    private record Key(String userIp, String sessionId, String pageUrl, EventType eventType,
+                       String referer, TrafficChannel trafficChannel, BotRule botRule, String eventDetails, long bucket) {
+    }
+}
@@ -0,0 +1,135 @@
+package backend.service;
+
+import backend.config.ActivityProperties;
+import backend.dto.ingestion.ConcurrencyStats;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Адаптивный предел одновременных запросов приема (градиентный алгоритм).
+// За каждое окно измеряется средняя задержка запроса и сравнивается с базовой - задержкой без нагрузки.
+// Пока задержка не выходит за rttTolerance от базовой, предел растет на sqrt(limit) за окно;
+// когда база данных замедляется и запросы начинают ждать, предел снижается пропорционально
+// baseline / rtt (не более чем вдвое за окно). Запросы сверх предела отклоняются сразу,
+// а не копятся в пуле потоков Tomcat.
+@Component
+public class ActivityConcurrencyLimiter {
+    private static final double BASELINE_WINDOWS = 60; // За сколько окон базовая задержка поднимается до новой
+    private static final double FAILURE_BACKOFF = 0.9; // Снижение предела за окно, в котором были ошибки сервера
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final ActivityProperties.Concurrency settings;
+    private final long windowNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger(); // Максимум одновременных запросов в текущем окне
+    private final AtomicLong acceptedRequests = new AtomicLong();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private volatile int limit;
+    private volatile double baselineRttNanos; // 0 - еще не измерена
+    private volatile double windowRttNanos;
+
+    // Текущее окно; меняется под блокировкой this
+    private double exactLimit;
+    private long windowStart = System.nanoTime();
+    private long windowTotalNanos;
+    private int windowSamples;
+    private boolean windowFailed;
+
+    public ActivityConcurrencyLimiter(ActivityProperties activityProperties) {
+        this.settings = activityProperties.getConcurrency();
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, settings.getWindowMs()));
+        this.exactLimit = clamp(settings.getInitialLimit());
+        this.limit = (int) exactLimit;
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    // Занимает место под запрос; false - предел исчерпан, запрос нужно отклонить
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejectedRequests.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                peakInFlight.accumulateAndGet(current + 1, Math::max);
+                acceptedRequests.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    // Освобождает место и учитывает задержку запроса, начатого в startNanos (System.nanoTime)
+    public void release(long startNanos, boolean failed) {
+        long now = System.nanoTime();
+        inFlight.decrementAndGet();
+        if (failed) {
+            failedRequests.incrementAndGet();
+        }
+        synchronized (this) {
+            windowTotalNanos += now - startNanos;
+            windowSamples++;
+            windowFailed |= failed;
+            if (now - windowStart >= windowNanos && windowSamples >= Math.max(1, settings.getMinWindowSamples())) {
+                updateLimit(now);
+            }
+        }
+    }
+
+    public ConcurrencyStats getStats() {
+        ConcurrencyStats stats = new ConcurrencyStats();
+        stats.setEnabled(settings.isEnabled());
+        stats.setLimit(limit);
+        stats.setInFlight(inFlight.get());
+        stats.setBaselineRttMillis(baselineRttNanos / 1_000_000.0);
+        stats.setWindowRttMillis(windowRttNanos / 1_000_000.0);
+        stats.setAcceptedRequests(acceptedRequests.get());
+        stats.setRejectedRequests(rejectedRequests.get());
+        stats.setFailedRequests(failedRequests.get());
+        return stats;
+    }
+
+    private void updateLimit(long now) {
+        double rtt = (double) windowTotalNanos / windowSamples;
+        int peak = peakInFlight.getAndSet(inFlight.get());
+        // База сразу опускается до более быстрого окна (иначе ее завысили бы первые запросы
+        // после запуска) и медленно поднимается, если задержка выросла надолго - например,
+        // таблица стала больше
+        double baseline = baselineRttNanos;
+        baseline = baseline == 0 || rtt < baseline ? rtt : baseline + (rtt - baseline) / BASELINE_WINDOWS;
+
+        double target;
+        if (windowFailed) {
+            target = exactLimit * FAILURE_BACKOFF;
+        } else {
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, settings.getRttTolerance() * baseline / rtt));
+            target = exactLimit * gradient + Math.sqrt(exactLimit);
+            // Нагрузка не доходила и до половины предела: по такой задержке нельзя судить,
+            // выдержит ли сервер больше
+            if (peak < exactLimit / 2) {
+                target = Math.min(target, exactLimit);
+            }
+        }
+        double smoothing = Math.max(0.01, Math.min(1.0, settings.getSmoothing()));
+        exactLimit = clamp(exactLimit * (1 - smoothing) + target * smoothing);
+        limit = (int) exactLimit;
+        baselineRttNanos = baseline;
+        windowRttNanos = rtt;
+
+        windowStart = now;
+        windowTotalNanos = 0;
+        windowSamples = 0;
+        windowFailed = false;
+    }
+
+    private double clamp(double value) {
+        int min = Math.max(1, settings.getMinLimit());
+        return Math.max(min, Math.min(Math.max(min, settings.getMaxLimit()), value));
+    }
+}
@@ -0,0 +1,16 @@
+package backend.service;
+
+import backend.model.UserActivity;
+
+import java.util.List;
+
+// Этап обогащения событий перед записью. Этап получает часть пакета и возвращает события для следующего этапа:
+// может менять их на месте или отбросить часть из них. Одна реализация вызывается из нескольких потоков
+// одновременно с разными частями пакета. Порядок этапов задается аннотацией @Order.
+public interface ActivityEnricher {
+
+    // Имя этапа в настройках activity.enrichment.stages и в статистике
+    String name();
+
+    List<UserActivity> enrich(List<UserActivity> chunk);
+}
@@ -0,0 +1,145 @@
+package backend.service;
+
+import backend.config.ActivityProperties;
+import backend.dto.ingestion.EnrichmentStageStats;
+import backend.model.UserActivity;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Конвейер обогащения событий перед записью. Пакет делится на части по chunk-size событий, каждая часть
+// проходит этапы (ActivityEnricher) по порядку, а у каждого этапа свой пул потоков: пока один этап
+// обрабатывает часть N, предыдущий уже занят частью N + 1. Медленный этап видно по очереди и времени
+// в статистике, и ему можно добавить потоков через activity.enrichment.stages.<имя>.threads.
+@Component
+public class ActivityEnrichmentPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityEnrichmentPipeline.class);
+
+    private final ActivityProperties.Enrichment settings;
+    private final List<Stage> stages = new ArrayList<>();
+
+    public ActivityEnrichmentPipeline(List<ActivityEnricher> enrichers, ActivityProperties activityProperties) {
+        this.settings = activityProperties.getEnrichment();
+        if (!settings.isEnabled()) {
+            return;
+        }
+        for (ActivityEnricher enricher : enrichers) {
+            ActivityProperties.EnrichmentStage stageSettings = settings.getStages().get(enricher.name());
+            if (stageSettings != null && !stageSettings.isEnabled()) {
+                logger.info("Этап обогащения {} отключен", enricher.name());
+                continue;
+            }
+            int threads = stageSettings != null && stageSettings.getThreads() > 0 ? stageSettings.getThreads() : settings.getThreads();
+            stages.add(new Stage(enricher, Math.max(1, threads)));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        stages.forEach(stage -> stage.executor.shutdownNow());
+    }
+
+    // Обогащенные события в исходном порядке (без отброшенных этапами)
+    public List<UserActivity> process(List<UserActivity> batch) {
+        if (stages.isEmpty() || batch.isEmpty()) {
+            return batch;
+        }
+        int chunkSize = Math.max(1, settings.getChunkSize());
+        if (batch.size() <= chunkSize) {
+            // Небольшой пакет обрабатывается в вызывающем потоке: передача в пул стоила бы дороже самой работы
+            List<UserActivity> chunk = batch;
+            for (Stage stage : stages) {
+                chunk = stage.apply(chunk);
+            }
+            return chunk;
+        }
+
+        List<CompletableFuture<List<UserActivity>>> chunks = new ArrayList<>();
+        for (int from = 0; from < batch.size(); from += chunkSize) {
+            // Копия, а не subList: этап может изменить список, не затрагивая соседние части
+            CompletableFuture<List<UserActivity>> chunk = CompletableFuture.completedFuture(
+                    new ArrayList<>(batch.subList(from, Math.min(batch.size(), from + chunkSize))));
+            for (Stage stage : stages) {
+                chunk = chunk.thenApplyAsync(stage::apply, stage.executor);
+            }
+            chunks.add(chunk);
+        }
+        List<UserActivity> enriched = new ArrayList<>(batch.size());
+        for (CompletableFuture<List<UserActivity>> chunk : chunks) {
+            enriched.addAll(chunk.join());
+        }
+        return enriched;
+    }
+
+    public List<EnrichmentStageStats> getStats() {
+        return stages.stream().map(Stage::toStats).toList();
+    }
+
+    private static class Stage {
+        private final ActivityEnricher enricher;
+        private final int threads;
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong events = new AtomicLong();
+        private final AtomicLong chunks = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Stage(ActivityEnricher enricher, int threads) {
+            this.enricher = enricher;
+            this.threads = threads;
+            AtomicInteger number = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "activity-enrich-" + enricher.name() + "-" + number.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+
+        // Ошибка этапа не должна терять события: часть передается дальше как есть
+        List<UserActivity> apply(List<UserActivity> chunk) {
+            long start = System.nanoTime();
+            try {
+                List<UserActivity> result = enricher.enrich(chunk);
+                return result != null ? result : chunk;
+            } catch (RuntimeException e) {
+                errors.incrementAndGet();
+                logger.warn("Ошибка этапа обогащения {} на {} событиях: {}", enricher.name(), chunk.size(), e.getMessage());
+                return chunk;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                events.addAndGet(chunk.size());
+                chunks.incrementAndGet();
+                totalNanos.addAndGet(elapsed);
+                maxNanos.accumulateAndGet(elapsed, Math::max);
+            }
+        }
+
+        EnrichmentStageStats toStats() {
+            EnrichmentStageStats stats = new EnrichmentStageStats();
+            long chunkCount = chunks.get();
+            long total = totalNanos.get();
+            stats.setName(enricher.name());
+            stats.setThreads(threads);
+            stats.setQueuedChunks(executor.getQueue().size());
+            stats.setEvents(events.get());
+            stats.setChunks(chunkCount);
+            stats.setErrors(errors.get());
+            stats.setAvgChunkMillis(chunkCount > 0 ? total / 1_000_000.0 / chunkCount : 0);
+            stats.setMaxChunkMillis(maxNanos.get() / 1_000_000.0);
+            stats.setEventsPerSecond(total > 0 ? events.get() * 1_000_000_000.0 / total : 0);
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,598 @@
+package backend.service;
+
+import backend.config.ActivityProperties;
+import backend.config.ConnectionPoolMetrics;
+import backend.dto.ingestion.IngestionResult;
+import backend.dto.ingestion.IngestionStats;
+import backend.dto.ingestion.SpoolStats;
+import backend.model.BatchState;
+import backend.model.IngestionMode;
+import backend.model.UserActivity;
+import backend.repository.ActivityDictionary;
+import backend.utils.ActivityBinaryCodec;
+import backend.utils.BoundedLineReader;
+import backend.utils.SegmentedSpool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Прием активностей: в режиме ASYNC пакеты кладутся в ограниченную очередь,
+// а фоновый поток забирает сразу несколько пакетов и записывает их одной транзакцией.
+// В режиме SPOOL пакеты сначала попадают в локальный журнал на диске и переносятся в базу по порядку,
+// поэтому остановка или медленная работа базы не приводит к потере событий.
+// Фоновые потоки стартуют только после миграций схемы (секционирование переименовывает таблицу).
+@Service
+@DependsOn("activitySchemaInitializer")
+public class ActivityIngestionService {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityIngestionService.class);
+
+    private final UserActivityService userActivityService;
+    private final ActivityCoalescer activityCoalescer;
+    private final BatchDeduplicator batchDeduplicator;
+    private final ActivityBotFilter activityBotFilter;
+    private final ActivityRateLimiter activityRateLimiter;
+    private final ActivitySampler activitySampler;
+    private final ActivityConcurrencyLimiter activityConcurrencyLimiter;
+    private final ActivityEnrichmentPipeline activityEnrichmentPipeline;
+    private final ActivityDictionary activityDictionary;
+    private final ConnectionPoolMetrics connectionPoolMetrics;
+    private final ActivityProperties.Ingestion settings;
+    private final ActivityProperties.Spool spoolSettings;
+    private final ObjectReader activityReader;
+    private final BlockingQueue<QueuedBatch> queue;
+
+    private final AtomicLong queuedEvents = new AtomicLong();
+    private final AtomicLong acceptedEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong droppedBatches = new AtomicLong();
+    private final AtomicLong coalescedEvents = new AtomicLong();
+    private final AtomicLong committedEvents = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong failedEvents = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong replayedEvents = new AtomicLong();
+    private final AtomicLong replayRetries = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writerThread;
+    private SegmentedSpool spool;
+
+    public ActivityIngestionService(UserActivityService userActivityService, ActivityCoalescer activityCoalescer,
+                                    BatchDeduplicator batchDeduplicator, ActivityBotFilter activityBotFilter,
+                                    ActivityRateLimiter activityRateLimiter,
+                                    ActivitySampler activitySampler, ActivityConcurrencyLimiter activityConcurrencyLimiter,
+                                    ActivityEnrichmentPipeline activityEnrichmentPipeline, ActivityDictionary activityDictionary,
+                                    ConnectionPoolMetrics connectionPoolMetrics, ActivityProperties activityProperties,
+                                    ObjectMapper objectMapper) {
+        this.userActivityService = userActivityService;
+        this.activityCoalescer = activityCoalescer;
+        this.batchDeduplicator = batchDeduplicator;
+        this.activityBotFilter = activityBotFilter;
+        this.activityRateLimiter = activityRateLimiter;
+        this.activitySampler = activitySampler;
+        this.activityConcurrencyLimiter = activityConcurrencyLimiter;
+        this.activityEnrichmentPipeline = activityEnrichmentPipeline;
+        this.activityDictionary = activityDictionary;
+        this.connectionPoolMetrics = connectionPoolMetrics;
+        this.settings = activityProperties.getIngestion();
+        this.spoolSettings = activityProperties.getSpool();
+        this.activityReader = objectMapper.readerFor(UserActivity.class);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, settings.getQueueCapacity()));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isAsync()) {
+            return;
+        }
+        running = true;
+        if (settings.getMode() == IngestionMode.SPOOL) {
+            try {
+                spool = new SegmentedSpool(Path.of(spoolSettings.getDirectory()), spoolSettings.getSegmentBytes(),
+                        spoolSettings.getMaxBytes(), spoolSettings.isForceOnAppend());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось открыть журнал активностей " + spoolSettings.getDirectory(), e);
+            }
+            writerThread = new Thread(this::replayLoop, "activity-spool-replay");
+        } else {
+            writerThread = new Thread(this::drainLoop, "activity-writer");
+        }
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("Асинхронный прием активностей запущен в режиме {}", settings.getMode());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writerThread == null) {
+            return;
+        }
+        // Перестаем принимать новые пакеты и даем потоку дописать очередь
+        running = false;
+        try {
+            writerThread.join(settings.getShutdownTimeoutMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            logger.warn("При остановке не записано {} событий", queuedEvents.get());
+        }
+        if (spool != null) {
+            // Непереигранные записи остаются на диске и будут перенесены после запуска
+            spool.close();
+        }
+    }
+
+    // Пакет ставится в очередь или журнал, а не пишется в потоке запроса
+    public boolean isAsync() {
+        return settings.getMode() != IngestionMode.SYNC;
+    }
+
+    // Начало приема пакета с идентификатором; кроме NEW пакет обрабатывать не нужно
+    public BatchState beginBatch(String batchId) {
+        if (batchId == null || !batchDeduplicator.isEnabled()) {
+            return BatchState.NEW;
+        }
+        return batchDeduplicator.tryBegin(batchId);
+    }
+
+    // Завершение приема пакета: принятый пакет запоминается, непринятый можно будет прислать снова
+    public void endBatch(String batchId, boolean accepted) {
+        if (batchId == null || !batchDeduplicator.isEnabled()) {
+            return;
+        }
+        if (accepted) {
+            batchDeduplicator.complete(batchId);
+        } else {
+            batchDeduplicator.abort(batchId);
+        }
+    }
+
+    // Проверка события при приеме: обязательные поля и значения, которые примет база.
+    // Событие, которое база отклонит, иначе сорвало бы запись всей группы, в которую попало
+    public boolean isValid(UserActivity activity) {
+        return activity != null && activity.getUserIp() != null && activity.getEventType() != null
+                && activity.getTimestamp() != null
+                && !activity.getTimestamp().isBefore(UserActivity.MIN_TIMESTAMP)
+                && !activity.getTimestamp().isAfter(UserActivity.MAX_TIMESTAMP)
+                && (activity.getCountEvent() == null || activity.getCountEvent() > 0)
+                && fitsColumn(activity.getUserIp()) && fitsColumn(activity.getSessionId())
+                && fitsColumn(activity.getPageUrl()) && fitsColumn(activity.getReferer())
+                && fitsJsonb(activity.getEventDetails());
+    }
+
+    // PostgreSQL не хранит символ NUL ни в текстовых столбцах, ни в jsonb
+    private static boolean fitsColumn(String value) {
+        return value == null || (value.length() <= UserActivity.MAX_TEXT_LENGTH && value.indexOf('\0') < 0);
+    }
+
+    // eventDetails хранится в jsonb как есть (объект JSON) или строкой JSON, где NUL превращается в \u0000
+    private static boolean fitsJsonb(String details) {
+        return details == null || (details.indexOf('\0') < 0 && !details.contains("\\u0000"));
+    }
+
+    // Потоковый прием NDJSON: одна строка - одно событие. Строки разбираются и проверяются по одной
+    // и уходят на запись порциями, поэтому память не зависит от размера тела запроса.
+    // userAgent - заголовок User-Agent запроса (для фильтра ботов), может быть null.
+    // result заполняется по ходу приема: если чтение или запись прервется исключением, в нем остается
+    // число строк уже записанных порций, и клиент продолжает отправку с этой строки, а не с начала.
+    public void ingestStream(InputStream body, String userAgent, IngestionResult result) throws IOException {
+        BoundedLineReader reader = new BoundedLineReader(body, settings.getMaxLineBytes());
+        int chunkSize = Math.max(1, settings.getStreamChunkSize());
+        List<UserActivity> chunk = new ArrayList<>(chunkSize);
+
+        // Строки и отказы засчитываются только после успешной передачи порции,
+        // чтобы по полю lines клиент мог продолжить отправку с нужного места
+        long pendingLines = 0;
+        long pendingRejected = 0;
+        while (reader.next()) {
+            pendingLines++;
+            if (reader.isBlank()) {
+                continue;
+            }
+            UserActivity activity = parseLine(reader);
+            if (isValid(activity)) {
+                chunk.add(activity);
+            } else {
+                pendingRejected++;
+            }
+            if (chunk.size() >= chunkSize) {
+                if (!dispatch(chunk, result, userAgent)) {
+                    return;
+                }
+                result.setLines(result.getLines() + pendingLines);
+                result.setRejected(result.getRejected() + pendingRejected);
+                pendingLines = 0;
+                pendingRejected = 0;
+            }
+        }
+        if (!chunk.isEmpty() && !dispatch(chunk, result, userAgent)) {
+            return;
+        }
+        result.setLines(result.getLines() + pendingLines);
+        result.setRejected(result.getRejected() + pendingRejected);
+        result.setCompleted(true);
+    }
+
+    // Прием уже разобранного пакета (бинарный формат): некорректные события пропускаются
+    public IngestionResult ingestBatch(List<UserActivity> userActivities, String userAgent) {
+        IngestionResult result = new IngestionResult();
+        List<UserActivity> valid = new ArrayList<>(userActivities.size());
+        for (UserActivity activity : userActivities) {
+            if (isValid(activity)) {
+                valid.add(activity);
+            } else {
+                result.setRejected(result.getRejected() + 1);
+            }
+        }
+        result.setCompleted(valid.isEmpty() || dispatch(valid, result, userAgent));
+        return result;
+    }
+
+    private UserActivity parseLine(BoundedLineReader reader) {
+        if (reader.isOverflow()) {
+            return null;
+        }
+        try {
+            return activityReader.readValue(reader.buffer(), 0, reader.length());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Передает порцию на запись; false - очередь переполнена и прием нужно остановить
+    private boolean dispatch(List<UserActivity> chunk, IngestionResult result, String userAgent) {
+        List<UserActivity> portion = new ArrayList<>(chunk);
+        chunk.clear();
+        if (isAsync()) {
+            return enqueue(portion, userAgent, result);
+        }
+        saveNow(portion, userAgent, result);
+        return true;
+    }
+
+    // Ставит пакет в очередь, возвращает false если очередь переполнена.
+    // В result добавляются принятые события и отброшенные лимитом на userIp
+    public boolean enqueue(List<UserActivity> batch, String userAgent, IngestionResult result) {
+        return enqueue(batch, userAgent, result, null);
+    }
+
+    // То же, но onWritten узнает, сохранен ли пакет: в режиме ASYNC - после транзакции потока записи
+    // (вызывается из него), в режиме SPOOL - сразу после записи в журнал, который переживает перезапуск.
+    // Если очередь переполнена, возвращается false и onWritten не вызывается
+    public boolean enqueue(List<UserActivity> batch, String userAgent, IngestionResult result, Consumer<Boolean> onWritten) {
+        long limitedBefore = result.getLimited();
+        List<UserActivity> userActivities = admit(batch, userAgent, result);
+        if (userActivities.isEmpty() || spool != null) {
+            boolean appended = userActivities.isEmpty() || appendToSpool(userActivities);
+            if (appended) {
+                countAccepted(result, batch, limitedBefore);
+                if (onWritten != null) {
+                    onWritten.accept(true);
+                }
+            }
+            return appended;
+        }
+        queuedEvents.addAndGet(userActivities.size());
+        if (!running || !queue.offer(new QueuedBatch(userActivities, onWritten))) {
+            queuedEvents.addAndGet(-userActivities.size());
+            droppedBatches.incrementAndGet();
+            droppedEvents.addAndGet(userActivities.size());
+            return false;
+        }
+        acceptedEvents.addAndGet(userActivities.size());
+        countAccepted(result, batch, limitedBefore);
+        return true;
+    }
+
+    // Принятыми для клиента считаются все события пакета, кроме отброшенных лимитом: отсеянные боты
+    // и прореженные события не раскрываются
+    private static void countAccepted(IngestionResult result, List<UserActivity> batch, long limitedBefore) {
+        result.setAccepted(result.getAccepted() + batch.size() - (result.getLimited() - limitedBefore));
+    }
+
+    // Пакет сохраняется в журнал одной записью в компактном бинарном формате
+    private boolean appendToSpool(List<UserActivity> userActivities) {
+        boolean appended;
+        try {
+            appended = running && spool.append(ActivityBinaryCodec.encode(userActivities));
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Ошибка записи {} активностей в журнал: {}", userActivities.size(), e.getMessage(), e);
+            appended = false;
+        }
+        if (!appended) {
+            droppedBatches.incrementAndGet();
+            droppedEvents.addAndGet(userActivities.size());
+            return false;
+        }
+        acceptedEvents.addAndGet(userActivities.size());
+        return true;
+    }
+
+    // Запись в потоке запроса (режим SYNC); result - как у enqueue
+    public List<UserActivity> saveNow(List<UserActivity> batch, String userAgent, IngestionResult result) {
+        long limitedBefore = result.getLimited();
+        List<UserActivity> userActivities = admit(batch, userAgent, result);
+        if (!userActivities.isEmpty()) {
+            acceptedEvents.addAndGet(userActivities.size());
+            userActivities = write(userActivities);
+        }
+        countAccepted(result, batch, limitedBefore);
+        return userActivities;
+    }
+
+    // Боты отсеиваются первыми и не расходуют лимит событий на userIp; лимит считается по всем остальным
+    // присланным событиям, прореживание - после него
+    private List<UserActivity> admit(List<UserActivity> batch, String userAgent, IngestionResult result) {
+        List<UserActivity> admitted = activitySampler.sample(
+                activityRateLimiter.admitEvents(activityBotFilter.filter(batch, userAgent), result));
+        // Событие без счетчика - одно событие; count_event в базе обязателен
+        for (UserActivity activity : admitted) {
+            if (activity.getCountEvent() == null) {
+                activity.setCountEvent(1L);
+            }
+        }
+        return admitted;
+    }
+
+    // Обогащает события, склеивает одинаковые, кодирует строки ключами словаря и записывает результат одной транзакцией.
+    // Обогащение идет до склейки: события, различавшиеся только записью URL, склеиваются.
+    private List<UserActivity> write(List<UserActivity> userActivities) {
+        List<UserActivity> enriched = activityEnrichmentPipeline.process(userActivities);
+        List<UserActivity> rows = activityCoalescer.coalesce(enriched);
+        coalescedEvents.addAndGet(enriched.size() - rows.size());
+        activityDictionary.encode(rows);
+        List<UserActivity> saved = userActivityService.logActivity(rows);
+        committedEvents.addAndGet(userActivities.size());
+        commits.incrementAndGet();
+        return saved;
+    }
+
+    private void drainLoop() {
+        List<QueuedBatch> drained = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedBatch first = queue.poll(settings.getPollIntervalMs(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                // Забираем все, что накопилось, пока не наберем лимит событий на транзакцию
+                List<UserActivity> group = new ArrayList<>(first.events());
+                List<Consumer<Boolean>> callbacks = new ArrayList<>();
+                if (first.onWritten() != null) {
+                    callbacks.add(first.onWritten());
+                }
+                while (group.size() < settings.getMaxCommitEvents() && queue.drainTo(drained, 1) > 0) {
+                    QueuedBatch next = drained.get(0);
+                    group.addAll(next.events());
+                    if (next.onWritten() != null) {
+                        callbacks.add(next.onWritten());
+                    }
+                    drained.clear();
+                }
+                queuedEvents.addAndGet(-group.size());
+                boolean written = flush(group);
+                for (Consumer<Boolean> callback : callbacks) {
+                    notifyWritten(callback, written);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Переносит записи журнала в базу строго по порядку. Журнал подтверждается только после
+    // успешной транзакции, поэтому при сбое между ними часть событий может быть записана повторно.
+    private void replayLoop() {
+        long backoff = spoolSettings.getRetryBackoffMs();
+        while (running) {
+            try {
+                List<UserActivity> group = new ArrayList<>();
+                List<byte[]> payloads = new ArrayList<>();
+                SegmentedSpool.Record record;
+                while (group.size() < settings.getMaxCommitEvents() && (record = spool.poll()) != null) {
+                    try {
+                        group.addAll(decodeSpooled(record.payload()));
+                        payloads.add(record.payload());
+                    } catch (IOException | IllegalArgumentException e) {
+                        logger.error("Не удалось разобрать запись журнала, она пропущена: {}", e.getMessage());
+                    }
+                }
+                if (group.isEmpty()) {
+                    spool.commit();
+                    Thread.sleep(settings.getPollIntervalMs());
+                    continue;
+                }
+                if (replay(group, payloads)) {
+                    spool.commit();
+                    backoff = spoolSettings.getRetryBackoffMs();
+                } else {
+                    spool.rewind();
+                    replayRetries.incrementAndGet();
+                    Thread.sleep(backoff);
+                    backoff = Math.min(backoff * 2, spoolSettings.getMaxRetryBackoffMs());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                logger.error("Ошибка подтверждения журнала активностей: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    // true - группа записана, а события, которые база отклонила, пропущены; false - база недоступна
+    // и запись нужно повторить. group - еще не записанные события записей журнала payloads.
+    private boolean replay(List<UserActivity> group, List<byte[]> payloads) {
+        long start = System.nanoTime();
+        try {
+            write(group);
+            replayedEvents.addAndGet(group.size());
+            return true;
+        } catch (Exception e) {
+            if (!isDataError(e)) {
+                logger.warn("База недоступна, перенос {} активностей из журнала будет повторен: {}", group.size(), e.getMessage());
+                return false;
+            }
+            if (group.size() <= 1) {
+                failedEvents.addAndGet(group.size());
+                logger.error("Активность из журнала отклонена базой и пропущена: {}", e.getMessage());
+                return true;
+            }
+            logger.warn("Группа из {} активностей журнала отклонена базой и будет записана по частям: {}",
+                    group.size(), e.getMessage());
+        } finally {
+            recordFlush(System.nanoTime() - start);
+        }
+
+        // Одно событие, которое база не принимает, не должно стоить остальных: группа делится пополам, пока
+        // не останется оно одно. Запись меняет сами объекты (склейка суммирует countEvent, COPY проставляет id),
+        // поэтому каждая часть заново декодируется из журнала. Если база откажет посреди деления, уже
+        // записанные части после повтора запишутся еще раз - как и при сбое между транзакцией и подтверждением.
+        try {
+            if (payloads.size() > 1) {
+                List<byte[]> first = payloads.subList(0, payloads.size() / 2);
+                List<byte[]> second = payloads.subList(payloads.size() / 2, payloads.size());
+                return replay(decodeSpooled(first), first) && replay(decodeSpooled(second), second);
+            }
+            List<UserActivity> events = decodeSpooled(payloads.get(0));
+            List<UserActivity> first = events.subList(0, events.size() / 2);
+            List<UserActivity> second = events.subList(events.size() / 2, events.size());
+            return replay(first, List.of(ActivityBinaryCodec.encode(first)))
+                    && replay(second, List.of(ActivityBinaryCodec.encode(second)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Записи уже разбирались при чтении журнала
+        }
+    }
+
+    private static List<UserActivity> decodeSpooled(byte[] payload) throws IOException {
+        return ActivityBinaryCodec.decodeSpooled(new ByteArrayInputStream(payload));
+    }
+
+    private static List<UserActivity> decodeSpooled(List<byte[]> payloads) throws IOException {
+        List<UserActivity> events = new ArrayList<>();
+        for (byte[] payload : payloads) {
+            events.addAll(decodeSpooled(payload));
+        }
+        return events;
+    }
+
+    // Ошибка в данных самих событий (классы SQLSTATE 22 и 23: слишком длинная строка, время вне диапазона,
+    // нарушение ограничения): повтор той же записи ее не исправит
+    private static boolean isDataError(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null
+                    && (sqlException.getSQLState().startsWith("22") || sqlException.getSQLState().startsWith("23"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean flush(List<UserActivity> group) {
+        long start = System.nanoTime();
+        try {
+            write(group);
+            return true;
+        } catch (Exception e) {
+            failedEvents.addAndGet(group.size());
+            logger.error("Ошибка групповой записи {} активностей: {}", group.size(), e.getMessage(), e);
+            return false;
+        } finally {
+            recordFlush(System.nanoTime() - start);
+        }
+    }
+
+    // Ошибка получателя не должна останавливать поток записи
+    private void notifyWritten(Consumer<Boolean> callback, boolean written) {
+        try {
+            callback.accept(written);
+        } catch (RuntimeException e) {
+            logger.warn("Ошибка обработки результата записи пакета: {}", e.getMessage(), e);
+        }
+    }
+
+    private void recordFlush(long elapsed) {
+        flushes.incrementAndGet();
+        lastFlushNanos.set(elapsed);
+        totalFlushNanos.addAndGet(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    public IngestionStats getStats() {
+        IngestionStats stats = new IngestionStats();
+        stats.setMode(settings.getMode().name());
+        stats.setQueueDepthBatches(queue.size());
+        stats.setQueueDepthEvents(queuedEvents.get());
+        stats.setQueueCapacity(settings.getQueueCapacity());
+        stats.setAcceptedEvents(acceptedEvents.get());
+        stats.setDroppedEvents(droppedEvents.get());
+        stats.setDroppedBatches(droppedBatches.get());
+        stats.setCoalescedEvents(coalescedEvents.get());
+        stats.setCommittedEvents(committedEvents.get());
+        stats.setCommits(commits.get());
+        stats.setFailedEvents(failedEvents.get());
+
+        long flushCount = flushes.get();
+        stats.setLastFlushMillis(lastFlushNanos.get() / 1_000_000.0);
+        stats.setMaxFlushMillis(maxFlushNanos.get() / 1_000_000.0);
+        stats.setAvgFlushMillis(flushCount > 0 ? totalFlushNanos.get() / 1_000_000.0 / flushCount : 0);
+        stats.setDeduplication(batchDeduplicator.getStats());
+        stats.setBotFilter(activityBotFilter.getStats());
+        stats.setRateLimit(activityRateLimiter.getStats());
+        stats.setSampling(activitySampler.getStats());
+        stats.setConcurrency(activityConcurrencyLimiter.getStats());
+        stats.setEnrichment(activityEnrichmentPipeline.getStats());
+        stats.setPools(connectionPoolMetrics.getStats());
+        if (spool != null) {
+            stats.setSpool(getSpoolStats());
+        }
+        return stats;
+    }
+
+    private SpoolStats getSpoolStats() {
+        SpoolStats stats = new SpoolStats();
+        stats.setPendingRecords(spool.pendingRecords());
+        stats.setPendingBytes(spool.pendingBytes());
+        long oldest = spool.oldestPendingTimestamp();
+        stats.setLagMillis(oldest > 0 ? Math.max(0, System.currentTimeMillis() - oldest) : 0);
+        stats.setSegments(spool.segmentCount());
+        stats.setDiskBytes(spool.diskBytes());
+        stats.setReplayedEvents(replayedEvents.get());
+        stats.setReplayRetries(replayRetries.get());
+        stats.setCorruptRecords(spool.corruptRecords());
+        return stats;
+    }
+
+    // Пакет в очереди и получатель результата его записи (null - результат никому не нужен)
+    private record QueuedBatch(List<UserActivity> events, Consumer<Boolean> onWritten) {
+    }
+}
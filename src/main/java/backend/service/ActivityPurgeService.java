@@ -0,0 +1,263 @@
+package backend.service;
+
+import backend.config.ActivityPartitionManager;
+import backend.config.ActivityProperties;
+import backend.dto.purge.PurgeJobInfo;
+import backend.model.ActivityPeriod;
+import backend.model.PurgeJobState;
+import backend.model.PurgeJobType;
+import backend.repository.ActivityPurgeRepository;
+import backend.utils.IpAddresses;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Удаление активностей фоновыми заданиями. Задания выполняются по одному в отдельном потоке:
+// секции, целиком попадающие в период, удаляются командой DROP, остальные строки - пакетами
+// в коротких транзакциях, поэтому запись активностей не ждет окончания удаления.
+@Service
+public class ActivityPurgeService {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityPurgeService.class);
+
+    private final ActivityPurgeRepository activityPurgeRepository;
+    private final ActivityPartitionManager activityPartitionManager;
+    private final ActivityProperties.Purge settings;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "activity-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public ActivityPurgeService(ActivityPurgeRepository activityPurgeRepository,
+                                ActivityPartitionManager activityPartitionManager, ActivityProperties activityProperties) {
+        this.activityPurgeRepository = activityPurgeRepository;
+        this.activityPartitionManager = activityPartitionManager;
+        this.settings = activityProperties.getPurge();
+    }
+
+    public boolean hasActivities() {
+        return activityPurgeRepository.exists();
+    }
+
+    public PurgeJobInfo purgeAll() {
+        return submit(new Job(PurgeJobType.ALL, "все активности", null, null, null));
+    }
+
+    public PurgeJobInfo purgePeriod(ActivityPeriod period) {
+        return submit(new Job(PurgeJobType.PERIOD, describe(period), period, null, null));
+    }
+
+    // Разобранный IP сравнивается с двоичным столбцом, прочие строки - с исходным текстом
+    public PurgeJobInfo purgeIp(String ip, ActivityPeriod period) {
+        byte[] address = IpAddresses.parse(ip);
+        String condition = address != null ? "user_ip_bin = ?" : "user_ip = ?";
+        Object value = address != null ? address : ip;
+        return submit(new Job(PurgeJobType.IP, "IP " + ip + ", " + describe(period), period, condition, value));
+    }
+
+    // Удаление активностей старше срока хранения; повторно не ставится, пока предыдущее не завершено
+    @Scheduled(cron = "${activity.purge.retention-cron:0 30 3 * * *}")
+    public void applyRetention() {
+        if (settings.getRetentionDays() <= 0) {
+            return;
+        }
+        boolean pending = jobs.values().stream().anyMatch(job -> job.type == PurgeJobType.RETENTION
+                && (job.state == PurgeJobState.QUEUED || job.state == PurgeJobState.RUNNING));
+        if (pending) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDate.now().minusDays(settings.getRetentionDays()).atStartOfDay();
+        ActivityPeriod period = new ActivityPeriod(ActivityPeriod.MIN, cutoff);
+        submit(new Job(PurgeJobType.RETENTION, "старше " + cutoff, period, null, null));
+    }
+
+    public Optional<PurgeJobInfo> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(Job::toInfo);
+    }
+
+    // Задания от новых к старым
+    public List<PurgeJobInfo> getJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing((Job job) -> job.createdAt).reversed())
+                .map(Job::toInfo)
+                .toList();
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private PurgeJobInfo submit(Job job) {
+        forgetFinishedJobs();
+        jobs.put(job.id, job);
+        executor.execute(() -> run(job));
+        logger.info("Задание удаления {} поставлено в очередь: {}", job.id, job.criteria);
+        return job.toInfo();
+    }
+
+    private void run(Job job) {
+        job.startedAt = LocalDateTime.now();
+        job.state = PurgeJobState.RUNNING;
+        try {
+            if (job.type == PurgeJobType.ALL) {
+                job.totalPartitions = 1;
+                job.deletedRows.set(activityPurgeRepository.count("user_activity", "TRUE"));
+                activityPurgeRepository.truncate();
+                job.processedPartitions = 1;
+            } else {
+                purgeMatching(job);
+            }
+            job.state = PurgeJobState.COMPLETED;
+            logger.info("Задание удаления {} завершено: удалено {} строк, секций целиком - {}",
+                    job.id, job.deletedRows.get(), job.droppedPartitions);
+        } catch (Exception e) {
+            job.error = e.getMessage();
+            job.state = PurgeJobState.FAILED;
+            logger.error("Задание удаления {} прервано: {}", job.id, e.getMessage(), e);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    // Обходит только секции, пересекающиеся с периодом
+    private void purgeMatching(Job job) throws InterruptedException {
+        ActivityPeriod period = job.period;
+        List<ActivityPartitionManager.Partition> targets = activityPartitionManager.isPartitioned()
+                ? activityPartitionManager.partitions().stream()
+                .filter(partition -> partition.overlaps(period.from(), period.to()))
+                .toList()
+                : List.of(new ActivityPartitionManager.Partition(ActivityPartitionManager.TABLE, null, null));
+        job.totalPartitions = targets.size();
+
+        boolean dropped = false;
+        for (ActivityPartitionManager.Partition partition : targets) {
+            boolean whole = job.extraCondition == null && !partition.isDefault()
+                    && !partition.from().isBefore(period.from()) && !partition.to().isAfter(period.to());
+            if (whole) {
+                job.deletedRows.addAndGet(activityPurgeRepository.count(partition.name(), "TRUE"));
+                activityPartitionManager.dropPartition(partition);
+                job.droppedPartitions++;
+                dropped = true;
+            } else {
+                deleteInBatches(job, partition.name());
+            }
+            job.processedPartitions++;
+        }
+        if (dropped) {
+            // Удаленные текущие и будущие секции создаются заново, чтобы новые события не копились в секции по умолчанию
+            activityPartitionManager.ensurePartitions();
+        }
+    }
+
+    private void deleteInBatches(Job job, String table) throws InterruptedException {
+        List<Object> args = new ArrayList<>(List.of(job.period.from(), job.period.to()));
+        String condition = "timestamp >= ? AND timestamp < ?";
+        if (job.extraCondition != null) {
+            condition += " AND " + job.extraCondition;
+            args.add(job.extraValue);
+        }
+        int batchSize = Math.max(1, settings.getBatchSize());
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            ActivityPurgeRepository.Batch batch =
+                    activityPurgeRepository.deleteBatch(table, condition, lastId, batchSize, args.toArray());
+            job.deletedRows.addAndGet(batch.deleted());
+            if (batch.selected() < batchSize) {
+                return;
+            }
+            lastId = batch.lastId();
+            if (settings.getBatchPauseMs() > 0) {
+                Thread.sleep(settings.getBatchPauseMs());
+            }
+        }
+    }
+
+    // Список заданий ограничен: самые старые завершенные забываются
+    private void forgetFinishedJobs() {
+        List<Job> finished = jobs.values().stream()
+                .filter(job -> job.finishedAt != null)
+                .sorted(Comparator.comparing((Job job) -> job.finishedAt))
+                .toList();
+        for (int i = 0; i < finished.size() - Math.max(0, settings.getKeepJobs() - 1); i++) {
+            jobs.remove(finished.get(i).id);
+        }
+    }
+
+    private static String describe(ActivityPeriod period) {
+        boolean fromAll = ActivityPeriod.MIN.equals(period.from());
+        boolean toAll = ActivityPeriod.MAX.equals(period.to());
+        if (fromAll && toAll) {
+            return "за все время";
+        }
+        return ((fromAll ? "" : "с " + period.from() + " ") + (toAll ? "" : "до " + period.to())).trim();
+    }
+
+    // Состояние задания меняет только поток удаления, чтение идет из потоков запросов
+    private static class Job {
+        private final String id = UUID.randomUUID().toString();
+        private final PurgeJobType type;
+        private final String criteria;
+        private final ActivityPeriod period;
+        private final String extraCondition; // Дополнительное условие отбора, например по IP
+        private final Object extraValue;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final AtomicLong deletedRows = new AtomicLong();
+        private volatile PurgeJobState state = PurgeJobState.QUEUED;
+        private volatile int totalPartitions;
+        private volatile int processedPartitions;
+        private volatile int droppedPartitions;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        Job(PurgeJobType type, String criteria, ActivityPeriod period, String extraCondition, Object extraValue) {
+            this.type = type;
+            this.criteria = criteria;
+            this.period = period;
+            this.extraCondition = extraCondition;
+            this.extraValue = extraValue;
+        }
+
+        PurgeJobInfo toInfo() {
+            PurgeJobInfo info = new PurgeJobInfo();
+            info.setId(id);
+            info.setType(type);
+            info.setCriteria(criteria);
+            info.setState(state);
+            info.setTotalPartitions(totalPartitions);
+            info.setProcessedPartitions(processedPartitions);
+            info.setDroppedPartitions(droppedPartitions);
+            info.setDeletedRows(deletedRows.get());
+            info.setCreatedAt(createdAt);
+            info.setStartedAt(startedAt);
+            info.setFinishedAt(finishedAt);
+            info.setError(error);
+            LocalDateTime started = startedAt;
+            if (started != null) {
+                LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+                double seconds = Duration.between(started, end).toMillis() / 1000.0;
+                info.setRowsPerSecond(seconds > 0 ? deletedRows.get() / seconds : 0);
+            }
+            return info;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package backend.service;
+
+import backend.config.ActivityProperties;
+import backend.dto.ingestion.IngestionResult;
+import backend.dto.ingestion.RateLimitStats;
+import backend.model.UserActivity;
+import backend.utils.StripedRateLimiter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ограничение частоты приема активностей: запросы - по IP клиента и правилам для адресов,
+// события - по UserActivity.userIp
+@Component
+public class ActivityRateLimiter {
+    private final ActivityProperties.RateLimit settings;
+    private final List<CompiledRule> rules = new ArrayList<>();
+    private final StripedRateLimiter userIpLimiter;
+    private final AtomicLong limitedEvents = new AtomicLong();
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public ActivityRateLimiter(ActivityProperties activityProperties) {
+        this.settings = activityProperties.getRateLimit();
+        for (ActivityProperties.Rule rule : settings.getRules()) {
+            rules.add(new CompiledRule(rule, new StripedRateLimiter(
+                    rule.getRequestsPerSecond(), rule.getBurst(), settings.getIdleSeconds(), settings.getStripes())));
+        }
+        this.userIpLimiter = new StripedRateLimiter(settings.getUserIpEventsPerSecond(), settings.getUserIpBurst(),
+                settings.getIdleSeconds(), settings.getStripes());
+    }
+
+    // Проверка запроса по первому подходящему правилу; 0 - разрешено, иначе сколько наносекунд подождать
+    public long checkRequest(String method, String path, String clientIp) {
+        if (!settings.isEnabled()) {
+            return 0;
+        }
+        for (CompiledRule compiled : rules) {
+            if (compiled.matches(method, path)) {
+                long wait = compiled.limiter.tryAcquire(clientIp, 1);
+                if (wait > 0) {
+                    compiled.rejected.incrementAndGet();
+                }
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    // Отбрасывает события тех userIp, которые превысили свой лимит. В result добавляется число отброшенных
+    // событий и через сколько секунд их можно прислать снова
+    public List<UserActivity> admitEvents(List<UserActivity> userActivities, IngestionResult result) {
+        if (!settings.isEnabled()) {
+            return userActivities;
+        }
+        List<UserActivity> admitted = new ArrayList<>(userActivities.size());
+        long limited = 0;
+        long maxWaitNanos = 0;
+        for (UserActivity activity : userActivities) {
+            if (activity == null) {
+                continue;
+            }
+            long wait = userIpLimiter.tryAcquire(activity.getUserIp(), 1);
+            if (wait == 0) {
+                admitted.add(activity);
+            } else {
+                limited++;
+                maxWaitNanos = Math.max(maxWaitNanos, wait);
+            }
+        }
+        if (limited > 0) {
+            limitedEvents.addAndGet(limited);
+            long retryAfterSeconds = Math.max(1, (maxWaitNanos + 999_999_999L) / 1_000_000_000L);
+            result.setLimited(result.getLimited() + limited);
+            result.setRetryAfterSeconds(Math.max(result.getRetryAfterSeconds(), retryAfterSeconds));
+        }
+        return admitted;
+    }
+
+    public RateLimitStats getStats() {
+        RateLimitStats stats = new RateLimitStats();
+        Map<String, Long> rejected = new LinkedHashMap<>();
+        int trackedClients = 0;
+        for (CompiledRule compiled : rules) {
+            rejected.put(compiled.name(), compiled.rejected.get());
+            trackedClients += compiled.limiter.size();
+        }
+        stats.setRejectedRequests(rejected);
+        stats.setTrackedClients(trackedClients);
+        stats.setLimitedEvents(limitedEvents.get());
+        stats.setTrackedUserIps(userIpLimiter.size());
+        return stats;
+    }
+
+    private class CompiledRule {
+        private final ActivityProperties.Rule rule;
+        private final StripedRateLimiter limiter;
+        private final AtomicLong rejected = new AtomicLong();
+
+        CompiledRule(ActivityProperties.Rule rule, StripedRateLimiter limiter) {
+            this.rule = rule;
+            this.limiter = limiter;
+        }
+
+        boolean matches(String method, String path) {
+            boolean methodMatches = rule.getMethod() == null || rule.getMethod().isBlank()
+                    || rule.getMethod().equalsIgnoreCase(method);
+            return methodMatches && (rule.getPath() == null || pathMatcher.match(rule.getPath(), path));
+        }
+
+        String name() {
+            return (rule.getMethod() == null || rule.getMethod().isBlank() ? "*" : rule.getMethod().toUpperCase())
+                    + " " + (rule.getPath() == null ? "/**" : rule.getPath());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package backend.service;
+
+import backend.config.ActivityProperties;
+import backend.dto.ingestion.SamplingStats;
+import backend.model.EventType;
+import backend.model.UserActivity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Взвешенное прореживание событий при приеме. Событие типа с долей rate сохраняется с вероятностью rate,
+// а его countEvent заменяется на countEvent / rate. Дробный вес округляется случайно (вверх с вероятностью,
+// равной дробной части), поэтому математическое ожидание суммы countEvent совпадает с исходной суммой.
+@Component
+public class ActivitySampler {
+    private static final Logger logger = LoggerFactory.getLogger(ActivitySampler.class);
+
+    // От этих событий зависят посетители, время на сайте и переходы в магазин: они сохраняются всегда
+    public static final Set<EventType> NEVER_SAMPLED = EnumSet.of(EventType.ENTER, EventType.EXIT, EventType.MAIN_SHOP);
+    private static final double MIN_RATE = 0.0001;
+
+    private final boolean enabled;
+    private final double[] rates = new double[EventType.values().length]; // По порядковому номеру типа
+    private final AtomicLongArray seenEvents = new AtomicLongArray(EventType.values().length);
+    private final AtomicLongArray keptEvents = new AtomicLongArray(EventType.values().length);
+
+    public ActivitySampler(ActivityProperties activityProperties) {
+        ActivityProperties.Sampling settings = activityProperties.getSampling();
+        this.enabled = settings.isEnabled();
+        for (EventType type : EventType.values()) {
+            Double rate = settings.getRates().get(type);
+            if (rate == null || rate >= 1) {
+                rates[type.ordinal()] = 1;
+            } else if (NEVER_SAMPLED.contains(type)) {
+                logger.warn("События {} не прореживаются, доля {} проигнорирована", type, rate);
+                rates[type.ordinal()] = 1;
+            } else {
+                rates[type.ordinal()] = Math.max(MIN_RATE, rate);
+            }
+        }
+    }
+
+    // Сохраненные события с пересчитанным весом; входной список не меняется, меняются только countEvent
+    public List<UserActivity> sample(List<UserActivity> batch) {
+        if (!enabled) {
+            return batch;
+        }
+        List<UserActivity> kept = null; // Создается только если что-то отброшено
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < batch.size(); i++) {
+            UserActivity activity = batch.get(i);
+            int type = activity.getEventType().ordinal();
+            seenEvents.incrementAndGet(type);
+            double rate = rates[type];
+            boolean keep = rate >= 1 || activity.getCountEvent() == null || random.nextDouble() < rate;
+            if (keep) {
+                keptEvents.incrementAndGet(type);
+                if (rate < 1 && activity.getCountEvent() != null) {
+                    double weight = activity.getCountEvent() / rate;
+                    long rounded = (long) weight;
+                    activity.setCountEvent(random.nextDouble() < weight - rounded ? rounded + 1 : rounded);
+                }
+                if (kept != null) {
+                    kept.add(activity);
+                }
+            } else if (kept == null) {
+                kept = new ArrayList<>(batch.subList(0, i));
+            }
+        }
+        return kept != null ? kept : batch;
+    }
+
+    public SamplingStats getStats() {
+        Map<EventType, Double> currentRates = new EnumMap<>(EventType.class);
+        Map<EventType, Long> seen = new EnumMap<>(EventType.class);
+        Map<EventType, Long> kept = new EnumMap<>(EventType.class);
+        for (EventType type : EventType.values()) {
+            currentRates.put(type, enabled ? rates[type.ordinal()] : 1.0);
+            seen.put(type, seenEvents.get(type.ordinal()));
+            kept.put(type, keptEvents.get(type.ordinal()));
+        }
+        SamplingStats stats = new SamplingStats();
+        stats.setEnabled(enabled);
+        stats.setRates(currentRates);
+        stats.setSeenEvents(seen);
+        stats.setKeptEvents(kept);
+        return stats;
+    }
+}
@@ -1,10 +1,16 @@
 package backend.service;
 
+import backend.config.AnalyticsDataSource;
 import backend.dto.analitics.*;
+import backend.model.ActivityPeriod;
 import backend.model.EventType;
 import backend.model.TimeOnSiteSummary;
-import backend.model.UserActivity;
+import backend.model.TrafficChannel;
+import backend.repository.EventDetailsRepository;
 import backend.repository.UserActivityRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,73 +19,96 @@ import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
+// Все запросы аналитики - транзакции только для чтения через отдельный пул соединений (DataSourceConfig):
+// они не занимают соединения, нужные для записи активностей и остальных запросов
 @Service
+@AnalyticsDataSource
+@Transactional(readOnly = true)
 public class AnalyticsService {
     private final UserActivityRepository userActivityRepository;
+    private final EventDetailsRepository eventDetailsRepository;
+    private final ObjectMapper objectMapper;
     private static final Logger logger = LoggerFactory.getLogger(AnalyticsService.class);
-    public AnalyticsService(UserActivityRepository userActivityRepository) {
+    private static final int MAX_DETAIL_VALUES = 1000;
+    public AnalyticsService(UserActivityRepository userActivityRepository, EventDetailsRepository eventDetailsRepository,
+                            ObjectMapper objectMapper) {
         this.userActivityRepository = userActivityRepository;
+        this.eventDetailsRepository = eventDetailsRepository;
+        this.objectMapper = objectMapper;
     }
 
-    public Long getUniqueVisitorsCount() {
-        return userActivityRepository.findAll().stream()
-                .map(UserActivity::getUserIp)
-                .distinct()
-                .count();
+    // Посетители различаются по двоичному адресу, подсчет идет в базе
+    public Long getUniqueVisitorsCount(ActivityPeriod period) {
+        return userActivityRepository.countDistinctVisitors(period.from(), period.to());
+    }
+
+    // Посетители и визиты по странам, определенным по IP при приеме; группировка в базе, по убыванию посетителей
+    public List<CountryStats> getVisitsByCountry(ActivityPeriod period) {
+        return userActivityRepository.countVisitsByCountry(EventType.ENTER.ordinal(), period.from(), period.to()).stream()
+                .map(row -> new CountryStats((String) row[0], ((Number) row[1]).longValue(), ((Number) row[2]).longValue()))
+                .collect(Collectors.toList());
+    }
+
+    public List<TrafficChannelStats> getVisitsByChannel(ActivityPeriod period) {
+        TrafficChannel[] channels = TrafficChannel.values();
+        return userActivityRepository.countVisitsByChannel(EventType.ENTER.ordinal(), period.from(), period.to()).stream()
+                .map(row -> new TrafficChannelStats(row[0] != null ? channels[((Number) row[0]).intValue()] : null,
+                        ((Number) row[1]).longValue(), ((Number) row[2]).longValue()))
+                .collect(Collectors.toList());
+    }
+
+    // Разбивка событий по значению ключа eventDetails, например какой товар каталога выбран в CATALOG_COUNT.
+    // filter - объект JSON, которому должны соответствовать детали события ({"section": "new"}).
+    // Некорректные параметры - IllegalArgumentException.
+    public List<EventDetailStats> getEventDetailValues(ActivityPeriod period, String key, EventType eventType,
+                                                       String filter, int limit) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalArgumentException("Не задан ключ eventDetails");
+        }
+        String filterJson = null;
+        if (filter != null && !filter.isBlank()) {
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(filter);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Фильтр не является JSON: " + e.getOriginalMessage());
+            }
+            if (node == null || !node.isObject()) {
+                throw new IllegalArgumentException("Фильтр должен быть объектом JSON");
+            }
+            filterJson = node.toString();
+        }
+        return eventDetailsRepository.sumByValue(key, eventType, filterJson, period.from(), period.to(),
+                Math.max(1, Math.min(limit, MAX_DETAIL_VALUES)));
     }
 
     // Метод для вычисления исходного трафика (Метод определяет уникальные источники трафика и число пользователей которые перешли с этого URL)
-    public List<TrafficSourceStats> getTrafficSources() {
-        return userActivityRepository.findAll().stream()
-                .filter(activity -> activity.getReferer() != null && !activity.getReferer().isEmpty()) // Фильтруем только события с заполненным referer
-                .collect(Collectors.groupingBy(
-                        UserActivity::getReferer,
-                        Collectors.summingLong(UserActivity::getCountEvent))) // Группируем по referer и суммируем countEvent
-
-                .entrySet().stream()
-                .map(entry -> {
+    public List<TrafficSourceStats> getTrafficSources(ActivityPeriod period) {
+        // Группировка по хосту источника и сумма countEvent считаются в базе, результат уже отсортирован по убыванию
+        return userActivityRepository.sumCountEventByReferer(period.from(), period.to()).stream()
+                .map(row -> {
                     TrafficSourceStats stats = new TrafficSourceStats();
-                    stats.setSource(entry.getKey()); // Устанавливаем источник трафика
-                    stats.setVisit(entry.getValue()); // Устанавливаем общее количество визитов
+                    stats.setSource((String) row[0]); // Устанавливаем источник трафика
+                    stats.setVisit(((Number) row[1]).longValue()); // Устанавливаем общее количество визитов
                     return stats;
                 })
-                .sorted((a, b) -> Long.compare(b.getVisit(), a.getVisit())) // Сортируем по убыванию количества визитов
                 .collect(Collectors.toList());
     }
 
 
-    // Метод для вычисления общего времени и среднего общего времени проведенного на сайте
-    public TimeOnSiteSummary getTimeOnSite() {
+    // Метод для вычисления общего времени и среднего общего времени проведенного на сайте.
+    // Время каждого посетителя (от первого ENTER до последнего EXIT) считается в базе группировкой по двоичному адресу.
+    public TimeOnSiteSummary getTimeOnSite(ActivityPeriod period) {
         try {
-            // Получаем все записи из репозитория
-            List<UserActivity> activities = userActivityRepository.findAll();
-
-            // Проверяем, что список не пуст
-            if (activities == null || activities.isEmpty()) {
-                throw new IllegalStateException("Список активностей пуст.");
-            }
-
-            // Группируем события по IP-адресу
-            Map<String, List<UserActivity>> activitiesByIp = activities.stream()
-                    .collect(Collectors.groupingBy(UserActivity::getUserIp));
-
-            // Вычисляем время на сайте для каждого IP-адреса
-            List<TimeOnSiteStats> timeOnSiteStatsList = activitiesByIp.entrySet().stream()
-                    .map(entry -> {
-                        String ipAddress = entry.getKey();
-                        long timeOnSite = calculateTimeOnSiteForIp(entry.getValue());
-                        return new TimeOnSiteStats(ipAddress, timeOnSite);
-                    })
-                    .collect(Collectors.toList());
-
-            // Вычисляем общее время на сайте для всех пользователей
-            long totalTimeOnSite = timeOnSiteStatsList.stream()
-                    .mapToLong(TimeOnSiteStats::getTimeOnSite)
-                    .sum();
+            Object[] result = userActivityRepository.sumTimeOnSite(
+                    LocalDateTime.now(), EventType.ENTER.ordinal(), EventType.EXIT.ordinal(),
+                    period.from(), period.to()).get(0);
+            long visitors = ((Number) result[0]).longValue();
+            long totalTimeOnSite = ((Number) result[1]).longValue();
 
             // Вычисляем среднее время на сайте
-            long averageTimeOnSite = timeOnSiteStatsList.size() > 0
-                    ? Math.round((double) totalTimeOnSite / timeOnSiteStatsList.size()) // Округляем среднее время
+            long averageTimeOnSite = visitors > 0
+                    ? Math.round((double) totalTimeOnSite / visitors) // Округляем среднее время
                     : 0;
 
             // Возвращаем результат
@@ -91,81 +120,17 @@ public class AnalyticsService {
     }
 
 
-    // Метод для вычисления времени на сайте для одного IP-адреса
-    private long calculateTimeOnSiteForIp(List<UserActivity> activities) {
-        // Сортируем события по времени
-        activities.sort(Comparator.comparing(UserActivity::getTimestamp));
-
-        // Находим первое событие ENTER
-        LocalDateTime firstEnter = activities.stream()
-                .filter(activity -> EventType.ENTER.equals(activity.getEventType()))
-                .map(UserActivity::getTimestamp)
-                .findFirst()
-                .orElse(null);
-
-        // Если нет ENTER, время на сайте равно 0
-        if (firstEnter == null) {
-            System.out.println("Для IP-адреса " + activities.get(0).getUserIp() + " отсутствует событие ENTER.");
-            return 0;
-        }
-
-        // Находим последнее событие EXIT
-        LocalDateTime lastExit = activities.stream()
-                .filter(activity -> EventType.EXIT.equals(activity.getEventType()))
-                .map(UserActivity::getTimestamp)
-                .max(LocalDateTime::compareTo)
-                .orElse(null);
-
-        // Если EXIT отсутствует, используем текущее время
-        if (lastExit == null) {
-            lastExit = LocalDateTime.now(); // Текущее время
-            System.out.println("Для IP-адреса " + activities.get(0).getUserIp() + " отсутствует событие EXIT. Используется текущее время: " + lastExit);
-        }
-
-        // Проверяем, чтобы время не было отрицательным
-        if (lastExit.isBefore(firstEnter)) {
-            System.out.println("Ошибка: время последнего события EXIT меньше времени первого события ENTER для IP-адреса " + activities.get(0).getUserIp());
-            return 0;
-        }
-
-        // Вычисляем время на сайте между первым ENTER и последним EXIT
-        return java.time.Duration.between(firstEnter, lastExit).toMillis();
-    }
-
-
     // Метод для вычисления популярных страниц (метод выводит популярные страницы и число посещений)
-    public List<PageStats> getPopularPages() {
+    public List<PageStats> getPopularPages(ActivityPeriod period) {
         try {
-            // Получаем все записи из репозитория
-            List<UserActivity> activities = userActivityRepository.findAll();
-
-            // Проверяем, что список не пуст
-            if (activities == null || activities.isEmpty()) {
-                throw new IllegalStateException("Список активностей пуст.");
-            }
-
-            return activities.stream()
-                    .filter(activity -> EventType.VIEW.equals(activity.getEventType())) // Фильтруем только события VIEW
-                    .collect(Collectors.groupingBy(UserActivity::getPageUrl)) // Группируем по pageUrl
-                    .entrySet().stream()
-                    .map(entry -> {
-                        // Проверяем, что список событий для текущей группы не пуст
-                        if (entry.getValue() == null || entry.getValue().isEmpty()) {
-                            throw new IllegalStateException("Список событий для страницы " + entry.getKey() + " пуст.");
-                        }
-
+            // Сумма countEvent событий VIEW по страницам считается в базе, результат отсортирован по убыванию
+            return userActivityRepository.sumCountEventByPage(EventType.VIEW.ordinal(), period.from(), period.to()).stream()
+                    .map(row -> {
                         PageStats stats = new PageStats();
-                        stats.setPageUrl(entry.getKey()); // Устанавливаем URL страницы
-
-                        // Считаем сумму countEvent для каждой группы
-                        long totalViews = entry.getValue().stream()
-                                .mapToLong(UserActivity::getCountEvent)
-                                .sum();
-
-                        stats.setViews((int) totalViews); // Устанавливаем общее количество просмотров
+                        stats.setPageUrl((String) row[0]); // Устанавливаем URL страницы
+                        stats.setViews(((Number) row[1]).intValue()); // Устанавливаем общее количество просмотров
                         return stats;
                     })
-                    .sorted((a, b) -> b.getViews() - a.getViews()) // Сортируем по убыванию просмотров
                     .collect(Collectors.toList());
         } catch (Exception e) {
             System.out.println("Ошибка при вычислении популярных страниц: " + e.getMessage());
@@ -174,31 +139,18 @@ public class AnalyticsService {
     }
 
     //Метод вычисляет с какой страницы перешли на сайт основного магазина и количество пользователей
-    public List<StoreLinkStats> getStoreLinkStats() {
+    public List<StoreLinkStats> getStoreLinkStats(ActivityPeriod period) {
         try {
             // Логирование начала выполнения метода
             logger.info("Начинаем получение статистики по переходам на основной магазин с нашего сайта");
 
-            // Получаем все события с типом MAIN_SHOP из базы данных
-            List<UserActivity> mainShopEvents = userActivityRepository.findByEventType(EventType.MAIN_SHOP);
-
-            // Логирование количества найденных событий
-            logger.info("Найдено {} событий с типом MAIN_SHOP", mainShopEvents.size());
-
-            // Группируем по page_url и подсчитываем количество переходов
-            Map<String, Long> linkClicksMap = mainShopEvents.stream()
-                    .collect(Collectors.groupingBy(
-                            UserActivity::getPageUrl, // Группировка по page_url
-                            Collectors.summingLong(UserActivity::getCountEvent) // Суммируем countEvent
-                    ));
+            // Группируем события MAIN_SHOP по page_url и суммируем countEvent на стороне базы
+            List<StoreLinkStats> result = userActivityRepository.sumCountEventByPage(EventType.MAIN_SHOP.ordinal(), period.from(), period.to()).stream()
+                    .map(row -> new StoreLinkStats((String) row[0], ((Number) row[1]).longValue()))
+                    .collect(Collectors.toList());
 
             // Логирование результата группировки
-            logger.info("Сгруппированные события по page_url: {}", linkClicksMap);
-
-            // Преобразуем результат в список StoreLinkStats
-            List<StoreLinkStats> result = linkClicksMap.entrySet().stream()
-                    .map(entry -> new StoreLinkStats(entry.getKey(), entry.getValue()))
-                    .collect(Collectors.toList());
+            logger.info("Найдено {} страниц с переходами на основной магазин", result.size());
 
             // Логирование успешного завершения
             logger.info("Успешно получена статистика по переходам на основной магазин");
@@ -215,7 +167,7 @@ public class AnalyticsService {
 
     // Метод для вычисления взаимодействий с интерактивными элементами
     @Transactional(readOnly = true)
-    public List<InteractiveElementStats> getInteractiveElementInteractions() {
+    public List<InteractiveElementStats> getInteractiveElementInteractions(ActivityPeriod period) {
         try {
             // Список нужных типов событий
             List<EventType> eventTypes = Arrays.asList(
@@ -227,7 +179,7 @@ public class AnalyticsService {
             );
 
             // Выполняем запрос с фильтрацией по нужным типам
-            List<Object[]> results = userActivityRepository.findInteractiveElementStats(eventTypes);
+            List<Object[]> results = userActivityRepository.findInteractiveElementStats(eventTypes, period.from(), period.to());
 
             if (results == null || results.isEmpty()) {
                 throw new IllegalStateException("Результаты запроса пусты или отсутствуют.");
@@ -0,0 +1,221 @@
+package backend.service;
+
+import backend.config.ActivityProperties;
+import backend.dto.ingestion.DeduplicationStats;
+import backend.model.BatchState;
+import org.apache.commons.codec.digest.MurmurHash3;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+// Подавление повторно присланных пакетов по идентификатору X-Batch-Id.
+// Последние идентификаторы хранятся точно, более старые - в двух поколениях фильтра Блума,
+// которые сменяются раз в окно, поэтому память ограничена независимо от потока пакетов.
+// Пакет считается принятым только после complete(): пока первая попытка обрабатывается, ее идентификатор
+// хранится отдельно, и повтор получает IN_PROGRESS, а не DUPLICATE - иначе при неудаче первой попытки пакет потерялся бы.
+@Component
+public class BatchDeduplicator {
+    public static final int MAX_BATCH_ID_LENGTH = 128;
+    private static final long EXACT_ENTRY_BYTES = 120; // Оценка памяти на одну запись точного множества
+
+    private final ActivityProperties.Deduplication settings;
+    private final LongSupplier clock; // Текущее время в миллисекундах
+    private final long windowMillis;
+    private final long bitCount;
+    private final int hashCount;
+
+    private final Map<String, Long> exact = new ConcurrentHashMap<>(); // Идентификатор -> время приема
+    private final Map<String, Long> inFlight = new ConcurrentHashMap<>(); // Обрабатываемые пакеты -> время начала
+    private final Queue<String> exactOrder = new ConcurrentLinkedQueue<>();
+    private volatile BloomGeneration current;
+    private volatile BloomGeneration previous;
+
+    private final AtomicLong checkedBatches = new AtomicLong();
+    private final AtomicLong duplicateBatches = new AtomicLong();
+    private final AtomicLong bloomOnlyDuplicates = new AtomicLong();
+    private final AtomicLong inProgressBatches = new AtomicLong();
+
+    @Autowired
+    public BatchDeduplicator(ActivityProperties activityProperties) {
+        this(activityProperties, System::currentTimeMillis);
+    }
+
+    // Для тестов: смена поколений фильтра Блума без ожидания окна
+    BatchDeduplicator(ActivityProperties activityProperties, LongSupplier clock) {
+        this.settings = activityProperties.getDeduplication();
+        this.clock = clock;
+        this.windowMillis = Math.max(1, settings.getWindowMinutes()) * 60_000;
+
+        // Классический расчет: m = -n ln p / (ln 2)^2, k = m / n * ln 2
+        int expected = Math.max(1, settings.getExpectedBatches());
+        double rate = Math.min(0.5, Math.max(1e-12, settings.getFalsePositiveRate()));
+        long bits = (long) Math.ceil(-expected * Math.log(rate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = Math.max(64, (bits + 63) / 64 * 64);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expected * Math.log(2)));
+
+        long now = clock.getAsLong();
+        this.current = new BloomGeneration(bitCount, now);
+        this.previous = new BloomGeneration(bitCount, now);
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    // Начинает обработку пакета; NEW - пакет нужно обработать и затем вызвать complete() или abort()
+    public BatchState tryBegin(String batchId) {
+        long now = clock.getAsLong();
+        rotateIfNeeded(now);
+        checkedBatches.incrementAndGet();
+
+        BatchState state = acceptedState(batchId);
+        if (state != null) {
+            return state;
+        }
+        if (inFlight.putIfAbsent(batchId, now) != null) {
+            inProgressBatches.incrementAndGet();
+            return BatchState.IN_PROGRESS;
+        }
+        // Первая попытка могла завершиться между проверкой и захватом
+        state = acceptedState(batchId);
+        if (state != null) {
+            inFlight.remove(batchId);
+            return state;
+        }
+        return BatchState.NEW;
+    }
+
+    // DUPLICATE, если пакет уже принят, иначе null
+    private BatchState acceptedState(String batchId) {
+        if (exact.containsKey(batchId)) {
+            duplicateBatches.incrementAndGet();
+            return BatchState.DUPLICATE;
+        }
+        long[] hash = hash(batchId);
+        if (current.mightContain(hash) || previous.mightContain(hash)) {
+            duplicateBatches.incrementAndGet();
+            bloomOnlyDuplicates.incrementAndGet();
+            return BatchState.DUPLICATE;
+        }
+        return null;
+    }
+
+    // Пакет принят: запоминаем его точно и в фильтре Блума, чтобы он пережил вытеснение из точного множества
+    public void complete(String batchId) {
+        long now = clock.getAsLong();
+        current.add(hash(batchId));
+        if (exact.put(batchId, now) == null) {
+            exactOrder.add(batchId);
+        }
+        inFlight.remove(batchId);
+        evictExact(now);
+    }
+
+    // Пакет не принят (например, очередь переполнена): клиент должен иметь возможность повторить его
+    public void abort(String batchId) {
+        inFlight.remove(batchId);
+    }
+
+    private void rotateIfNeeded(long now) {
+        if (now - current.createdAt < windowMillis) {
+            return;
+        }
+        synchronized (this) {
+            if (now - current.createdAt >= windowMillis) {
+                previous = current;
+                current = new BloomGeneration(bitCount, now);
+            }
+        }
+    }
+
+    private void evictExact(long now) {
+        int capacity = Math.max(1, settings.getExactCapacity());
+        String oldest;
+        while ((oldest = exactOrder.peek()) != null) {
+            Long acceptedAt = exact.get(oldest);
+            boolean expired = acceptedAt == null || now - acceptedAt > windowMillis;
+            if (!expired && exact.size() <= capacity) {
+                return;
+            }
+            if (exactOrder.poll() != null) {
+                exact.remove(oldest);
+            }
+        }
+    }
+
+    private long[] hash(String batchId) {
+        return MurmurHash3.hash128x64(batchId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public DeduplicationStats getStats() {
+        DeduplicationStats stats = new DeduplicationStats();
+        stats.setCheckedBatches(checkedBatches.get());
+        stats.setDuplicateBatches(duplicateBatches.get());
+        stats.setBloomOnlyDuplicates(bloomOnlyDuplicates.get());
+        stats.setInProgressBatches(inProgressBatches.get());
+        stats.setExactEntries(exact.size());
+        stats.setInFlightEntries(inFlight.size());
+
+        double currentFill = current.fillRatio();
+        double previousFill = previous.fillRatio();
+        stats.setBloomFillRatio(currentFill);
+        // Ложное срабатывание любого из двух поколений: 1 - (1 - f1^k)(1 - f2^k)
+        double currentRate = Math.pow(currentFill, hashCount);
+        double previousRate = Math.pow(previousFill, hashCount);
+        stats.setEstimatedFalsePositiveRate(1 - (1 - currentRate) * (1 - previousRate));
+        stats.setMemoryBytes(2 * bitCount / 8 + (exact.size() + inFlight.size()) * EXACT_ENTRY_BYTES);
+        return stats;
+    }
+
+    private class BloomGeneration {
+        private final AtomicLongArray words;
+        private final AtomicLong setBits = new AtomicLong();
+        private final long createdAt;
+
+        BloomGeneration(long bits, long createdAt) {
+            this.words = new AtomicLongArray((int) (bits / 64));
+            this.createdAt = createdAt;
+        }
+
+        // Двойное хеширование: i-й индекс = h1 + i * h2
+        void add(long[] hash) {
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(hash[0] + i * hash[1], bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << (bit & 63);
+                long value;
+                do {
+                    value = words.get(word);
+                    if ((value & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(word, value, value | mask));
+                if ((value & mask) == 0) {
+                    setBits.incrementAndGet();
+                }
+            }
+        }
+
+        boolean mightContain(long[] hash) {
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(hash[0] + i * hash[1], bitCount);
+                if ((words.get((int) (bit >>> 6)) & (1L << (bit & 63))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        double fillRatio() {
+            return (double) setBits.get() / bitCount;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package backend.service;
+
+import backend.config.ActivityProperties;
+import backend.model.UserActivity;
+import backend.utils.GeoIpIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+// Код страны посетителя по его адресу из локального индекса диапазонов (activity.geo-ip.file).
+// Без файла или при ошибке его загрузки этап ничего не делает: страна остается пустой.
+@Component
+@Order(30)
+public class GeoIpEnricher implements ActivityEnricher {
+    private static final Logger logger = LoggerFactory.getLogger(GeoIpEnricher.class);
+
+    private final GeoIpIndex index;
+
+    public GeoIpEnricher(ActivityProperties activityProperties) {
+        this.index = load(activityProperties.getGeoIp());
+    }
+
+    @Override
+    public String name() {
+        return "geo-ip";
+    }
+
+    @Override
+    public List<UserActivity> enrich(List<UserActivity> chunk) {
+        if (index == null) {
+            return chunk;
+        }
+        for (UserActivity activity : chunk) {
+            activity.setCountry(index.lookup(activity.getUserIpBin()));
+        }
+        return chunk;
+    }
+
+    private static GeoIpIndex load(ActivityProperties.GeoIp settings) {
+        if (!settings.isEnabled() || settings.getFile() == null || settings.getFile().isBlank()) {
+            logger.info("Файл диапазонов GeoIP не задан, страна посетителей не определяется");
+            return null;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            GeoIpIndex index = GeoIpIndex.load(Path.of(settings.getFile()));
+            logger.info("Загружен индекс GeoIP {}: {} диапазонов, {} стран, пропущено строк {}, {} мс",
+                    settings.getFile(), index.size(), index.countries(), index.skippedLines(),
+                    System.currentTimeMillis() - started);
+            return index;
+        } catch (IOException e) {
+            logger.error("Не удалось загрузить индекс GeoIP {}: {}", settings.getFile(), e.getMessage());
+            return null;
+        }
+    }
+}
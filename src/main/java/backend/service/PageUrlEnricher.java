@@ -0,0 +1,34 @@
+package backend.service;
+
+import backend.config.ActivityProperties;
+import backend.model.UserActivity;
+import backend.utils.UrlNormalizer;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Канонический URL страницы: варианты одного адреса (регистр хоста, "/" в конце, метки кампаний)
+// попадают в одну строку статистики и в один ключ словаря
+@Component
+@Order(10)
+public class PageUrlEnricher implements ActivityEnricher {
+    private final UrlNormalizer urlNormalizer;
+
+    public PageUrlEnricher(ActivityProperties activityProperties) {
+        this.urlNormalizer = new UrlNormalizer(activityProperties.getEnrichment().getTrackingParameters());
+    }
+
+    @Override
+    public String name() {
+        return "page-url";
+    }
+
+    @Override
+    public List<UserActivity> enrich(List<UserActivity> chunk) {
+        for (UserActivity activity : chunk) {
+            activity.setPageUrl(urlNormalizer.normalize(activity.getPageUrl()));
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,33 @@
+package backend.service;
+
+import backend.config.ActivityProperties;
+import backend.model.UserActivity;
+import backend.utils.UrlNormalizer;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Нормализация источника перехода; пустой источник (прямой заход) сохраняется как null
+@Component
+@Order(20)
+public class RefererEnricher implements ActivityEnricher {
+    private final UrlNormalizer urlNormalizer;
+
+    public RefererEnricher(ActivityProperties activityProperties) {
+        this.urlNormalizer = new UrlNormalizer(activityProperties.getEnrichment().getTrackingParameters());
+    }
+
+    @Override
+    public String name() {
+        return "referer";
+    }
+
+    @Override
+    public List<UserActivity> enrich(List<UserActivity> chunk) {
+        for (UserActivity activity : chunk) {
+            activity.setReferer(urlNormalizer.normalize(activity.getReferer()));
+        }
+        return chunk;
+    }
+}
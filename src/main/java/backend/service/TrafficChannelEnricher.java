@@ -0,0 +1,111 @@
+package backend.service;
+
+import backend.config.ActivityProperties;
+import backend.model.TrafficChannel;
+import backend.model.UserActivity;
+import backend.utils.AhoCorasickMatcher;
+import backend.utils.UrlNormalizer;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Хост источника и канал трафика. Правила activity.traffic.hosts компилируются при запуске в один автомат
+// Ахо-Корасик, поэтому классификация - один проход по хосту независимо от числа правил. Этап идет до
+// канонизации URL страницы: метки кампаний (utm_* и т.п.) нужны здесь и удаляются следующим этапом.
+@Component
+@Order(5)
+public class TrafficChannelEnricher implements ActivityEnricher {
+    private final boolean enabled;
+    private final AhoCorasickMatcher matcher;
+    private final List<TrafficChannel> channels = new ArrayList<>(); // Канал правила по его номеру в автомате
+    private final List<String> internalHosts = new ArrayList<>();
+    private final UrlNormalizer campaignParameters;
+
+    public TrafficChannelEnricher(ActivityProperties activityProperties) {
+        ActivityProperties.Traffic settings = activityProperties.getTraffic();
+        this.enabled = settings.isEnabled();
+        List<String> patterns = new ArrayList<>();
+        for (Map.Entry<TrafficChannel, List<String>> rule : settings.getHosts().entrySet()) {
+            for (String host : rule.getValue()) {
+                String pattern = host.trim().toLowerCase(Locale.ROOT);
+                if (!pattern.isEmpty()) {
+                    patterns.add(pattern);
+                    channels.add(rule.getKey());
+                }
+            }
+        }
+        this.matcher = new AhoCorasickMatcher(patterns);
+        for (String host : settings.getInternalHosts()) {
+            String value = host.trim().toLowerCase(Locale.ROOT);
+            if (!value.isEmpty()) {
+                internalHosts.add(value.startsWith("www.") ? value.substring(4) : value);
+            }
+        }
+        this.campaignParameters = new UrlNormalizer(settings.getCampaignParameters());
+    }
+
+    @Override
+    public String name() {
+        return "traffic-channel";
+    }
+
+    @Override
+    public List<UserActivity> enrich(List<UserActivity> chunk) {
+        if (!enabled) {
+            return chunk;
+        }
+        for (UserActivity activity : chunk) {
+            String host = UrlNormalizer.host(activity.getReferer());
+            activity.setRefererHost(host);
+            activity.setTrafficChannel(classify(host, activity.getPageUrl()));
+        }
+        return chunk;
+    }
+
+    // Порядок важен: метки кампании в URL страницы сильнее источника, затем свой сайт, затем правила
+    TrafficChannel classify(String host, String pageUrl) {
+        if (campaignParameters.hasParameter(pageUrl)) {
+            return TrafficChannel.CAMPAIGN;
+        }
+        if (host == null) {
+            return TrafficChannel.DIRECT;
+        }
+        if (isInternal(host, pageUrl)) {
+            return TrafficChannel.INTERNAL;
+        }
+        TrafficChannel channel = match(host);
+        return channel != null ? channel : TrafficChannel.REFERRAL;
+    }
+
+    private boolean isInternal(String host, String pageUrl) {
+        if (host.equals(UrlNormalizer.host(pageUrl))) {
+            return true;
+        }
+        for (String internal : internalHosts) {
+            if (host.equals(internal) || host.endsWith(internal) && host.charAt(host.length() - internal.length() - 1) == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Самое длинное правило, совпавшее с целыми метками хоста: начинается с начала хоста или после ".",
+    // заканчивается в конце хоста, перед "." или само оканчивается на "."
+    private TrafficChannel match(String host) {
+        int[] best = {-1};
+        matcher.forEachMatch(host, (pattern, end) -> {
+            int length = matcher.patternLength(pattern);
+            int start = end - length;
+            boolean startsLabel = start == 0 || host.charAt(start - 1) == '.';
+            boolean endsLabel = end == host.length() || host.charAt(end - 1) == '.' || host.charAt(end) == '.';
+            if (startsLabel && endsLabel && (best[0] < 0 || length > matcher.patternLength(best[0]))) {
+                best[0] = pattern;
+            }
+        });
+        return best[0] >= 0 ? channels.get(best[0]) : null;
+    }
+}
@@ -1,7 +1,11 @@
 package backend.service;
 
+import backend.config.ActivityProperties;
+import backend.model.ActivityPeriod;
 import backend.model.UserActivity;
+import backend.repository.ActivityCopyWriter;
 import backend.repository.UserActivityRepository;
+import backend.utils.IpAddresses;
 import jakarta.persistence.EntityManager;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,16 +17,27 @@ import java.util.List;
 public class UserActivityService {
     private final UserActivityRepository userActivityRepository;
     private final EntityManager entityManager;
+    private final ActivityCopyWriter activityCopyWriter;
+    private final ActivityProperties.Ingestion settings;
 
-    public UserActivityService(UserActivityRepository userActivityRepository, EntityManager entityManager) {
+    public UserActivityService(UserActivityRepository userActivityRepository, EntityManager entityManager,
+                               ActivityCopyWriter activityCopyWriter, ActivityProperties activityProperties) {
         this.userActivityRepository = userActivityRepository;
         this.entityManager = entityManager;
+        this.activityCopyWriter = activityCopyWriter;
+        this.settings = activityProperties.getIngestion();
     }
 
     @Transactional
     public List<UserActivity> logActivity(List<UserActivity> userActivities) {
+        // Крупные пакеты загружаем через COPY, мелкие - через JPA
+        int copyThreshold = settings.getCopyThreshold();
+        if (copyThreshold > 0 && userActivities.size() >= copyThreshold) {
+            return activityCopyWriter.copy(userActivities);
+        }
+
         List<UserActivity> savedActivities = new ArrayList<>();
-        int batchSize = 50; // Размер пакета
+        int batchSize = UserActivity.ID_ALLOCATION_SIZE; // Размер пакета, совпадает с hibernate.jdbc.batch_size
 
         for (int i = 0; i < userActivities.size(); i++) {
             UserActivity activity = userActivities.get(i);
@@ -30,8 +45,8 @@ public class UserActivityService {
                 userActivityRepository.save(activity); // Сохранение активности
                 savedActivities.add(activity); // Добавление в список сохраненных активностей
 
-                // Пакетная обработка
-                if (i > 0 && i % batchSize == 0) {
+                // Пакетная обработка: сбрасываем ровно по заполнению JDBC-пакета
+                if (savedActivities.size() % batchSize == 0) {
                     entityManager.flush(); // Синхронизация с базой данных
                     entityManager.clear(); // Очистка контекста Persistence
                 }
@@ -41,12 +56,17 @@ public class UserActivityService {
         return savedActivities; // Возвращаем список сохраненных активностей
     }
 
+    @Transactional(readOnly = true)
     public List<UserActivity> getAllUserActivities() {
         return userActivityRepository.findAll();
     }
 
-    public List<UserActivity> getUserActivityByIp(String ip) {
-        return userActivityRepository.findByUserIp(ip);
+    @Transactional(readOnly = true)
+    public List<UserActivity> getUserActivityByIp(String ip, ActivityPeriod period) {
+        byte[] address = IpAddresses.parse(ip);
+        return address != null
+                ? userActivityRepository.findByUserIpBin(address, period.from(), period.to())
+                : userActivityRepository.findByStoredUserIp(ip, period.from(), period.to());
     }
 
     @Transactional
@@ -54,9 +74,4 @@ public class UserActivityService {
         userActivityRepository.delete(userActivity);
         return userActivity.getId();
     }
-
-    @Transactional
-    public void deleteAllUserActivities() {
-        userActivityRepository.deleteAll();
-    }
 }
@@ -0,0 +1,205 @@
+package backend.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+// Разбор строк журнала доступа nginx в формате combined и main (combined с "$http_x_forwarded_for" в конце):
+// $remote_addr - $remote_user [$time_local] "$request" $status $body_bytes_sent "$http_referer" "$http_user_agent"
+// Строка читается прямо из буфера (в том числе отображенного в память файла) без промежуточной String.
+// nginx экранирует кавычки и непечатаемые символы внутри полей как \xNN, поэтому поле в кавычках
+// заканчивается на первой кавычке. Экземпляр не потокобезопасен: по одному на поток.
+public class AccessLogParser {
+    private static final int TIME_LENGTH = 26; // 10/Oct/2000:13:55:36 -0700
+
+    public record Entry(String remoteAddress, LocalDateTime time, String method, String target, int status,
+                        String referer, String userAgent, String forwardedFor) {
+    }
+
+    private final ZoneId zone; // Время событий хранится в часовом поясе сервера
+    private final byte[] scratch = new byte[8192];
+    private final byte[] lastTime = new byte[TIME_LENGTH]; // Соседние строки обычно из одной секунды
+    private LocalDateTime lastParsedTime;
+    private int cursor; // Позиция после последнего прочитанного поля
+
+    public AccessLogParser(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    // Запись строки [start, end) без перевода строки или null, если строка не в ожидаемом формате
+    public Entry parse(ByteBuffer buffer, int start, int end) {
+        int addressEnd = indexOf(buffer, (byte) ' ', start, end);
+        if (addressEnd <= start) {
+            return null;
+        }
+        int timeStart = indexOf(buffer, (byte) '[', addressEnd, end) + 1;
+        if (timeStart <= 0 || timeStart + TIME_LENGTH >= end || buffer.get(timeStart + TIME_LENGTH) != ']') {
+            return null;
+        }
+        LocalDateTime time = time(buffer, timeStart);
+        if (time == null) {
+            return null;
+        }
+
+        cursor = timeStart + TIME_LENGTH + 1;
+        int requestStart = quotedStart(buffer, end);
+        int requestEnd = requestStart >= 0 ? indexOf(buffer, (byte) '"', requestStart, end) : -1;
+        if (requestEnd < 0) {
+            return null;
+        }
+        // "GET /path HTTP/1.1"; у запросов по HTTP/0.9 версии нет, у мусорных строк нет и цели
+        int methodEnd = indexOf(buffer, (byte) ' ', requestStart, requestEnd);
+        String method = null;
+        String target = null;
+        if (methodEnd > requestStart) {
+            method = text(buffer, requestStart, methodEnd);
+            int targetEnd = requestEnd;
+            while (targetEnd > methodEnd + 1 && buffer.get(targetEnd - 1) != ' ') {
+                targetEnd--;
+            }
+            targetEnd = targetEnd > methodEnd + 1 ? targetEnd - 1 : requestEnd;
+            target = text(buffer, methodEnd + 1, targetEnd);
+        }
+
+        cursor = requestEnd + 1;
+        int status = number(buffer, end);
+        if (status < 0) {
+            return null;
+        }
+        number(buffer, end); // $body_bytes_sent
+        String referer = quoted(buffer, end);
+        String userAgent = quoted(buffer, end);
+        String forwardedFor = quoted(buffer, end);
+        return new Entry(text(buffer, start, addressEnd), time, method, target, status, referer, userAgent, forwardedFor);
+    }
+
+    private LocalDateTime time(ByteBuffer buffer, int start) {
+        boolean same = lastParsedTime != null;
+        for (int i = 0; i < TIME_LENGTH && same; i++) {
+            same = buffer.get(start + i) == lastTime[i];
+        }
+        if (same) {
+            return lastParsedTime;
+        }
+        int day = digits(buffer, start, 2);
+        int month = month(buffer.get(start + 3), buffer.get(start + 4), buffer.get(start + 5));
+        int year = digits(buffer, start + 7, 4);
+        int hour = digits(buffer, start + 12, 2);
+        int minute = digits(buffer, start + 15, 2);
+        int second = digits(buffer, start + 18, 2);
+        byte sign = buffer.get(start + 21);
+        int offsetHours = digits(buffer, start + 22, 2);
+        int offsetMinutes = digits(buffer, start + 24, 2);
+        if (day < 1 || day > 31 || month < 0 || year < 0 || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 59 || (sign != '+' && sign != '-') || offsetHours < 0 || offsetHours > 18
+                || offsetMinutes < 0 || offsetMinutes > 59) {
+            return null;
+        }
+        int direction = sign == '-' ? -1 : 1;
+        try {
+            LocalDateTime local = LocalDateTime.of(year, month, day, hour, minute, second);
+            ZoneOffset offset = ZoneOffset.ofHoursMinutes(direction * offsetHours, direction * offsetMinutes);
+            lastParsedTime = LocalDateTime.ofInstant(local.toInstant(offset), zone);
+        } catch (RuntimeException e) {
+            return null; // Например, 31 число в 30-дневном месяце
+        }
+        buffer.get(start, lastTime, 0, TIME_LENGTH);
+        return lastParsedTime;
+    }
+
+    // Начало поля в кавычках после пробелов от cursor или -1
+    private int quotedStart(ByteBuffer buffer, int end) {
+        int position = cursor;
+        while (position < end && buffer.get(position) == ' ') {
+            position++;
+        }
+        return position < end && buffer.get(position) == '"' ? position + 1 : -1;
+    }
+
+    // Значение поля в кавычках; "-" и отсутствующее поле - null
+    private String quoted(ByteBuffer buffer, int end) {
+        int start = quotedStart(buffer, end);
+        if (start < 0) {
+            return null;
+        }
+        int close = indexOf(buffer, (byte) '"', start, end);
+        if (close < 0) {
+            cursor = end;
+            return null;
+        }
+        cursor = close + 1;
+        boolean empty = close == start || (close == start + 1 && buffer.get(start) == '-');
+        return empty ? null : text(buffer, start, close);
+    }
+
+    // Целое без знака после пробелов от cursor; -1, если цифр нет ("-" у $body_bytes_sent)
+    private int number(ByteBuffer buffer, int end) {
+        int position = cursor;
+        while (position < end && buffer.get(position) == ' ') {
+            position++;
+        }
+        int value = 0;
+        int start = position;
+        for (; position < end; position++) {
+            byte b = buffer.get(position);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            value = value * 10 + (b - '0');
+        }
+        boolean valid = position > start && value >= 0 && (position == end || buffer.get(position) == ' ');
+        while (position < end && buffer.get(position) != ' ') {
+            position++;
+        }
+        cursor = position;
+        return valid ? value : -1;
+    }
+
+    private String text(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(start, bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte value, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int digits(ByteBuffer buffer, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private static int month(byte first, byte second, byte third) {
+        return switch ((first & 0xFF) << 16 | (second & 0xFF) << 8 | (third & 0xFF)) {
+            case 'J' << 16 | 'a' << 8 | 'n' -> 1;
+            case 'F' << 16 | 'e' << 8 | 'b' -> 2;
+            case 'M' << 16 | 'a' << 8 | 'r' -> 3;
+            case 'A' << 16 | 'p' << 8 | 'r' -> 4;
+            case 'M' << 16 | 'a' << 8 | 'y' -> 5;
+            case 'J' << 16 | 'u' << 8 | 'n' -> 6;
+            case 'J' << 16 | 'u' << 8 | 'l' -> 7;
+            case 'A' << 16 | 'u' << 8 | 'g' -> 8;
+            case 'S' << 16 | 'e' << 8 | 'p' -> 9;
+            case 'O' << 16 | 'c' << 8 | 't' -> 10;
+            case 'N' << 16 | 'o' << 8 | 'v' -> 11;
+            case 'D' << 16 | 'e' << 8 | 'c' -> 12;
+            default -> -1;
+        };
+    }
+}
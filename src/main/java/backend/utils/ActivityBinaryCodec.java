@@ -0,0 +1,229 @@
+package backend.utils;
+
+import backend.model.BotRule;
+import backend.model.EventType;
+import backend.model.UserActivity;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Компактный бинарный формат пакета активностей (application/x-activity-batch).
+//
+// Пакет: 'A' 'B' версия(1 байт)
+//        varint число строк, затем строки: varint длина + UTF-8
+//        varint число событий, затем события:
+//          varint порядковый номер EventType
+//          varint индекс userIp в таблице строк
+//          varint индекс+1 sessionId, pageUrl, referer, eventDetails (0 - null)
+//          zigzag varint разница epoch-millis с предыдущим событием (у первого - с нулем), время в UTC
+//          varint countEvent
+//          varint порядковый номер BotRule + 1, 0 - событие человека (только с версии 2)
+//
+// Отметку бота ставит только сервер: decode (пакеты клиентов) ее отбрасывает, сохраняет только
+// decodeSpooled - для пакетов, которые сервер сам записал в локальный журнал после фильтра ботов.
+//
+// Повторяющиеся URL, источники и IP передаются один раз в таблице строк,
+// а декодер собирает сущности напрямую, без промежуточного JSON-дерева.
+public final class ActivityBinaryCodec {
+    public static final String MEDIA_TYPE = "application/x-activity-batch";
+
+    private static final int MAGIC_0 = 'A';
+    private static final int MAGIC_1 = 'B';
+    private static final int VERSION = 2; // Версия 1 (без отметки бота) по-прежнему принимается
+
+    private static final int MAX_STRINGS = 100_000;
+    private static final int MAX_STRING_BYTES = 64 * 1024;
+    private static final int MAX_EVENTS = 100_000;
+    private static final EventType[] EVENT_TYPES = EventType.values();
+    private static final BotRule[] BOT_RULES = BotRule.values();
+
+    private ActivityBinaryCodec() {
+    }
+
+    // Пакет от клиента: отметка бота, если передана, не принимается
+    public static List<UserActivity> decode(InputStream input) throws IOException {
+        return decode(input, false);
+    }
+
+    // Пакет из локального журнала сервера: отметка бота восстанавливается
+    public static List<UserActivity> decodeSpooled(InputStream input) throws IOException {
+        return decode(input, true);
+    }
+
+    private static List<UserActivity> decode(InputStream input, boolean keepBotRule) throws IOException {
+        InputStream in = input instanceof BufferedInputStream ? input : new BufferedInputStream(input, 16 * 1024);
+        if (readByte(in) != MAGIC_0 || readByte(in) != MAGIC_1) {
+            throw new IllegalArgumentException("Неверная сигнатура бинарного пакета");
+        }
+        int version = readByte(in);
+        if (version != 1 && version != VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия бинарного пакета: " + version);
+        }
+
+        int stringCount = readCount(in, MAX_STRINGS, "строк");
+        String[] strings = new String[stringCount];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < stringCount; i++) {
+            int length = readCount(in, MAX_STRING_BYTES, "байт строки");
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            readFully(in, scratch, length);
+            strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        int eventCount = readCount(in, MAX_EVENTS, "событий");
+        List<UserActivity> activities = new ArrayList<>(Math.min(eventCount, 1024));
+        long timestamp = 0;
+        for (int i = 0; i < eventCount; i++) {
+            long type = readVarLong(in);
+            if (type < 0 || type >= EVENT_TYPES.length) {
+                throw new IllegalArgumentException("Неизвестный тип события: " + type);
+            }
+            UserActivity activity = new UserActivity();
+            activity.setEventType(EVENT_TYPES[(int) type]);
+            activity.setUserIp(string(strings, readVarLong(in)));
+            activity.setSessionId(optionalString(strings, readVarLong(in)));
+            activity.setPageUrl(optionalString(strings, readVarLong(in)));
+            activity.setReferer(optionalString(strings, readVarLong(in)));
+            activity.setEventDetails(optionalString(strings, readVarLong(in)));
+            timestamp += zigzagDecode(readVarLong(in));
+            activity.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC));
+            activity.setCountEvent(readVarLong(in));
+            if (version >= 2) {
+                long botRule = readVarLong(in);
+                if (botRule < 0 || botRule > BOT_RULES.length) {
+                    throw new IllegalArgumentException("Неизвестное правило фильтра ботов: " + botRule);
+                }
+                if (keepBotRule && botRule > 0) {
+                    activity.setBotRule(BOT_RULES[(int) botRule - 1]);
+                }
+            }
+            activities.add(activity);
+        }
+        return activities;
+    }
+
+    public static byte[] encode(List<UserActivity> activities) {
+        Map<String, Integer> index = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        ByteArrayOutputStream events = new ByteArrayOutputStream(activities.size() * 12);
+
+        writeVarLong(events, activities.size());
+        long previous = 0;
+        for (UserActivity activity : activities) {
+            writeVarLong(events, activity.getEventType().ordinal());
+            writeVarLong(events, intern(activity.getUserIp(), index, strings));
+            writeVarLong(events, internOptional(activity.getSessionId(), index, strings));
+            writeVarLong(events, internOptional(activity.getPageUrl(), index, strings));
+            writeVarLong(events, internOptional(activity.getReferer(), index, strings));
+            writeVarLong(events, internOptional(activity.getEventDetails(), index, strings));
+            long timestamp = activity.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+            writeVarLong(events, zigzagEncode(timestamp - previous));
+            previous = timestamp;
+            writeVarLong(events, activity.getCountEvent() != null ? activity.getCountEvent() : 1L);
+            writeVarLong(events, activity.getBotRule() != null ? activity.getBotRule().ordinal() + 1 : 0);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(events.size() + strings.size() * 24 + 8);
+        out.write(MAGIC_0);
+        out.write(MAGIC_1);
+        out.write(VERSION);
+        writeVarLong(out, strings.size());
+        for (String value : strings) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        out.write(events.toByteArray(), 0, events.size());
+        return out.toByteArray();
+    }
+
+    private static int intern(String value, Map<String, Integer> index, List<String> strings) {
+        return index.computeIfAbsent(value, key -> {
+            strings.add(key);
+            return strings.size() - 1;
+        });
+    }
+
+    private static int internOptional(String value, Map<String, Integer> index, List<String> strings) {
+        return value == null ? 0 : intern(value, index, strings) + 1;
+    }
+
+    private static String string(String[] strings, long index) {
+        if (index < 0 || index >= strings.length) {
+            throw new IllegalArgumentException("Ссылка за пределы таблицы строк: " + index);
+        }
+        return strings[(int) index];
+    }
+
+    private static String optionalString(String[] strings, long index) {
+        return index == 0 ? null : string(strings, index - 1);
+    }
+
+    private static int readCount(InputStream in, int max, String what) throws IOException {
+        long count = readVarLong(in);
+        if (count < 0 || count > max) {
+            throw new IllegalArgumentException("Слишком много " + what + " в пакете: " + count);
+        }
+        return (int) count;
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Бинарный пакет неожиданно закончился");
+        }
+        return b;
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(buffer, offset, length - offset);
+            if (read < 0) {
+                throw new EOFException("Бинарный пакет неожиданно закончился");
+            }
+            offset += read;
+        }
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Слишком длинное число varint");
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,116 @@
+package backend.utils;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+// Поиск всех вхождений набора образцов за один проход по строке (автомат Ахо-Корасик).
+// Автомат строится один раз и хранится полной таблицей переходов по классам символов, поэтому каждый
+// символ текста - одно чтение из массива независимо от числа образцов. Символы, которых нет в образцах,
+// ведут в начальное состояние. Рассчитан на ASCII (хосты, пути); остальные символы ничему не соответствуют.
+public class AhoCorasickMatcher {
+    private static final int ASCII = 128;
+
+    private final int[] charClasses = new int[ASCII]; // Символ -> класс; 0 - символа нет ни в одном образце
+    private final int alphabet;
+    private final int[] transitions; // Состояние * alphabet + класс -> следующее состояние
+    private final int[] output; // Самый длинный образец, заканчивающийся в состоянии, или -1
+    private final int[] outputLink; // Ближайшее состояние по суффиксным ссылкам, где заканчивается образец, или -1
+    private final int[] lengths; // Длины образцов
+
+    // Вызывается для каждого вхождения: номер образца в исходном списке и позиция после его конца
+    public interface MatchConsumer {
+        void accept(int pattern, int end);
+    }
+
+    public AhoCorasickMatcher(List<String> patterns) {
+        int classes = 1;
+        for (String pattern : patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c < ASCII && charClasses[c] == 0) {
+                    charClasses[c] = classes++;
+                }
+            }
+        }
+        this.alphabet = classes;
+        this.lengths = patterns.stream().mapToInt(String::length).toArray();
+
+        // Бор образцов
+        int maxStates = 1 + Arrays.stream(lengths).sum();
+        int[] trie = new int[maxStates * alphabet];
+        Arrays.fill(trie, -1);
+        int[] terminal = new int[maxStates];
+        Arrays.fill(terminal, -1);
+        int states = 1;
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            int state = 0;
+            boolean ascii = !pattern.isEmpty();
+            for (int i = 0; i < pattern.length() && ascii; i++) {
+                char c = pattern.charAt(i);
+                if (c >= ASCII) {
+                    ascii = false;
+                    break;
+                }
+                int index = state * alphabet + charClasses[c];
+                if (trie[index] < 0) {
+                    trie[index] = states++;
+                }
+                state = trie[index];
+            }
+            if (ascii && (terminal[state] < 0 || lengths[p] > lengths[terminal[state]])) {
+                terminal[state] = p;
+            }
+        }
+
+        // Суффиксные ссылки обходом в ширину; недостающие переходы берутся у состояния по суффиксной ссылке
+        this.transitions = Arrays.copyOf(trie, states * alphabet);
+        this.output = Arrays.copyOf(terminal, states);
+        this.outputLink = new int[states];
+        int[] fail = new int[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+        outputLink[0] = -1;
+        for (int c = 0; c < alphabet; c++) {
+            int next = transitions[c];
+            if (next <= 0) {
+                transitions[c] = 0;
+            } else {
+                fail[next] = 0;
+                outputLink[next] = -1;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int c = 0; c < alphabet; c++) {
+                int index = state * alphabet + c;
+                int next = transitions[index];
+                int fallback = transitions[fail[state] * alphabet + c];
+                if (next < 0) {
+                    transitions[index] = fallback;
+                } else {
+                    fail[next] = fallback;
+                    outputLink[next] = output[fallback] >= 0 ? fallback : outputLink[fallback];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    public int patternLength(int pattern) {
+        return lengths[pattern];
+    }
+
+    public void forEachMatch(CharSequence text, MatchConsumer consumer) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            state = transitions[state * alphabet + (c < ASCII ? charClasses[c] : 0)];
+            for (int match = output[state] >= 0 ? state : outputLink[state]; match >= 0; match = outputLink[match]) {
+                consumer.accept(output[match], i + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package backend.utils;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Читает поток построчно в один переиспользуемый буфер ограниченного размера.
+// Слишком длинная строка не накапливается в памяти, а помечается как переполненная и пропускается.
+public class BoundedLineReader {
+    private final InputStream in;
+    private final byte[] buffer;
+    private int length;
+    private boolean overflow;
+
+    public BoundedLineReader(InputStream in, int maxLineBytes) {
+        this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 16 * 1024);
+        this.buffer = new byte[maxLineBytes];
+    }
+
+    // Переходит к следующей строке, возвращает false в конце потока
+    public boolean next() throws IOException {
+        length = 0;
+        overflow = false;
+        boolean read = false;
+        int b;
+        while ((b = in.read()) != -1) {
+            read = true;
+            if (b == '\n') {
+                break;
+            }
+            if (length < buffer.length) {
+                buffer[length++] = (byte) b;
+            } else {
+                overflow = true;
+            }
+        }
+        if (length > 0 && buffer[length - 1] == '\r') {
+            length--;
+        }
+        return read;
+    }
+
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean isOverflow() {
+        return overflow;
+    }
+
+    public boolean isBlank() {
+        for (int i = 0; i < length; i++) {
+            if (!Character.isWhitespace(buffer[i])) {
+                return false;
+            }
+        }
+        return !overflow;
+    }
+}
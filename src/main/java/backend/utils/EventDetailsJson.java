@@ -0,0 +1,50 @@
+package backend.utils;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+
+// Преобразование eventDetails для столбца jsonb. Объект или массив JSON хранится как есть, и по его ключам
+// работают индекс и запросы аналитики; любой другой текст ("Клик по кнопке") - строкой JSON.
+// Обратное преобразование возвращает исходный текст, поэтому для клиентов API поле осталось строкой.
+public final class EventDetailsJson {
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .enable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
+            .build();
+
+    private EventDetailsJson() {
+    }
+
+    public static String toJson(String details) {
+        if (details == null) {
+            return null;
+        }
+        String trimmed = details.strip();
+        if (!trimmed.isEmpty() && (trimmed.charAt(0) == '{' || trimmed.charAt(0) == '[')) {
+            try {
+                MAPPER.readTree(trimmed);
+                return trimmed;
+            } catch (IOException e) {
+                // Похоже на JSON, но не разбирается: сохраняется как текст
+            }
+        }
+        try {
+            return MAPPER.writeValueAsString(details);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Строка сериализуется всегда
+        }
+    }
+
+    public static String fromJson(String json) {
+        if (json == null || json.isEmpty() || json.charAt(0) != '"') {
+            return json;
+        }
+        try {
+            return MAPPER.readValue(json, String.class);
+        } catch (IOException e) {
+            return json;
+        }
+    }
+}
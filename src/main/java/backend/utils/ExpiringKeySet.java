@@ -0,0 +1,69 @@
+package backend.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Множество ключей, каждый из которых хранится ttl с последнего добавления. Как и в StripedRateLimiter,
+// ключи разнесены по полосам, и просроченные удаляются периодически по одной полосе за раз.
+public class ExpiringKeySet {
+    private static final int SWEEP_EVERY_OPERATIONS = 4096;
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final long ttlNanos;
+
+    public ExpiringKeySet(long ttlSeconds, int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.mask = size - 1;
+        this.ttlNanos = Math.max(1, ttlSeconds) * 1_000_000_000L;
+    }
+
+    // Добавляет ключ или продлевает его срок
+    public void add(String key) {
+        long now = System.nanoTime();
+        Stripe stripe = stripe(key);
+        stripe.maybeSweep(now);
+        stripe.deadlines.put(key, now + ttlNanos);
+    }
+
+    public boolean contains(String key) {
+        Long deadline = stripe(key).deadlines.get(key);
+        return deadline != null && deadline - System.nanoTime() > 0;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.deadlines.size();
+        }
+        return size;
+    }
+
+    private Stripe stripe(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    private static class Stripe {
+        private final Map<String, Long> deadlines = new ConcurrentHashMap<>();
+        private final AtomicInteger operations = new AtomicInteger();
+        private final AtomicBoolean sweeping = new AtomicBoolean();
+
+        void maybeSweep(long now) {
+            if ((operations.incrementAndGet() & (SWEEP_EVERY_OPERATIONS - 1)) != 0 || !sweeping.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                deadlines.entrySet().removeIf(entry -> entry.getValue() - now <= 0);
+            } finally {
+                sweeping.set(false);
+            }
+        }
+    }
+}
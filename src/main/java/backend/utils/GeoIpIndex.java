@@ -0,0 +1,337 @@
+package backend.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Индекс диапазонов IP-адресов -> код страны для поиска без обращения к внешним сервисам.
+// Диапазоны хранятся в отсортированных массивах примитивов (для IPv6 адрес - пара long), страна - номером
+// в таблице кодов, поиск - двоичный по началу диапазона. Границы хранятся со сдвигом на знаковый бит,
+// чтобы беззнаковые адреса сравнивались обычным сравнением int и long.
+public class GeoIpIndex {
+    private static final BigInteger IPV4_MAX = BigInteger.valueOf(0xFFFFFFFFL);
+    private static final BigInteger IPV4_MAPPED_START = new BigInteger("ffff00000000", 16); // ::ffff:0.0.0.0
+    private static final BigInteger IPV4_MAPPED_END = new BigInteger("ffffffffffff", 16); // ::ffff:255.255.255.255
+    private static final BigInteger LONG_MASK = new BigInteger("ffffffffffffffff", 16);
+    private static final int V4_PREFIXES = 1 << 16;
+
+    private final String[] codes;
+    private final int v4Count;
+    private final int[] v4Starts;
+    private final int[] v4Ends;
+    private final short[] v4Countries;
+    // Первый диапазон, начинающийся в каждой сети /16 (и после нее): поиск идет только среди диапазонов
+    // одной сети, а не по всему массиву, что избавляет от большинства промахов кэша
+    private final int[] v4Prefixes;
+    private final int v6Count;
+    private final long[] v6StartHi;
+    private final long[] v6StartLo;
+    private final long[] v6EndHi;
+    private final long[] v6EndLo;
+    private final short[] v6Countries;
+    private final long skippedLines;
+
+    private GeoIpIndex(Builder builder) {
+        this.codes = builder.codes.toArray(new String[0]);
+        this.v4Count = builder.v4Count;
+        this.v4Starts = builder.v4Starts;
+        this.v4Ends = builder.v4Ends;
+        this.v4Countries = builder.v4Countries;
+        this.v4Prefixes = buildPrefixes(v4Starts, v4Count);
+        this.v6Count = builder.v6Count;
+        this.v6StartHi = builder.v6StartHi;
+        this.v6StartLo = builder.v6StartLo;
+        this.v6EndHi = builder.v6EndHi;
+        this.v6EndLo = builder.v6EndLo;
+        this.v6Countries = builder.v6Countries;
+        this.skippedLines = builder.skippedLines;
+    }
+
+    // Загрузка CSV с диапазонами: первые три поля - начало, конец и двухбуквенный код страны.
+    // Границы - адреса (формат DB-IP: 1.0.0.0,1.0.0.255,AU) или десятичные числа (формат IP2Location DB1,
+    // в том числе IPv6-версия, где IPv4 записан как ::ffff:a.b.c.d). Заголовок и некорректные строки пропускаются.
+    public static GeoIpIndex load(Path file) throws IOException {
+        Builder builder = new Builder();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!builder.add(line)) {
+                    builder.skippedLines++;
+                }
+            }
+        }
+        builder.sort();
+        return new GeoIpIndex(builder);
+    }
+
+    // Код страны для адреса из IpAddresses.parse (4 или 16 байт) или null, если адрес не попал ни в один диапазон
+    public String lookup(byte[] address) {
+        if (address == null) {
+            return null;
+        }
+        if (address.length == IpAddresses.IPV4_LENGTH) {
+            int key = ipv4Key(address);
+            int prefix = (address[0] & 0xFF) << 8 | (address[1] & 0xFF);
+            int from = v4Prefixes[prefix];
+            int i = Arrays.binarySearch(v4Starts, from, v4Prefixes[prefix + 1], key);
+            // Последний диапазон, начинающийся не позже адреса; если в этой сети такого нет - последний из предыдущих
+            i = Math.max(i >= 0 ? i : -i - 2, from - 1);
+            return i >= 0 && key <= v4Ends[i] ? codes[v4Countries[i]] : null;
+        }
+        if (address.length == IpAddresses.LENGTH) {
+            long hi = readLong(address, 0) ^ Long.MIN_VALUE;
+            long lo = readLong(address, 8) ^ Long.MIN_VALUE;
+            int low = 0;
+            int high = v6Count - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (compare(v6StartHi[mid], v6StartLo[mid], hi, lo) <= 0) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found >= 0 && compare(hi, lo, v6EndHi[found], v6EndLo[found]) <= 0 ? codes[v6Countries[found]] : null;
+        }
+        return null;
+    }
+
+    public int size() {
+        return v4Count + v6Count;
+    }
+
+    public int countries() {
+        return codes.length;
+    }
+
+    public long skippedLines() {
+        return skippedLines;
+    }
+
+    private static int[] buildPrefixes(int[] starts, int count) {
+        int[] prefixes = new int[V4_PREFIXES + 1];
+        int i = 0;
+        for (int prefix = 0; prefix <= V4_PREFIXES; prefix++) {
+            while (i < count && ((starts[i] ^ Integer.MIN_VALUE) >>> 16) < prefix) {
+                i++;
+            }
+            prefixes[prefix] = i;
+        }
+        return prefixes;
+    }
+
+    private static int compare(long hi1, long lo1, long hi2, long lo2) {
+        return hi1 != hi2 ? Long.compare(hi1, hi2) : Long.compare(lo1, lo2);
+    }
+
+    private static int ipv4Key(byte[] address) {
+        return ((address[0] & 0xFF) << 24 | (address[1] & 0xFF) << 16 | (address[2] & 0xFF) << 8 | (address[3] & 0xFF))
+                ^ Integer.MIN_VALUE;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    // Накопление диапазонов при загрузке; массивы растут вдвое
+    private static class Builder {
+        private final List<String> codes = new ArrayList<>();
+        private final Map<String, Short> codeIndex = new HashMap<>();
+        private int v4Count;
+        private int[] v4Starts = new int[1024];
+        private int[] v4Ends = new int[1024];
+        private short[] v4Countries = new short[1024];
+        private int v6Count;
+        private long[] v6StartHi = new long[256];
+        private long[] v6StartLo = new long[256];
+        private long[] v6EndHi = new long[256];
+        private long[] v6EndLo = new long[256];
+        private short[] v6Countries = new short[256];
+        private long skippedLines;
+
+        boolean add(String line) {
+            String[] fields = line.split(",", 4);
+            if (fields.length < 3) {
+                return false;
+            }
+            String code = unquote(fields[2]).toUpperCase(Locale.ROOT);
+            byte[] start = parseBound(unquote(fields[0]));
+            byte[] end = parseBound(unquote(fields[1]));
+            if (start == null || end == null || start.length != end.length || !isCountryCode(code)) {
+                return false; // Заголовок, неизвестная страна ("-", "ZZ") или некорректная строка
+            }
+            short country = codeIndex.computeIfAbsent(code, key -> {
+                codes.add(key);
+                return (short) (codes.size() - 1);
+            });
+            if (start.length == IpAddresses.IPV4_LENGTH) {
+                if (v4Count == v4Starts.length) {
+                    int capacity = v4Count * 2;
+                    v4Starts = Arrays.copyOf(v4Starts, capacity);
+                    v4Ends = Arrays.copyOf(v4Ends, capacity);
+                    v4Countries = Arrays.copyOf(v4Countries, capacity);
+                }
+                v4Starts[v4Count] = ipv4Key(start);
+                v4Ends[v4Count] = ipv4Key(end);
+                v4Countries[v4Count++] = country;
+            } else {
+                if (v6Count == v6StartHi.length) {
+                    int capacity = v6Count * 2;
+                    v6StartHi = Arrays.copyOf(v6StartHi, capacity);
+                    v6StartLo = Arrays.copyOf(v6StartLo, capacity);
+                    v6EndHi = Arrays.copyOf(v6EndHi, capacity);
+                    v6EndLo = Arrays.copyOf(v6EndLo, capacity);
+                    v6Countries = Arrays.copyOf(v6Countries, capacity);
+                }
+                v6StartHi[v6Count] = readLong(start, 0) ^ Long.MIN_VALUE;
+                v6StartLo[v6Count] = readLong(start, 8) ^ Long.MIN_VALUE;
+                v6EndHi[v6Count] = readLong(end, 0) ^ Long.MIN_VALUE;
+                v6EndLo[v6Count] = readLong(end, 8) ^ Long.MIN_VALUE;
+                v6Countries[v6Count++] = country;
+            }
+            return true;
+        }
+
+        // Файлы обычно уже отсортированы; если нет - сортируем по началу диапазона
+        void sort() {
+            boolean v4Sorted = true;
+            for (int i = 1; i < v4Count && v4Sorted; i++) {
+                v4Sorted = v4Starts[i - 1] <= v4Starts[i];
+            }
+            if (!v4Sorted) {
+                Integer[] order = sortedOrder(v4Count, (a, b) -> Integer.compare(v4Starts[a], v4Starts[b]));
+                int[] starts = new int[v4Count];
+                int[] ends = new int[v4Count];
+                short[] countries = new short[v4Count];
+                for (int i = 0; i < v4Count; i++) {
+                    starts[i] = v4Starts[order[i]];
+                    ends[i] = v4Ends[order[i]];
+                    countries[i] = v4Countries[order[i]];
+                }
+                v4Starts = starts;
+                v4Ends = ends;
+                v4Countries = countries;
+            }
+            boolean v6Sorted = true;
+            for (int i = 1; i < v6Count && v6Sorted; i++) {
+                v6Sorted = compare(v6StartHi[i - 1], v6StartLo[i - 1], v6StartHi[i], v6StartLo[i]) <= 0;
+            }
+            if (!v6Sorted) {
+                Integer[] order = sortedOrder(v6Count,
+                        (a, b) -> compare(v6StartHi[a], v6StartLo[a], v6StartHi[b], v6StartLo[b]));
+                long[] startHi = new long[v6Count];
+                long[] startLo = new long[v6Count];
+                long[] endHi = new long[v6Count];
+                long[] endLo = new long[v6Count];
+                short[] countries = new short[v6Count];
+                for (int i = 0; i < v6Count; i++) {
+                    startHi[i] = v6StartHi[order[i]];
+                    startLo[i] = v6StartLo[order[i]];
+                    endHi[i] = v6EndHi[order[i]];
+                    endLo[i] = v6EndLo[order[i]];
+                    countries[i] = v6Countries[order[i]];
+                }
+                v6StartHi = startHi;
+                v6StartLo = startLo;
+                v6EndHi = endHi;
+                v6EndLo = endLo;
+                v6Countries = countries;
+            }
+        }
+
+        private static Integer[] sortedOrder(int count, Comparator<Integer> comparator) {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, comparator);
+            return order;
+        }
+
+        private static boolean isCountryCode(String code) {
+            return code.length() == 2 && Character.isLetter(code.charAt(0)) && Character.isLetter(code.charAt(1))
+                    && !"ZZ".equals(code);
+        }
+
+        private static String unquote(String field) {
+            String value = field.trim();
+            return value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"'
+                    ? value.substring(1, value.length() - 1).trim()
+                    : value;
+        }
+
+        // 4 или 16 байт адреса из записи адресом или десятичным числом
+        private static byte[] parseBound(String value) {
+            if (value.isEmpty()) {
+                return null;
+            }
+            boolean digits = true;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < '0' || c > '9') {
+                    digits = false;
+                }
+                // Только символы адреса: иначе InetAddress попытался бы разрешить строку через DNS
+                if (Character.digit(c, 16) < 0 && c != '.' && c != ':') {
+                    return null;
+                }
+            }
+            if (digits) {
+                return fromNumber(new BigInteger(value));
+            }
+            if (value.indexOf('.') < 0 && value.indexOf(':') < 0) {
+                return null;
+            }
+            try {
+                return InetAddress.getByName(value).getAddress(); // ::ffff:a.b.c.d возвращается как IPv4
+            } catch (UnknownHostException e) {
+                return null;
+            }
+        }
+
+        private static byte[] fromNumber(BigInteger number) {
+            if (number.compareTo(IPV4_MAX) <= 0) {
+                return toBytes(number.longValue(), 4);
+            }
+            if (number.compareTo(IPV4_MAPPED_START) >= 0 && number.compareTo(IPV4_MAPPED_END) <= 0) {
+                return toBytes(number.subtract(IPV4_MAPPED_START).longValue(), 4);
+            }
+            if (number.bitLength() > 128) {
+                return null;
+            }
+            byte[] address = new byte[IpAddresses.LENGTH];
+            byte[] hi = toBytes(number.shiftRight(64).longValue(), 8);
+            byte[] lo = toBytes(number.and(LONG_MASK).longValue(), 8);
+            System.arraycopy(hi, 0, address, 0, 8);
+            System.arraycopy(lo, 0, address, 8, 8);
+            return address;
+        }
+
+        private static byte[] toBytes(long value, int length) {
+            byte[] bytes = new byte[length];
+            for (int i = length - 1; i >= 0; i--) {
+                bytes[i] = (byte) value;
+                value >>>= 8;
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package backend.utils;
+
+// Компактное представление IP-адресов: 4 байта для IPv4, 16 байт для IPv6 (тип определяется длиной).
+// Разбираются только адреса в каноническом виде (IPv4 без ведущих нулей, IPv6 по RFC 5952),
+// поэтому обратное преобразование всегда возвращает исходную строку. Остальные строки хранятся как есть.
+public final class IpAddresses {
+    public static final int IPV4_LENGTH = 4;
+    public static final int LENGTH = 16; // Максимальная длина, IPv6
+
+    private IpAddresses() {
+    }
+
+    // 4 или 16 байт адреса или null, если строка не является IP-адресом в каноническом виде
+    public static byte[] parse(String value) {
+        if (value == null || value.isEmpty() || value.length() > 45) {
+            return null;
+        }
+        byte[] address = value.indexOf(':') >= 0 ? parseIpv6(value) : parseIpv4(value);
+        return address != null && value.equals(format(address)) ? address : null;
+    }
+
+    public static String format(byte[] address) {
+        if (address == null) {
+            return null;
+        }
+        if (address.length == IPV4_LENGTH) {
+            return (address[0] & 0xFF) + "." + (address[1] & 0xFF) + "." + (address[2] & 0xFF) + "." + (address[3] & 0xFF);
+        }
+        if (address.length != LENGTH) {
+            return null;
+        }
+
+        // Самая длинная серия из двух и более нулевых групп заменяется на "::"
+        int[] groups = new int[8];
+        for (int i = 0; i < 8; i++) {
+            groups[i] = ((address[2 * i] & 0xFF) << 8) | (address[2 * i + 1] & 0xFF);
+        }
+        int bestStart = -1;
+        int bestLength = 1;
+        for (int i = 0; i < 8; ) {
+            if (groups[i] != 0) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < 8 && groups[i] == 0) {
+                i++;
+            }
+            if (i - start > bestLength) {
+                bestStart = start;
+                bestLength = i - start;
+            }
+        }
+        StringBuilder result = new StringBuilder(39);
+        for (int i = 0; i < 8; i++) {
+            if (i == bestStart) {
+                result.append("::");
+                i += bestLength - 1;
+                continue;
+            }
+            if (result.length() > 0 && result.charAt(result.length() - 1) != ':') {
+                result.append(':');
+            }
+            result.append(Integer.toHexString(groups[i]));
+        }
+        return result.toString();
+    }
+
+    private static byte[] parseIpv4(String value) {
+        byte[] address = new byte[IPV4_LENGTH];
+        int part = 0;
+        int octet = 0;
+        int digits = 0;
+        for (int i = 0; i <= value.length(); i++) {
+            char c = i < value.length() ? value.charAt(i) : '.';
+            if (c == '.') {
+                if (digits == 0 || part > 3) {
+                    return null;
+                }
+                address[part++] = (byte) octet;
+                octet = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9' && digits < 3) {
+                octet = octet * 10 + (c - '0');
+                digits++;
+                if (octet > 255) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        return part == 4 ? address : null;
+    }
+
+    private static byte[] parseIpv6(String value) {
+        int[] groups = new int[8];
+        int count = 0;
+        int gap = -1; // Позиция "::"
+        int i = 0;
+        int length = value.length();
+        if (value.startsWith("::")) {
+            gap = 0;
+            i = 2;
+        } else if (value.startsWith(":")) {
+            return null;
+        }
+        while (i < length) {
+            if (count == 8) {
+                return null;
+            }
+            int end = i;
+            while (end < length && value.charAt(end) != ':') {
+                end++;
+            }
+            String group = value.substring(i, end);
+            if (group.isEmpty() || group.length() > 4) {
+                return null;
+            }
+            int number = 0;
+            for (int j = 0; j < group.length(); j++) {
+                int digit = Character.digit(group.charAt(j), 16);
+                if (digit < 0) {
+                    return null;
+                }
+                number = (number << 4) | digit;
+            }
+            groups[count++] = number;
+            if (end == length) {
+                break;
+            }
+            if (end + 1 < length && value.charAt(end + 1) == ':') {
+                if (gap >= 0) {
+                    return null;
+                }
+                gap = count;
+                i = end + 2;
+            } else if (end + 1 == length) {
+                return null;
+            } else {
+                i = end + 1;
+            }
+        }
+        if (gap < 0 ? count != 8 : count == 8) {
+            return null;
+        }
+
+        byte[] address = new byte[LENGTH];
+        int shift = gap < 0 ? 0 : 8 - count;
+        for (int g = 0; g < count; g++) {
+            int target = gap >= 0 && g >= gap ? g + shift : g;
+            address[2 * target] = (byte) (groups[g] >>> 8);
+            address[2 * target + 1] = (byte) groups[g];
+        }
+        return address;
+    }
+}
@@ -0,0 +1,11 @@
+package backend.utils;
+
+import java.io.IOException;
+
+// Тело запроса после распаковки превысило допустимый размер
+public class PayloadTooLargeException extends IOException {
+
+    public PayloadTooLargeException(long limit) {
+        super("Распакованное тело запроса больше " + limit + " байт");
+    }
+}
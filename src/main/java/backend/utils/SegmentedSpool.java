@@ -0,0 +1,372 @@
+package backend.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Локальный журнал записей из сегментов фиксированного размера, отображаемых в память.
+//
+// Сегмент: заголовок (сигнатура, версия, смещение подтвержденных данных), затем записи:
+//   длина(int) crc32(int) время добавления(long) данные
+// Длина пишется последней, поэтому недописанная запись выглядит как конец данных.
+// Записи читаются строго по порядку; после подтверждения смещение сохраняется в заголовке сегмента,
+// а полностью подтвержденные сегменты удаляются.
+public class SegmentedSpool implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(SegmentedSpool.class);
+
+    private static final int MAGIC = 0x4153504C; // "ASPL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int COMMITTED_POSITION = 8;
+    private static final int RECORD_HEADER_BYTES = 16;
+    private static final String PREFIX = "spool-";
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long maxBytes;
+    private final boolean forceOnAppend;
+
+    // Блокировка вместо synchronized: не закрепляет виртуальный поток за несущим на время записи на диск
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Segment> segments = new ArrayList<>(); // От старых к новым, последний - для записи
+    private int readIndex; // Позиция чтения: сегмент и смещение в нем
+    private int readOffset;
+    private long readRecords; // Прочитано, но еще не подтверждено
+    private long pendingRecords; // Записей, не подтвержденных после записи в базу
+    private long corruptRecords;
+
+    public SegmentedSpool(Path directory, int segmentBytes, long maxBytes, boolean forceOnAppend) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = Math.max(HEADER_BYTES + RECORD_HEADER_BYTES + 1, segmentBytes);
+        this.maxBytes = maxBytes;
+        this.forceOnAppend = forceOnAppend;
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    public record Record(byte[] payload, long appendedAt) {
+    }
+
+    // Добавляет запись; false - превышен общий объем журнала
+    public boolean append(byte[] payload) throws IOException {
+        lock.lock();
+        try {
+            int needed = RECORD_HEADER_BYTES + payload.length;
+            if (payload.length == 0 || needed > segmentBytes - HEADER_BYTES) {
+                throw new IllegalArgumentException("Размер записи не подходит для сегмента журнала: " + payload.length);
+            }
+            if (diskBytes() + (needed > free(current()) ? segmentBytes : 0) > maxBytes) {
+                return false;
+            }
+            if (needed > free(current())) {
+                current().buffer.force();
+                segments.add(createSegment(current().sequence + 1));
+            }
+            Segment segment = current();
+            MappedByteBuffer buffer = segment.buffer;
+            int offset = segment.end;
+            buffer.put(offset + RECORD_HEADER_BYTES, payload);
+            buffer.putInt(offset + 4, checksum(payload));
+            buffer.putLong(offset + 8, System.currentTimeMillis());
+            buffer.putInt(offset, payload.length);
+            segment.end = offset + needed;
+            pendingRecords++;
+            if (forceOnAppend) {
+                buffer.force(offset, needed);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Следующая непрочитанная запись или null, если новых записей нет
+    public Record poll() {
+        lock.lock();
+        try {
+            while (readIndex < segments.size()) {
+                Segment segment = segments.get(readIndex);
+                if (readOffset < segment.end) {
+                    MappedByteBuffer buffer = segment.buffer;
+                    int length = buffer.getInt(readOffset);
+                    int crc = buffer.getInt(readOffset + 4);
+                    long appendedAt = buffer.getLong(readOffset + 8);
+                    byte[] payload = new byte[length];
+                    buffer.get(readOffset + RECORD_HEADER_BYTES, payload);
+                    readOffset += RECORD_HEADER_BYTES + length;
+                    readRecords++;
+                    if (checksum(payload) != crc) {
+                        // Данные после поврежденной записи ненадежны: пропускаем остаток сегмента
+                        corruptRecords++;
+                        logger.warn("Поврежденная запись в сегменте {} журнала, остаток сегмента пропущен", segment.path);
+                        readOffset = segment.end;
+                        continue;
+                    }
+                    return new Record(payload, appendedAt);
+                }
+                if (readIndex == segments.size() - 1) {
+                    return null;
+                }
+                readIndex++;
+                readOffset = segments.get(readIndex).committed;
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Подтверждает все прочитанные записи: они записаны в базу и больше не нужны
+    public void commit() throws IOException {
+        lock.lock();
+        try {
+            while (readIndex > 0) {
+                delete(segments.remove(0));
+                readIndex--;
+            }
+            Segment head = segments.get(0);
+            head.committed = readOffset;
+            head.buffer.putLong(COMMITTED_POSITION, readOffset);
+            pendingRecords -= readRecords;
+            readRecords = 0;
+            if (segments.size() > 1 && readOffset >= head.end) {
+                delete(segments.remove(0));
+                readOffset = segments.get(0).committed;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Возвращает позицию чтения к последней подтвержденной записи (запись в базу не удалась)
+    public void rewind() {
+        lock.lock();
+        try {
+            readIndex = 0;
+            readOffset = segments.get(0).committed;
+            readRecords = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long pendingRecords() {
+        lock.lock();
+        try {
+            return pendingRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long pendingBytes() {
+        lock.lock();
+        try {
+            long bytes = 0;
+            for (Segment segment : segments) {
+                bytes += segment.end - segment.committed;
+            }
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Время добавления самой старой неподтвержденной записи, 0 - журнал пуст
+    public long oldestPendingTimestamp() {
+        lock.lock();
+        try {
+            for (Segment segment : segments) {
+                if (segment.committed < segment.end) {
+                    return segment.buffer.getLong(segment.committed + 8);
+                }
+            }
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int segmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long diskBytes() {
+        lock.lock();
+        try {
+            long bytes = 0;
+            for (Segment segment : segments) {
+                bytes += segment.buffer.capacity();
+            }
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long corruptRecords() {
+        lock.lock();
+        try {
+            return corruptRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Восстановление после перезапуска: находим конец данных в каждом сегменте по контрольным суммам.
+    // Последний найденный сегмент больше не дописывается, новые записи идут в свежий сегмент.
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().toList();
+        }
+        long nextSequence = 1;
+        for (Path path : files) {
+            Segment segment = openSegment(path);
+            if (segment == null) {
+                continue;
+            }
+            nextSequence = Math.max(nextSequence, segment.sequence + 1);
+            if (segment.committed >= segment.end) {
+                delete(segment);
+            } else {
+                segments.add(segment);
+                pendingRecords += countRecords(segment);
+            }
+        }
+        segments.add(createSegment(nextSequence));
+        readIndex = 0;
+        readOffset = segments.get(0).committed;
+        if (pendingRecords > 0) {
+            logger.info("В журнале {} найдено {} неподтвержденных записей", directory, pendingRecords);
+        }
+    }
+
+    private Segment openSegment(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        long sequence;
+        try {
+            sequence = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            logger.warn("Файл {} не является сегментом журнала и пропущен", path);
+            return null;
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            logger.warn("Файл {} не является сегментом журнала и пропущен", path);
+            return null;
+        }
+        Segment segment = new Segment(sequence, path, buffer);
+        long committed = buffer.getLong(COMMITTED_POSITION);
+        int offset = HEADER_BYTES;
+        while (offset + RECORD_HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || length > buffer.capacity() - offset - RECORD_HEADER_BYTES) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + RECORD_HEADER_BYTES, payload);
+            if (checksum(payload) != buffer.getInt(offset + 4)) {
+                corruptRecords++;
+                logger.warn("Сегмент {} обрезан на поврежденной записи по смещению {}", path, offset);
+                break;
+            }
+            offset += RECORD_HEADER_BYTES + length;
+        }
+        segment.end = offset;
+        segment.committed = (int) Math.min(Math.max(committed, HEADER_BYTES), offset);
+        return segment;
+    }
+
+    private long countRecords(Segment segment) {
+        long count = 0;
+        for (int offset = segment.committed; offset < segment.end; count++) {
+            offset += RECORD_HEADER_BYTES + segment.buffer.getInt(offset);
+        }
+        return count;
+    }
+
+    private Segment createSegment(long sequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%016d%s", PREFIX, sequence, SUFFIX));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(COMMITTED_POSITION, HEADER_BYTES);
+        Segment segment = new Segment(sequence, path, buffer);
+        segment.end = HEADER_BYTES;
+        segment.committed = HEADER_BYTES;
+        return segment;
+    }
+
+    private void delete(Segment segment) throws IOException {
+        Files.deleteIfExists(segment.path);
+    }
+
+    private Segment current() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private int free(Segment segment) {
+        return segment.buffer.capacity() - segment.end;
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static class Segment {
+        private final long sequence;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int end; // Конец записанных данных
+        private int committed; // Конец подтвержденных данных
+
+        Segment(long sequence, Path path, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package backend.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Набор token bucket по ключу (например, IP). Ключи разнесены по независимым полосам,
+// а состояние каждого ведра - одно число (теоретическое время прибытия, алгоритм GCRA),
+// которое обновляется через CAS без блокировок. Простаивающие ведра периодически удаляются.
+public class StripedRateLimiter {
+    private static final int SWEEP_EVERY_OPERATIONS = 4096;
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final long emissionNanos; // Интервал пополнения одного токена
+    private final long capacityNanos; // Емкость ведра во времени: burst * emissionNanos
+    private final long idleNanos;
+
+    public StripedRateLimiter(double permitsPerSecond, int burst, long idleSeconds, int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.mask = size - 1;
+        this.emissionNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.capacityNanos = emissionNanos * Math.max(1, burst);
+        this.idleNanos = Math.max(1, idleSeconds) * 1_000_000_000L;
+    }
+
+    // Пытается взять permits токенов; 0 - разрешено, иначе сколько наносекунд подождать до повтора
+    public long tryAcquire(String key, int permits) {
+        long now = System.nanoTime();
+        Stripe stripe = stripes[spread(key.hashCode()) & mask];
+        stripe.maybeSweep(now);
+
+        AtomicLong arrival = stripe.buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        long increment = emissionNanos * Math.max(1, permits);
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, now) + increment;
+            long excess = next - now - capacityNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.buckets.size();
+        }
+        return size;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private class Stripe {
+        private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        private final AtomicInteger operations = new AtomicInteger();
+        private final AtomicBoolean sweeping = new AtomicBoolean();
+
+        void maybeSweep(long now) {
+            if ((operations.incrementAndGet() & (SWEEP_EVERY_OPERATIONS - 1)) != 0 || !sweeping.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                // Ведро, которое полно дольше idleNanos, ничем не отличается от нового и может быть удалено
+                buckets.entrySet().removeIf(entry -> entry.getValue().get() < now - idleNanos);
+            } finally {
+                sweeping.set(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package backend.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Приведение URL к единому виду, чтобы одна страница или источник не считались разными из-за записи:
+// схема и хост в нижнем регистре, без порта по умолчанию, без фрагмента (#...), без завершающего "/" в пути
+// и без служебных параметров запроса (метки рекламных кампаний и т.п.). Понимает и относительные адреса
+// вида /books?id=1. Повторная нормализация результат не меняет.
+public class UrlNormalizer {
+    private final Set<String> droppedParameters = new HashSet<>();
+    private final List<String> droppedPrefixes = new ArrayList<>();
+
+    // Имена параметров без учета регистра; "utm_*" - все параметры, начинающиеся с utm_
+    public UrlNormalizer(Collection<String> droppedParameters) {
+        for (String parameter : droppedParameters) {
+            String name = parameter.trim().toLowerCase(Locale.ROOT);
+            if (name.endsWith("*")) {
+                droppedPrefixes.add(name.substring(0, name.length() - 1));
+            } else if (!name.isEmpty()) {
+                this.droppedParameters.add(name);
+            }
+        }
+    }
+
+    // Нормализованный URL или null для пустой строки
+    public String normalize(String url) {
+        if (url == null) {
+            return null;
+        }
+        String value = url.trim();
+        int fragment = value.indexOf('#');
+        if (fragment >= 0) {
+            value = value.substring(0, fragment);
+        }
+        int question = value.indexOf('?');
+        String base = question >= 0 ? value.substring(0, question) : value;
+
+        StringBuilder result = new StringBuilder(value.length());
+        String path = base;
+        int schemeEnd = base.indexOf("://");
+        if (isScheme(base, schemeEnd)) {
+            String scheme = base.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+            int authorityStart = schemeEnd + 3;
+            int pathStart = base.indexOf('/', authorityStart);
+            String authority = (pathStart >= 0 ? base.substring(authorityStart, pathStart) : base.substring(authorityStart))
+                    .toLowerCase(Locale.ROOT);
+            result.append(scheme).append("://").append(withoutDefaultPort(scheme, authority));
+            path = pathStart >= 0 ? base.substring(pathStart) : "/";
+        }
+        int pathEnd = path.length();
+        while (pathEnd > 1 && path.charAt(pathEnd - 1) == '/') {
+            pathEnd--;
+        }
+        result.append(path, 0, pathEnd);
+        if (question >= 0) {
+            appendQuery(result, value.substring(question + 1));
+        }
+        return result.isEmpty() ? null : result.toString();
+    }
+
+    // Есть ли в запросе URL хотя бы один из параметров, заданных в конструкторе
+    public boolean hasParameter(String url) {
+        if (url == null) {
+            return false;
+        }
+        int question = url.indexOf('?');
+        if (question < 0) {
+            return false;
+        }
+        int fragment = url.indexOf('#', question);
+        String query = fragment >= 0 ? url.substring(question + 1, fragment) : url.substring(question + 1);
+        int start = 0;
+        while (start < query.length()) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = query.length();
+            }
+            if (end > start && isDropped(query, start, end)) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    // Хост абсолютного URL в нижнем регистре, без порта, учетных данных и "www.", или null
+    public static String host(String url) {
+        if (url == null) {
+            return null;
+        }
+        String value = url.trim();
+        int schemeEnd = value.indexOf("://");
+        if (!isScheme(value, schemeEnd)) {
+            return null;
+        }
+        int start = schemeEnd + 3;
+        int end = start;
+        while (end < value.length() && "/?#".indexOf(value.charAt(end)) < 0) {
+            end++;
+        }
+        int at = value.lastIndexOf('@', end - 1);
+        if (at >= start) {
+            start = at + 1;
+        }
+        int close = value.indexOf(']', start);
+        if (start < end && value.charAt(start) == '[' && close > 0 && close < end) {
+            end = close + 1; // IPv6-адрес в скобках: двоеточия внутри не отделяют порт
+        } else {
+            int portStart = value.lastIndexOf(':', end - 1);
+            if (portStart >= start) {
+                end = portStart;
+            }
+        }
+        String host = value.substring(start, end).toLowerCase(Locale.ROOT);
+        if (host.endsWith(".")) {
+            host = host.substring(0, host.length() - 1);
+        }
+        if (host.startsWith("www.")) {
+            host = host.substring(4);
+        }
+        return host.isEmpty() ? null : host;
+    }
+
+    private void appendQuery(StringBuilder result, String query) {
+        boolean first = true;
+        int start = 0;
+        while (start <= query.length()) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = query.length();
+            }
+            if (end > start && !isDropped(query, start, end)) {
+                result.append(first ? '?' : '&').append(query, start, end);
+                first = false;
+            }
+            start = end + 1;
+        }
+    }
+
+    private boolean isDropped(String query, int start, int end) {
+        int equals = query.indexOf('=', start);
+        String name = query.substring(start, equals >= 0 && equals < end ? equals : end).toLowerCase(Locale.ROOT);
+        if (droppedParameters.contains(name)) {
+            return true;
+        }
+        for (String prefix : droppedPrefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String withoutDefaultPort(String scheme, String authority) {
+        String defaultPort = switch (scheme) {
+            case "http", "ws" -> ":80";
+            case "https", "wss" -> ":443";
+            default -> null;
+        };
+        return defaultPort != null && authority.endsWith(defaultPort)
+                ? authority.substring(0, authority.length() - defaultPort.length())
+                : authority;
+    }
+
+    // Схема по RFC 3986: буква, затем буквы, цифры, "+", "-" или "."
+    private static boolean isScheme(String value, int end) {
+        if (end <= 0 || !Character.isLetter(value.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < end; i++) {
+            char c = value.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '+' && c != '-' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,72 @@
+package backend.benchmark;
+
+import backend.utils.AccessLogParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Скорость разбора журнала nginx из отображенного в память файла одним потоком.
+// Запуск: mvn test -Dtest=AccessLogParserBenchmarkTest -Dactivity.benchmark=true
+@EnabledIfSystemProperty(named = "activity.benchmark", matches = "true")
+class AccessLogParserBenchmarkTest {
+    private static final int LINES = 500_000;
+    private static final int ROUNDS = 10;
+    private static final String[] AGENTS = {
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/129.0 Safari/537.36",
+            "Mozilla/5.0 (iPhone; CPU iPhone OS 17_0 like Mac OS X) AppleWebKit/605.1.15 Version/17.0 Mobile Safari/604.1"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void measureParse() throws Exception {
+        Path file = directory.resolve("access.log");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < LINES; i++) {
+                writer.write(String.format("203.0.113.%d - - [01/Jun/2026:12:%02d:%02d +0300] \"GET /books?id=%d HTTP/1.1\" 200 %d " +
+                                "\"https://www.google.com/\" \"%s\" \"-\"%n",
+                        i % 250, (i / 600) % 60, (i / 10) % 60, i % 1000, 500 + i % 9000, AGENTS[i % AGENTS.length]));
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            for (int round = 0; round < ROUNDS; round++) {
+                assertEquals(LINES, parseAll(buffer)); // Прогрев JIT
+            }
+            long start = System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++) {
+                parseAll(buffer);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Журнал nginx: %.0f нс на строку, %.0f МБ/с на поток%n",
+                    seconds * 1e9 / ROUNDS / LINES, channel.size() * (double) ROUNDS / 1_048_576 / seconds);
+        }
+    }
+
+    private static int parseAll(MappedByteBuffer buffer) {
+        AccessLogParser parser = new AccessLogParser(ZoneOffset.UTC);
+        int parsed = 0;
+        int lineStart = 0;
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                if (parser.parse(buffer, lineStart, i) != null) {
+                    parsed++;
+                }
+                lineStart = i + 1;
+            }
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,109 @@
+package backend.benchmark;
+
+import backend.config.ActivityProperties;
+import backend.model.EventType;
+import backend.model.UserActivity;
+import backend.service.UserActivityService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Замеры скорости записи активностей на реальной базе.
+// Запуск: mvn test -Dtest=ActivityIngestionBenchmarkTest -Dactivity.benchmark=true
+// Каждый тест выполняется в транзакции, которая откатывается, данные в базе не остаются.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+@EnabledIfSystemProperty(named = "activity.benchmark", matches = "true")
+class ActivityIngestionBenchmarkTest {
+    private static final int ROWS = 20_000;
+    private static final EventType[] EVENT_TYPES = EventType.values();
+
+    @Autowired
+    private UserActivityService userActivityService;
+
+    @Autowired
+    private ActivityProperties activityProperties;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private int originalCopyThreshold;
+
+    @AfterEach
+    void restoreSettings() {
+        activityProperties.getIngestion().setCopyThreshold(originalCopyThreshold);
+    }
+
+    @Test
+    void compareJpaAndCopyWritePaths() {
+        originalCopyThreshold = activityProperties.getIngestion().getCopyThreshold();
+
+        activityProperties.getIngestion().setCopyThreshold(0);
+        double jpaRate = measureRowsPerSecond(generateActivities(ROWS));
+
+        activityProperties.getIngestion().setCopyThreshold(1);
+        double copyRate = measureRowsPerSecond(generateActivities(ROWS));
+
+        System.out.printf("Запись %d строк: JPA %.0f строк/с, COPY %.0f строк/с (x%.1f)%n",
+                ROWS, jpaRate, copyRate, copyRate / jpaRate);
+    }
+
+    @Test
+    void countStatementsPerThousandEvents() {
+        originalCopyThreshold = activityProperties.getIngestion().getCopyThreshold();
+        activityProperties.getIngestion().setCopyThreshold(0);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        measureRowsPerSecond(generateActivities(1000));
+
+        // С IDENTITY каждая строка - отдельный INSERT (1000 операторов),
+        // с пулом последовательности - 20 nextval и 20 JDBC-пакетов по 50 строк
+        long statements = statistics.getPrepareStatementCount();
+        System.out.printf("На 1000 событий: %d подготовленных операторов%n", statements);
+        assertTrue(statements <= 2 * (1000 / UserActivity.ID_ALLOCATION_SIZE) + 2,
+                "Ожидалась пакетная вставка, получено операторов: " + statements);
+    }
+
+    private double measureRowsPerSecond(List<UserActivity> activities) {
+        long start = System.nanoTime();
+        userActivityService.logActivity(activities);
+        entityManager.flush(); // Дописываем хвост пакета, который JPA отправил бы при коммите
+        entityManager.clear();
+        long elapsed = System.nanoTime() - start;
+        return activities.size() / (elapsed / 1_000_000_000.0);
+    }
+
+    static List<UserActivity> generateActivities(int count) {
+        List<UserActivity> activities = new ArrayList<>(count);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            activities.add(new UserActivity(
+                    "10.0." + (i % 250) + "." + (i % 200),
+                    "session-" + (i % 1000),
+                    "https://actpromo.ru/books/" + (i % 50),
+                    EVENT_TYPES[i % EVENT_TYPES.length],
+                    null,
+                    i % 3 == 0 ? null : "https://yandex.ru/search/?text=book" + (i % 20),
+                    now.minusSeconds(i),
+                    1L));
+        }
+        return activities;
+    }
+}
@@ -0,0 +1,70 @@
+package backend.benchmark;
+
+import backend.model.UserActivity;
+import backend.utils.ActivityBinaryCodec;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayInputStream;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Сравнение размера тела и стоимости разбора: JSON против бинарного формата ActivityBinaryCodec.
+// Запуск: mvn test -Dtest=ActivityWireFormatBenchmarkTest -Dactivity.benchmark=true
+@EnabledIfSystemProperty(named = "activity.benchmark", matches = "true")
+class ActivityWireFormatBenchmarkTest {
+    private static final int EVENTS = 500; // Типичный размер пакета трекера
+    private static final int ITERATIONS = 2_000;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @Test
+    void compareJsonAndBinaryPayloads() throws Exception {
+        List<UserActivity> activities = ActivityIngestionBenchmarkTest.generateActivities(EVENTS);
+        // Бинарный формат передает время с точностью до миллисекунд
+        activities.forEach(activity -> activity.setTimestamp(activity.getTimestamp().truncatedTo(ChronoUnit.MILLIS)));
+
+        byte[] json = objectMapper.writeValueAsBytes(activities);
+        byte[] binary = ActivityBinaryCodec.encode(activities);
+
+        List<UserActivity> decoded = ActivityBinaryCodec.decode(new ByteArrayInputStream(binary));
+        assertEquals(activities.size(), decoded.size());
+        for (int i = 0; i < activities.size(); i++) {
+            assertEquals(activities.get(i).getPageUrl(), decoded.get(i).getPageUrl());
+            assertEquals(activities.get(i).getReferer(), decoded.get(i).getReferer());
+            assertEquals(activities.get(i).getTimestamp(), decoded.get(i).getTimestamp());
+            assertEquals(activities.get(i).getEventType(), decoded.get(i).getEventType());
+        }
+
+        TypeReference<List<UserActivity>> listType = new TypeReference<>() {};
+        double jsonMicros = measureMicros(() -> objectMapper.readValue(json, listType));
+        double binaryMicros = measureMicros(() -> ActivityBinaryCodec.decode(new ByteArrayInputStream(binary)));
+
+        System.out.printf("Пакет из %d событий: JSON %d байт, %.1f мкс; бинарный %d байт, %.1f мкс%n",
+                EVENTS, json.length, jsonMicros, binary.length, binaryMicros);
+    }
+
+    private double measureMicros(ThrowingRunnable decode) throws Exception {
+        for (int i = 0; i < ITERATIONS; i++) {
+            decode.run(); // Прогрев JIT
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            decode.run();
+        }
+        return (System.nanoTime() - start) / 1000.0 / ITERATIONS;
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,51 @@
+package backend.benchmark;
+
+import backend.config.ActivityProperties;
+import backend.model.BotFilterAction;
+import backend.model.UserActivity;
+import backend.service.ActivityBotFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Время проверки одного события фильтром ботов со всеми правилами: 64 диапазона адресов, частота по userIp,
+// EXIT без ENTER. Частота задана недостижимой, чтобы каждое событие проходило все проверки.
+// Запуск: mvn test -Dtest=BotFilterBenchmarkTest -Dactivity.benchmark=true
+@EnabledIfSystemProperty(named = "activity.benchmark", matches = "true")
+class BotFilterBenchmarkTest {
+    private static final int EVENTS = 500; // Типичный размер пакета трекера
+    private static final int ITERATIONS = 4_000;
+    private static final String USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/129.0.0.0 Safari/537.36";
+
+    @Test
+    void measureFilter() throws Exception {
+        ActivityProperties properties = new ActivityProperties();
+        ActivityProperties.BotFilter settings = properties.getBotFilter();
+        settings.setAction(BotFilterAction.TAG);
+        settings.setMaxEventsPerSecond(1e9);
+        settings.setSessionTtlSeconds(1);
+        List<String> ranges = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            ranges.add("66." + (100 + i) + ".0.0/16");
+        }
+        settings.setIpRanges(ranges);
+        ActivityBotFilter filter = new ActivityBotFilter(properties);
+        Thread.sleep(1100); // Проверка EXIT включается через session-ttl после создания
+
+        List<UserActivity> batch = ActivityIngestionBenchmarkTest.generateActivities(EVENTS);
+        for (int i = 0; i < ITERATIONS; i++) {
+            filter.filter(batch, USER_AGENT); // Прогрев JIT
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(EVENTS, filter.filter(batch, USER_AGENT).size());
+        }
+        double nanos = (double) (System.nanoTime() - start) / ITERATIONS / EVENTS;
+        System.out.printf("Фильтр ботов: %.0f нс на событие, срабатывания %s%n", nanos, filter.getStats().getRuleHits());
+    }
+}
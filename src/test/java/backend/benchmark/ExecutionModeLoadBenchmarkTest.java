@@ -0,0 +1,168 @@
+package backend.benchmark;
+
+import backend.AsTpromoApplication;
+import backend.utils.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Сравнение задержек при смешанной нагрузке (прием активностей + аналитика)
+// на обычных и виртуальных потоках. Приложение поднимается дважды на случайном порту.
+// Запуск: mvn test -Dtest=ExecutionModeLoadBenchmarkTest -Dactivity.benchmark=true
+@EnabledIfSystemProperty(named = "activity.benchmark", matches = "true")
+class ExecutionModeLoadBenchmarkTest {
+    private static final int CLIENTS = 400;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration DURATION = Duration.ofSeconds(20);
+    private static final int ANALYTICS_PERCENT = 20;
+    private static final String LOAD_PAGE_URL = "/load-benchmark";
+
+    @Test
+    void compareP99LatencyOfPlatformAndVirtualThreads() throws Exception {
+        LoadResult platform = runLoad(false);
+        LoadResult virtual = runLoad(true);
+
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %10s %s%n",
+                "Режим", "req/s", "ingest p50", "ingest p99", "anal. p50", "anal. p99", "всего p99", "ошибки");
+        platform.print("platform");
+        virtual.print("virtual");
+
+        assertTrue(platform.completed() > 0 && virtual.completed() > 0);
+    }
+
+    private LoadResult runLoad(boolean virtualThreads) throws Exception {
+        // Аргументы командной строки, а не properties(): те имеют меньший приоритет, чем application.properties
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AsTpromoApplication.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.jpa.show-sql=false",
+                "--activity.rate-limit.enabled=false");
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String token = context.getBean(JwtUtil.class).generateToken("admin");
+            LoadClient client = new LoadClient("http://localhost:" + port, token);
+
+            client.run(WARMUP, new LoadResult());
+            LoadResult result = new LoadResult();
+            client.run(DURATION, result);
+            return result;
+        } finally {
+            context.getBean(JdbcTemplate.class).update("DELETE FROM user_activity WHERE page_url = ?", LOAD_PAGE_URL);
+            context.close();
+        }
+    }
+
+    private static class LoadClient {
+        private final String baseUrl;
+        private final String token;
+        private final HttpClient httpClient;
+
+        LoadClient(String baseUrl, String token) {
+            this.baseUrl = baseUrl;
+            this.token = token;
+            this.httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+        }
+
+        void run(Duration duration, LoadResult result) throws InterruptedException {
+            long deadline = System.nanoTime() + duration.toNanos();
+            long start = System.nanoTime();
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < CLIENTS; i++) {
+                    clients.submit(() -> {
+                        while (System.nanoTime() < deadline) {
+                            boolean analytics = ThreadLocalRandom.current().nextInt(100) < ANALYTICS_PERCENT;
+                            HttpRequest request = analytics ? analyticsRequest() : ingestRequest();
+                            long sent = System.nanoTime();
+                            try {
+                                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                                result.record(analytics, System.nanoTime() - sent, response.statusCode());
+                            } catch (Exception e) {
+                                result.record(analytics, System.nanoTime() - sent, -1);
+                            }
+                        }
+                    });
+                }
+            }
+            result.elapsedNanos = System.nanoTime() - start;
+        }
+
+        private HttpRequest ingestRequest() {
+            int ip = ThreadLocalRandom.current().nextInt(1, 255);
+            String body = "[{\"userIp\":\"10.1.0." + ip + "\",\"sessionId\":\"load-" + ip + "\",\"pageUrl\":\""
+                    + LOAD_PAGE_URL + "\",\"eventType\":\"ENTER\",\"timestamp\":\"2026-10-18T10:00:00\",\"countEvent\":1}]";
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/api/activity"))
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofSeconds(30))
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+
+        private HttpRequest analyticsRequest() {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/api/analytics/popular-pages"))
+                    .header("Authorization", "Bearer " + token)
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+        }
+    }
+
+    private static class LoadResult {
+        private final List<Long> ingestNanos = new ArrayList<>();
+        private final List<Long> analyticsNanos = new ArrayList<>();
+        private final Map<Integer, Long> errors = new TreeMap<>(); // Код ответа (-1 - нет ответа) -> число
+        private long elapsedNanos;
+
+        synchronized void record(boolean analytics, long nanos, int status) {
+            (analytics ? analyticsNanos : ingestNanos).add(nanos);
+            if (status < 200 || status >= 400) {
+                errors.merge(status, 1L, Long::sum);
+            }
+        }
+
+        long completed() {
+            return ingestNanos.size() + analyticsNanos.size();
+        }
+
+        void print(String mode) {
+            List<Long> all = new ArrayList<>(ingestNanos);
+            all.addAll(analyticsNanos);
+            System.out.printf("%-10s %10.0f %10.1f %10.1f %10.1f %10.1f %10.1f %s%n", mode,
+                    completed() / (elapsedNanos / 1e9),
+                    percentileMillis(ingestNanos, 0.50), percentileMillis(ingestNanos, 0.99),
+                    percentileMillis(analyticsNanos, 0.50), percentileMillis(analyticsNanos, 0.99),
+                    percentileMillis(all, 0.99), errors);
+        }
+
+        private static double percentileMillis(List<Long> values, double percentile) {
+            if (values.isEmpty()) {
+                return 0;
+            }
+            long[] sorted = values.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package backend.benchmark;
+
+import backend.utils.GeoIpIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Время поиска страны в индексе размера реальной базы DB-IP (около 300 тысяч диапазонов IPv4 и 100 тысяч IPv6).
+// Запуск: mvn test -Dtest=GeoIpLookupBenchmarkTest -Dactivity.benchmark=true
+@EnabledIfSystemProperty(named = "activity.benchmark", matches = "true")
+class GeoIpLookupBenchmarkTest {
+    private static final int V4_RANGES = 300_000;
+    private static final int V6_RANGES = 100_000;
+    private static final int ADDRESSES = 1 << 16;
+    private static final int ROUNDS = 100;
+    private static final String[] COUNTRIES = {"RU", "US", "DE", "KZ", "BY", "CN", "FR", "GB"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void measureLookup() throws Exception {
+        Path file = directory.resolve("ranges.csv");
+        long v4Step = (1L << 32) / V4_RANGES;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("ip_start,ip_end,country\n");
+            for (int i = 0; i < V4_RANGES; i++) {
+                long start = i * v4Step;
+                // Каждый десятый промежуток между диапазонами не принадлежит ни одной стране
+                long end = start + (i % 10 == 0 ? v4Step / 2 : v4Step - 1);
+                writer.write(start + "," + end + "," + COUNTRIES[i % COUNTRIES.length] + "\n");
+            }
+            for (int i = 0; i < V6_RANGES; i++) {
+                writer.write(String.format("2a%02x:%x::,2a%02x:%x:ffff:ffff:ffff:ffff:ffff:ffff,%s%n",
+                        i >> 16, i & 0xFFFF, i >> 16, i & 0xFFFF, COUNTRIES[i % COUNTRIES.length]));
+            }
+        }
+
+        long loadStart = System.nanoTime();
+        GeoIpIndex index = GeoIpIndex.load(file);
+        double loadMillis = (System.nanoTime() - loadStart) / 1_000_000.0;
+        assertEquals(V4_RANGES + V6_RANGES, index.size());
+        assertEquals("US", index.lookup(new byte[]{0, 0, (byte) (v4Step >> 8), (byte) v4Step}));
+        assertNull(index.lookup(new byte[]{0, 0, (byte) ((v4Step - 1) >> 8), (byte) (v4Step - 1)}));
+
+        Random random = new Random(42);
+        byte[][] addresses = new byte[ADDRESSES][];
+        for (int i = 0; i < ADDRESSES; i++) {
+            addresses[i] = new byte[i % 4 == 0 ? 16 : 4];
+            random.nextBytes(addresses[i]);
+            if (addresses[i].length == 16) {
+                addresses[i][0] = 0x2a;
+                addresses[i][1] = (byte) random.nextInt(2);
+            }
+        }
+
+        int found = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            found += lookupAll(index, addresses); // Прогрев JIT
+        }
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            found += lookupAll(index, addresses);
+        }
+        double nanos = (double) (System.nanoTime() - start) / ROUNDS / ADDRESSES;
+        System.out.printf("GeoIP: %d диапазонов загружены за %.0f мс, поиск %.0f нс на адрес (найдено %d)%n",
+                index.size(), loadMillis, nanos, found);
+    }
+
+    private static int lookupAll(GeoIpIndex index, byte[][] addresses) {
+        int found = 0;
+        for (byte[] address : addresses) {
+            if (index.lookup(address) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,99 @@
+package backend.config;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RequestDecompressionFilterTest {
+    private static final String BODY = "{\"userIp\":\"10.0.0.1\"}\n".repeat(100);
+
+    private final RequestDecompressionFilter filter = new RequestDecompressionFilter(1024 * 1024);
+
+    @Test
+    void readListenerRequiresAsyncRequest() throws Exception {
+        ServletRequest decompressed = decompress(gzipRequest());
+        ServletInputStream body = decompressed.getInputStream();
+
+        assertThrows(IllegalStateException.class, () -> body.setReadListener(new CollectingListener(body)));
+    }
+
+    @Test
+    void readListenerReceivesWholeBody() throws Exception {
+        MockHttpServletRequest request = gzipRequest();
+        request.setAsyncSupported(true);
+        ServletRequest decompressed = decompress(request);
+        decompressed.startAsync();
+        ServletInputStream body = decompressed.getInputStream();
+        CollectingListener listener = new CollectingListener(body);
+
+        body.setReadListener(listener);
+
+        assertEquals(List.of("data", "all"), listener.calls);
+        assertEquals(BODY, listener.received.toString(StandardCharsets.UTF_8));
+        // Слушатель задается один раз
+        assertThrows(IllegalStateException.class, () -> body.setReadListener(new CollectingListener(body)));
+    }
+
+    private ServletRequest decompress(MockHttpServletRequest request) throws Exception {
+        ServletRequest[] passed = new ServletRequest[1];
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> passed[0] = req);
+        return passed[0];
+    }
+
+    private static MockHttpServletRequest gzipRequest() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(BODY.getBytes(StandardCharsets.UTF_8));
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/activity");
+        request.addHeader("Content-Encoding", "gzip");
+        request.setContent(compressed.toByteArray());
+        return request;
+    }
+
+    // Читает тело, пока поток готов, как это делают неблокирующие обработчики
+    private static class CollectingListener implements ReadListener {
+        private final ServletInputStream body;
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private final List<String> calls = new ArrayList<>();
+
+        CollectingListener(ServletInputStream body) {
+            this.body = body;
+        }
+
+        @Override
+        public void onDataAvailable() throws IOException {
+            calls.add("data");
+            byte[] buffer = new byte[256];
+            while (body.isReady() && !body.isFinished()) {
+                int read = body.read(buffer);
+                if (read > 0) {
+                    received.write(buffer, 0, read);
+                }
+            }
+        }
+
+        @Override
+        public void onAllDataRead() {
+            calls.add("all");
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            calls.add("error: " + throwable);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package backend.service;
+
+import backend.config.ActivityPartitionManager;
+import backend.config.ActivityProperties;
+import backend.dto.backfill.BackfillJobInfo;
+import backend.model.BackfillJobState;
+import backend.model.UserActivity;
+import backend.repository.ActivityBackfillRepository;
+import backend.repository.ActivityCopyWriter;
+import backend.repository.ActivityDictionary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ActivityBackfillServiceTest {
+    private static final String TIME = "[10/Oct/2025:13:55:36 +0000]";
+    private static final String AGENT = "\"Mozilla/5.0 (X11; Linux x86_64)\"";
+
+    @TempDir
+    Path directory;
+
+    private final List<UserActivity> copied = new ArrayList<>();
+    private ActivityBackfillService service;
+
+    @BeforeEach
+    void setUp() {
+        ActivityProperties properties = new ActivityProperties();
+        properties.getBackfill().setDirectory(directory.toString());
+        properties.getBackfill().setSiteUrl("https://example.com");
+        properties.getBackfill().setThreads(1);
+        properties.getPartitioning().setEnabled(false);
+
+        // Обогащение и словарь не меняют события, COPY только запоминает строки
+        ActivityEnrichmentPipeline pipeline = mock(ActivityEnrichmentPipeline.class);
+        when(pipeline.process(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        ActivityCopyWriter copyWriter = mock(ActivityCopyWriter.class);
+        when(copyWriter.copy(anyList())).thenAnswer(invocation -> {
+            copied.addAll(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        ActivityBotFilter botFilter = mock(ActivityBotFilter.class);
+        when(botFilter.isBotUserAgent(anyString())).thenReturn(false);
+        ActivityBackfillRepository repository = mock(ActivityBackfillRepository.class);
+        when(repository.find(anyString())).thenReturn(Optional.empty());
+
+        service = new ActivityBackfillService(pipeline, mock(ActivityDictionary.class), copyWriter, botFilter,
+                mock(ActivityPartitionManager.class), repository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void skipsValuesLongerThanColumns() throws Exception {
+        String longPath = "/books/" + "a".repeat(300);
+        String longReferer = "https://google.com/search?q=" + "b".repeat(300);
+        Files.write(directory.resolve("access.log"), List.of(
+                "10.0.0.1 - - " + TIME + " \"GET /books?id=1 HTTP/1.1\" 200 10 \"-\" " + AGENT,
+                "10.0.0.2 - - " + TIME + " \"GET " + longPath + " HTTP/1.1\" 200 10 \"-\" " + AGENT,
+                "10.0.0.3 - - " + TIME + " \"GET /books?id=3 HTTP/1.1\" 200 10 \"" + longReferer + "\" " + AGENT,
+                "10.0.0.4 - - " + TIME + " \"GET /books?id=4 HTTP/1.1\" 200 10 \"https://google.com/\" " + AGENT),
+                StandardCharsets.UTF_8);
+
+        BackfillJobInfo job = await(service.importFile("access.log").getId());
+
+        assertEquals(BackfillJobState.COMPLETED, job.getState());
+        assertEquals(4, job.getLines());
+        assertEquals(3, job.getImportedEvents());
+        assertEquals(1, job.getSkippedLines());
+        assertEquals(List.of("https://example.com/books?id=1", "https://example.com/books?id=3",
+                "https://example.com/books?id=4"), copied.stream().map(UserActivity::getPageUrl).toList());
+        assertNull(copied.get(1).getReferer());
+        assertEquals("https://google.com/", copied.get(2).getReferer());
+    }
+
+    private BackfillJobInfo await(String id) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            BackfillJobInfo job = service.getJob(id).orElseThrow();
+            if (job.getState() != BackfillJobState.QUEUED && job.getState() != BackfillJobState.RUNNING) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Задание загрузки не завершилось");
+    }
+}
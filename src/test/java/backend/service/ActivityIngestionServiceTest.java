@@ -0,0 +1,76 @@
+package backend.service;
+
+import backend.config.ActivityProperties;
+import backend.config.ConnectionPoolMetrics;
+import backend.model.EventType;
+import backend.model.UserActivity;
+import backend.repository.ActivityDictionary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ActivityIngestionServiceTest {
+    private final ActivityIngestionService service = new ActivityIngestionService(mock(UserActivityService.class),
+            mock(ActivityCoalescer.class), mock(BatchDeduplicator.class), mock(ActivityBotFilter.class),
+            mock(ActivityRateLimiter.class), mock(ActivitySampler.class), mock(ActivityConcurrencyLimiter.class),
+            mock(ActivityEnrichmentPipeline.class), mock(ActivityDictionary.class), mock(ConnectionPoolMetrics.class),
+            new ActivityProperties(), new ObjectMapper());
+
+    @Test
+    void acceptsEventWithinColumnLimits() {
+        assertTrue(service.isValid(activity()));
+
+        UserActivity longest = activity();
+        longest.setPageUrl("a".repeat(UserActivity.MAX_TEXT_LENGTH));
+        longest.setTimestamp(UserActivity.MAX_TIMESTAMP);
+        longest.setCountEvent(null); // Без счетчика - одно событие
+        assertTrue(service.isValid(longest));
+    }
+
+    @Test
+    void rejectsEventsDatabaseWouldRefuse() {
+        assertFalse(service.isValid(null));
+
+        UserActivity noIp = activity();
+        noIp.setUserIp(null);
+        assertFalse(service.isValid(noIp));
+
+        UserActivity longSession = activity();
+        longSession.setSessionId("s".repeat(UserActivity.MAX_TEXT_LENGTH + 1));
+        assertFalse(service.isValid(longSession));
+
+        UserActivity longReferer = activity();
+        longReferer.setReferer("https://example.com/" + "r".repeat(UserActivity.MAX_TEXT_LENGTH));
+        assertFalse(service.isValid(longReferer));
+
+        UserActivity nul = activity();
+        nul.setPageUrl("/books\0");
+        assertFalse(service.isValid(nul));
+
+        UserActivity nulDetails = activity();
+        nulDetails.setEventDetails("{\"button\": \"\\u0000\"}");
+        assertFalse(service.isValid(nulDetails));
+
+        UserActivity farFuture = activity();
+        farFuture.setTimestamp(LocalDateTime.of(10_000, 1, 1, 0, 0));
+        assertFalse(service.isValid(farFuture));
+
+        UserActivity beforeEra = activity();
+        beforeEra.setTimestamp(LocalDateTime.of(0, 12, 31, 23, 59));
+        assertFalse(service.isValid(beforeEra));
+
+        UserActivity zeroCount = activity();
+        zeroCount.setCountEvent(0L);
+        assertFalse(service.isValid(zeroCount));
+    }
+
+    private static UserActivity activity() {
+        return new UserActivity("10.0.0.1", "session", "https://example.com/books", EventType.VIEW, null, null,
+                LocalDateTime.of(2025, 10, 10, 13, 55), 1L);
+    }
+}
@@ -0,0 +1,67 @@
+package backend.service;
+
+import backend.config.ActivityProperties;
+import backend.model.BatchState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchDeduplicatorTest {
+    private static final long MINUTE = 60_000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private BatchDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        ActivityProperties properties = new ActivityProperties();
+        properties.getDeduplication().setWindowMinutes(1);
+        properties.getDeduplication().setExactCapacity(1); // Точно помнится только последний пакет
+        properties.getDeduplication().setExpectedBatches(1_000);
+        deduplicator = new BatchDeduplicator(properties, now::get);
+    }
+
+    @Test
+    void rejectsRepeatedBatchFromExactSet() {
+        assertEquals(BatchState.NEW, deduplicator.tryBegin("a"));
+        deduplicator.complete("a");
+        assertEquals(BatchState.DUPLICATE, deduplicator.tryBegin("a"));
+        assertEquals(0, deduplicator.getStats().getBloomOnlyDuplicates());
+    }
+
+    @Test
+    void repeatDuringFirstAttemptIsNotDuplicate() {
+        assertEquals(BatchState.NEW, deduplicator.tryBegin("a"));
+        assertEquals(BatchState.IN_PROGRESS, deduplicator.tryBegin("a"));
+        assertEquals(1, deduplicator.getStats().getInFlightEntries());
+
+        // Первая попытка не удалась: повтор должен быть обработан
+        deduplicator.abort("a");
+        assertEquals(BatchState.NEW, deduplicator.tryBegin("a"));
+        deduplicator.complete("a");
+        assertEquals(BatchState.DUPLICATE, deduplicator.tryBegin("a"));
+        assertEquals(0, deduplicator.getStats().getInFlightEntries());
+    }
+
+    @Test
+    void completedBatchSurvivesOneRotationAndIsForgottenAfterTwo() {
+        assertEquals(BatchState.NEW, deduplicator.tryBegin("a"));
+        deduplicator.complete("a");
+        assertEquals(BatchState.NEW, deduplicator.tryBegin("b"));
+        deduplicator.complete("b"); // Вытесняет "a" из точного множества
+
+        assertEquals(BatchState.DUPLICATE, deduplicator.tryBegin("a"));
+        assertEquals(1, deduplicator.getStats().getBloomOnlyDuplicates());
+
+        // Первая смена: "a" остается в предыдущем поколении
+        now.addAndGet(MINUTE + 1);
+        assertEquals(BatchState.DUPLICATE, deduplicator.tryBegin("a"));
+
+        // Вторая смена: поколение с "a" отброшено, пакет снова принимается
+        now.addAndGet(MINUTE + 1);
+        assertEquals(BatchState.NEW, deduplicator.tryBegin("a"));
+    }
+}
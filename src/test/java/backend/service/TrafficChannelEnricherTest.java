@@ -0,0 +1,56 @@
+package backend.service;
+
+import backend.config.ActivityProperties;
+import backend.model.TrafficChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrafficChannelEnricherTest {
+    private final TrafficChannelEnricher enricher = create();
+
+    @Test
+    void matchesWholeHostLabels() {
+        assertEquals(TrafficChannel.SOCIAL, classify("vk.com"));
+        assertEquals(TrafficChannel.SOCIAL, classify("m.vk.com"));
+        assertEquals(TrafficChannel.REFERRAL, classify("xvk.com"));
+        assertEquals(TrafficChannel.REFERRAL, classify("vk.community.org"));
+        // Образец с точкой в конце совпадает с любой зоной
+        assertEquals(TrafficChannel.SEARCH, classify("google.ru"));
+        assertEquals(TrafficChannel.SEARCH, classify("google.com.tr"));
+        assertEquals(TrafficChannel.REFERRAL, classify("notgoogle.com"));
+        assertEquals(TrafficChannel.REFERRAL, classify("google"));
+    }
+
+    @Test
+    void prefersLongestMatchingRule() {
+        assertEquals(TrafficChannel.SOCIAL, classify("news.social.example.com"));
+        assertEquals(TrafficChannel.SEARCH, classify("search.social.example.com"));
+    }
+
+    @Test
+    void campaignAndInternalRulesComeFirst() {
+        assertEquals(TrafficChannel.CAMPAIGN, enricher.classify("vk.com", "/books?utm_source=vk"));
+        assertEquals(TrafficChannel.DIRECT, enricher.classify(null, "/books"));
+        assertEquals(TrafficChannel.INTERNAL, enricher.classify("shop.example.com", "https://shop.example.com/books"));
+        assertEquals(TrafficChannel.INTERNAL, enricher.classify("api.localhost", "/books"));
+        assertEquals(TrafficChannel.REFERRAL, enricher.classify("mylocalhost", "/books"));
+    }
+
+    private TrafficChannel classify(String host) {
+        return enricher.classify(host, "/books");
+    }
+
+    private static TrafficChannelEnricher create() {
+        ActivityProperties properties = new ActivityProperties();
+        Map<TrafficChannel, List<String>> hosts = properties.getTraffic().getHosts();
+        hosts.get(TrafficChannel.SOCIAL).add("social.example.com");
+        hosts.get(TrafficChannel.SEARCH).add("search.social.example.com");
+        properties.getTraffic().setInternalHosts(new ArrayList<>(List.of("localhost")));
+        return new TrafficChannelEnricher(properties);
+    }
+}
@@ -0,0 +1,106 @@
+package backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AccessLogParserTest {
+    private static final String TIME = "[10/Oct/2000:13:55:36 -0700]";
+
+    private final AccessLogParser parser = new AccessLogParser(ZoneOffset.UTC);
+
+    @Test
+    void parsesMainFormat() {
+        AccessLogParser.Entry entry = parse("10.0.0.1 - frank " + TIME + " \"GET /books?id=1 HTTP/1.1\" 200 2326"
+                + " \"https://google.com/\" \"Mozilla/5.0 (X11; Linux x86_64)\" \"203.0.113.7, 10.0.0.2\"");
+
+        assertEquals("10.0.0.1", entry.remoteAddress());
+        assertEquals(LocalDateTime.of(2000, 10, 10, 20, 55, 36), entry.time()); // -0700 приведено к UTC
+        assertEquals("GET", entry.method());
+        assertEquals("/books?id=1", entry.target());
+        assertEquals(200, entry.status());
+        assertEquals("https://google.com/", entry.referer());
+        assertEquals("Mozilla/5.0 (X11; Linux x86_64)", entry.userAgent());
+        assertEquals("203.0.113.7, 10.0.0.2", entry.forwardedFor());
+    }
+
+    @Test
+    void treatsDashAndMissingFieldsAsNull() {
+        // combined без $http_x_forwarded_for, "-" вместо $body_bytes_sent, источника и агента
+        AccessLogParser.Entry entry = parse("10.0.0.1 - - " + TIME + " \"HEAD / HTTP/1.0\" 304 - \"-\" \"-\"");
+
+        assertEquals(304, entry.status());
+        assertNull(entry.referer());
+        assertNull(entry.userAgent());
+        assertNull(entry.forwardedFor());
+
+        // Строка оборвана внутри агента
+        entry = parse("10.0.0.1 - - " + TIME + " \"GET / HTTP/1.1\" 200 5 \"-\" \"Mozilla");
+        assertNull(entry.userAgent());
+    }
+
+    @Test
+    void parsesUnusualRequestLines() {
+        AccessLogParser.Entry http09 = parse("10.0.0.1 - - " + TIME + " \"GET /index.html\" 200 12 \"-\" \"-\"");
+        assertEquals("GET", http09.method());
+        assertEquals("/index.html", http09.target());
+
+        AccessLogParser.Entry spaces = parse("10.0.0.1 - - " + TIME + " \"GET /a b HTTP/1.1\" 400 0 \"-\" \"-\"");
+        assertEquals("/a b", spaces.target());
+
+        // Мусор вместо запроса (например, TLS на порт HTTP): nginx экранирует байты как \xNN
+        AccessLogParser.Entry junk = parse("10.0.0.1 - - " + TIME + " \"\\x16\\x03\\x01\" 400 150 \"-\" \"-\"");
+        assertNotNull(junk);
+        assertNull(junk.method());
+        assertNull(junk.target());
+        assertEquals(400, junk.status());
+    }
+
+    @Test
+    void rejectsMalformedLines() {
+        assertNull(parse(""));
+        assertNull(parse(" 10.0.0.1 - - " + TIME + " \"GET / HTTP/1.1\" 200 0"));
+        assertNull(parse("10.0.0.1 - - [10/Oct/2000:13:55:36 -0700 \"GET / HTTP/1.1\" 200 0"));
+        assertNull(parse("10.0.0.1 - - [31/Apr/2000:13:55:36 -0700] \"GET / HTTP/1.1\" 200 0"));
+        assertNull(parse("10.0.0.1 - - [10/Okt/2000:13:55:36 -0700] \"GET / HTTP/1.1\" 200 0"));
+        assertNull(parse("10.0.0.1 - - [10/Oct/2000:24:00:00 -0700] \"GET / HTTP/1.1\" 200 0"));
+        assertNull(parse("10.0.0.1 - - [10/Oct/2000:13:55:36 0700] \"GET / HTTP/1.1\" 200 0"));
+        assertNull(parse("10.0.0.1 - - " + TIME + " GET / HTTP/1.1 200 0"));
+        assertNull(parse("10.0.0.1 - - " + TIME + " \"GET / HTTP/1.1 200 0"));
+        assertNull(parse("10.0.0.1 - - " + TIME + " \"GET / HTTP/1.1\" - 0"));
+        assertNull(parse("10.0.0.1 - - " + TIME + " \"GET / HTTP/1.1\" 2x0 0"));
+    }
+
+    @Test
+    void parsesLineInsideLargerBuffer() {
+        String first = "10.0.0.1 - - " + TIME + " \"GET /a HTTP/1.1\" 200 1 \"-\" \"-\"";
+        String second = "10.0.0.2 - - [10/Oct/2000:13:55:37 +0300] \"GET /b HTTP/1.1\" 200 1 \"-\" \"-\"";
+        byte[] bytes = (first + "\n" + first + "\n" + second + "\n").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        int start = 0;
+        AccessLogParser.Entry a = parser.parse(buffer, start, start + first.length());
+        start += first.length() + 1;
+        AccessLogParser.Entry b = parser.parse(buffer, start, start + first.length()); // Время из предыдущей строки
+        start += first.length() + 1;
+        AccessLogParser.Entry c = parser.parse(buffer, start, start + second.length());
+
+        assertEquals("/a", a.target());
+        assertEquals(a.time(), b.time());
+        assertEquals("10.0.0.2", c.remoteAddress());
+        assertEquals("/b", c.target());
+        assertEquals(LocalDateTime.of(2000, 10, 10, 10, 55, 37), c.time());
+    }
+
+    private AccessLogParser.Entry parse(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return parser.parse(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+}
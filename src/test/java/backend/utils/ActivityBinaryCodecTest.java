@@ -0,0 +1,118 @@
+package backend.utils;
+
+import backend.model.BotRule;
+import backend.model.EventType;
+import backend.model.UserActivity;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ActivityBinaryCodecTest {
+
+    @Test
+    void roundTripKeepsAllFields() throws IOException {
+        UserActivity first = activity(EventType.values()[0], "10.0.0.1", "s1", "/books?id=1", "https://google.com/",
+                LocalDateTime.of(2026, 10, 18, 12, 0, 0, 123_000_000), 3L);
+        first.setEventDetails("{\"bookId\":1}");
+        // Время второго события раньше первого: разница кодируется со знаком
+        UserActivity second = activity(EventType.values()[EventType.values().length - 1], "10.0.0.1", null,
+                "/books?id=1", null, LocalDateTime.of(2026, 10, 18, 11, 59, 59), 1L);
+
+        List<UserActivity> decoded = decode(ActivityBinaryCodec.encode(List.of(first, second)));
+
+        assertEquals(2, decoded.size());
+        assertSame(first, decoded.get(0));
+        assertSame(second, decoded.get(1));
+        assertEquals("{\"bookId\":1}", decoded.get(0).getEventDetails());
+        assertNull(decoded.get(1).getSessionId());
+        assertNull(decoded.get(1).getReferer());
+    }
+
+    @Test
+    void botRuleIsKeptOnlyForSpooledBatches() throws IOException {
+        UserActivity activity = activity(EventType.values()[0], "10.0.0.2", "s2", "/", null,
+                LocalDateTime.of(2026, 1, 1, 0, 0), 1L);
+        activity.setBotRule(BotRule.values()[0]);
+        byte[] encoded = ActivityBinaryCodec.encode(List.of(activity));
+
+        // Отметку бота ставит только сервер: в пакете клиента она отбрасывается
+        assertNull(decode(encoded).get(0).getBotRule());
+        assertEquals(BotRule.values()[0],
+                ActivityBinaryCodec.decodeSpooled(new ByteArrayInputStream(encoded)).get(0).getBotRule());
+    }
+
+    @Test
+    void decodesVersionOne() throws IOException {
+        byte[] ip = "10.0.0.3".getBytes(StandardCharsets.UTF_8);
+        byte[] packet = new byte[3 + 2 + ip.length + 9];
+        int i = 0;
+        packet[i++] = 'A';
+        packet[i++] = 'B';
+        packet[i++] = 1;
+        packet[i++] = 1; // Одна строка
+        packet[i++] = (byte) ip.length;
+        System.arraycopy(ip, 0, packet, i, ip.length);
+        i += ip.length;
+        packet[i++] = 1; // Одно событие
+        packet[i++] = 0; // Тип
+        packet[i++] = 0; // userIp
+        packet[i++] = 0; // sessionId, pageUrl, referer, eventDetails
+        packet[i++] = 0;
+        packet[i++] = 0;
+        packet[i++] = 0;
+        packet[i++] = 4; // zigzag(2) - 2 мс от начала эпохи
+        packet[i] = 5; // countEvent; в версии 1 отметки бота нет
+
+        List<UserActivity> decoded = decode(packet);
+
+        assertEquals(1, decoded.size());
+        assertEquals("10.0.0.3", decoded.get(0).getUserIp());
+        assertEquals(LocalDateTime.of(1970, 1, 1, 0, 0, 0, 2_000_000), decoded.get(0).getTimestamp());
+        assertEquals(5L, decoded.get(0).getCountEvent());
+        assertNull(decoded.get(0).getBotRule());
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        byte[] encoded = ActivityBinaryCodec.encode(List.of(activity(EventType.values()[0], "10.0.0.4", null, null,
+                null, LocalDateTime.of(2026, 1, 1, 0, 0), 1L)));
+        encoded[2] = 3;
+
+        assertThrows(IllegalArgumentException.class, () -> decode(encoded));
+    }
+
+    private static List<UserActivity> decode(byte[] packet) throws IOException {
+        return ActivityBinaryCodec.decode(new ByteArrayInputStream(packet));
+    }
+
+    private static UserActivity activity(EventType type, String ip, String sessionId, String pageUrl, String referer,
+                                         LocalDateTime timestamp, Long count) {
+        UserActivity activity = new UserActivity();
+        activity.setEventType(type);
+        activity.setUserIp(ip);
+        activity.setSessionId(sessionId);
+        activity.setPageUrl(pageUrl);
+        activity.setReferer(referer);
+        activity.setTimestamp(timestamp);
+        activity.setCountEvent(count);
+        return activity;
+    }
+
+    private static void assertSame(UserActivity expected, UserActivity actual) {
+        assertEquals(expected.getEventType(), actual.getEventType());
+        assertEquals(expected.getUserIp(), actual.getUserIp());
+        assertEquals(expected.getSessionId(), actual.getSessionId());
+        assertEquals(expected.getPageUrl(), actual.getPageUrl());
+        assertEquals(expected.getReferer(), actual.getReferer());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getCountEvent(), actual.getCountEvent());
+    }
+}
@@ -0,0 +1,45 @@
+package backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AhoCorasickMatcherTest {
+
+    @Test
+    void reportsAllOverlappingMatches() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(List.of("he", "she", "his", "hers"));
+
+        // Номер образца и позиция после его конца
+        assertEquals(List.of("1:4", "0:4", "3:6"), matches(matcher, "ushers"));
+        assertEquals(List.of("2:3"), matches(matcher, "his"));
+        assertEquals(List.of(), matches(matcher, "hi"));
+    }
+
+    @Test
+    void reportsPatternThatIsSuffixOfAnother() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(List.of("vk.com", "m.vk.com", "com"));
+
+        // Сначала самый длинный образец, затем его суффиксы
+        assertEquals(List.of("1:8", "0:8", "2:8"), matches(matcher, "m.vk.com"));
+        assertEquals(8, matcher.patternLength(1));
+    }
+
+    @Test
+    void ignoresCharactersOutsidePatterns() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(List.of("bot"));
+
+        assertEquals(List.of("0:3", "0:10"), matches(matcher, "bot-пауbot"));
+        assertEquals(List.of(), matches(matcher, "b o t"));
+        assertEquals(List.of(), matches(new AhoCorasickMatcher(List.of()), "bot"));
+    }
+
+    private static List<String> matches(AhoCorasickMatcher matcher, String text) {
+        List<String> found = new ArrayList<>();
+        matcher.forEachMatch(text, (pattern, end) -> found.add(pattern + ":" + end));
+        return found;
+    }
+}
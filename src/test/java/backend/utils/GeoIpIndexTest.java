@@ -0,0 +1,95 @@
+package backend.utils;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class GeoIpIndexTest {
+    private static GeoIpIndex index;
+
+    @BeforeAll
+    static void load(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("ranges.csv");
+        // Строки не по порядку: индекс сортирует диапазоны сам
+        Files.write(file, List.of(
+                "ip_start,ip_end,country",
+                "1.0.255.0,1.2.0.255,CN", // Через две границы сетей /16
+                "1.0.0.0,1.0.0.255,AU",
+                "50331648,50331903,US", // 3.0.0.0 - 3.0.0.255 десятичными числами
+                "\"::ffff:4.0.0.0\",\"::ffff:4.0.255.255\",\"de\"",
+                "127.255.255.0,128.0.0.255,FR", // Через старший бит адреса
+                "255.255.255.0,255.255.255.255,SE",
+                "2a00::,2a00:0:ffff:ffff:ffff:ffff:ffff:ffff,NL",
+                "5.0.0.0,5.0.0.255,ZZ",
+                "6.0.0.0,2a01::,RU",
+                "garbage"), StandardCharsets.UTF_8);
+        index = GeoIpIndex.load(file);
+    }
+
+    @Test
+    void countsLoadedAndSkippedLines() {
+        assertEquals(7, index.size());
+        assertEquals(7, index.countries());
+        assertEquals(4, index.skippedLines());
+    }
+
+    @Test
+    void findsRangeBoundariesWithinOnePrefix() {
+        assertNull(lookup("0.255.255.255"));
+        assertEquals("AU", lookup("1.0.0.0"));
+        assertEquals("AU", lookup("1.0.0.255"));
+        assertNull(lookup("1.0.1.0"));
+        assertEquals("US", lookup("3.0.0.0"));
+        assertEquals("US", lookup("3.0.0.255"));
+        assertNull(lookup("3.0.1.0"));
+        assertEquals("DE", lookup("4.0.255.255"));
+        assertNull(lookup("5.0.0.1"));
+    }
+
+    @Test
+    void findsRangeStartedInEarlierPrefix() {
+        assertNull(lookup("1.0.254.255"));
+        assertEquals("CN", lookup("1.0.255.0"));
+        // В сети 1.1.0.0/16 нет своих диапазонов: адрес попадает в диапазон из 1.0.0.0/16
+        assertEquals("CN", lookup("1.1.0.0"));
+        assertEquals("CN", lookup("1.1.128.1"));
+        assertEquals("CN", lookup("1.2.0.0"));
+        assertEquals("CN", lookup("1.2.0.255"));
+        assertNull(lookup("1.2.1.0"));
+        assertNull(lookup("1.3.0.0"));
+    }
+
+    @Test
+    void comparesAddressesAsUnsigned() {
+        assertNull(lookup("127.255.254.255"));
+        assertEquals("FR", lookup("127.255.255.255"));
+        assertEquals("FR", lookup("128.0.0.0"));
+        assertEquals("FR", lookup("128.0.0.255"));
+        assertNull(lookup("128.0.1.0"));
+        assertNull(lookup("255.255.254.255"));
+        assertEquals("SE", lookup("255.255.255.255"));
+    }
+
+    @Test
+    void findsIpv6Ranges() {
+        assertEquals("NL", lookup("2a00::"));
+        assertEquals("NL", lookup("2a00:0:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertNull(lookup("2a00:1::"));
+        assertNull(lookup("29ff:ffff:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertNull(index.lookup(null));
+        assertNull(index.lookup(new byte[5]));
+    }
+
+    private static String lookup(String address) {
+        return index.lookup(IpAddresses.parse(address));
+    }
+}
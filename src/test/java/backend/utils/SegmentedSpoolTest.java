@@ -0,0 +1,138 @@
+package backend.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SegmentedSpoolTest {
+    private static final int SEGMENT_BYTES = 4096;
+    private static final int HEADER_BYTES = 16; // Заголовок сегмента
+    private static final int RECORD_HEADER_BYTES = 16; // Длина, crc32 и время добавления перед данными
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rewindReturnsToLastCommittedRecord() throws IOException {
+        try (SegmentedSpool spool = open()) {
+            spool.append(bytes("one"));
+            spool.append(bytes("two"));
+            spool.append(bytes("three"));
+
+            assertEquals("one", text(spool.poll()));
+            spool.commit();
+            assertEquals("two", text(spool.poll()));
+            assertEquals("three", text(spool.poll()));
+            assertNull(spool.poll());
+
+            // Запись в базу не удалась: неподтвержденные записи читаются снова
+            spool.rewind();
+            assertEquals("two", text(spool.poll()));
+            assertEquals(2, spool.pendingRecords());
+        }
+    }
+
+    @Test
+    void committedOffsetSurvivesRestart() throws IOException {
+        try (SegmentedSpool spool = open()) {
+            spool.append(bytes("one"));
+            spool.append(bytes("two"));
+            spool.poll();
+            spool.commit();
+        }
+
+        try (SegmentedSpool spool = open()) {
+            assertEquals(1, spool.pendingRecords());
+            assertEquals("two", text(spool.poll()));
+            assertNull(spool.poll());
+            spool.append(bytes("three")); // После перезапуска запись идет в новый сегмент
+            assertEquals("three", text(spool.poll()));
+        }
+    }
+
+    @Test
+    void recoveryStopsAtCorruptRecord() throws IOException {
+        try (SegmentedSpool spool = open()) {
+            spool.append(bytes("one"));
+            spool.append(bytes("two"));
+            spool.append(bytes("three"));
+        }
+        // Портим данные второй записи: она и все после нее в сегменте считаются недописанными
+        int second = HEADER_BYTES + RECORD_HEADER_BYTES + "one".length();
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), second + RECORD_HEADER_BYTES);
+        }
+
+        try (SegmentedSpool spool = open()) {
+            assertEquals(1, spool.corruptRecords());
+            assertEquals(1, spool.pendingRecords());
+            assertEquals("one", text(spool.poll()));
+            assertNull(spool.poll());
+        }
+    }
+
+    @Test
+    void fullyCommittedSegmentsAreDeleted() throws IOException {
+        // Сегмент вмещает одну запись: каждая следующая открывает новый
+        int segmentBytes = HEADER_BYTES + RECORD_HEADER_BYTES + 8;
+        try (SegmentedSpool spool = new SegmentedSpool(directory, segmentBytes, 1 << 20, false)) {
+            for (int i = 0; i < 3; i++) {
+                spool.append(bytes("record-" + i));
+            }
+            assertEquals(3, spool.segmentCount());
+
+            assertEquals("record-0", text(spool.poll()));
+            assertEquals("record-1", text(spool.poll()));
+            spool.commit();
+
+            assertEquals(1, spool.segmentCount());
+            assertEquals(1, segments().size());
+            assertEquals(1, spool.pendingRecords());
+            assertEquals("record-2", text(spool.poll()));
+        }
+    }
+
+    @Test
+    void appendFailsWhenSpoolIsFull() throws IOException {
+        int segmentBytes = HEADER_BYTES + RECORD_HEADER_BYTES + 8;
+        try (SegmentedSpool spool = new SegmentedSpool(directory, segmentBytes, 2L * segmentBytes, false)) {
+            spool.append(bytes("record-0"));
+            spool.append(bytes("record-1"));
+            assertFalse(spool.append(bytes("record-2")));
+            assertEquals(2, spool.pendingRecords());
+        }
+    }
+
+    private SegmentedSpool open() throws IOException {
+        return new SegmentedSpool(directory, SEGMENT_BYTES, 1 << 20, false);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(SegmentedSpool.Record record) {
+        assertNotNull(record);
+        return new String(record.payload(), StandardCharsets.UTF_8);
+    }
+}